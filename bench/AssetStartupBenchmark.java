@@ -0,0 +1,61 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Times loading the game's images the way JoustScreen does at startup (see AssetLoader), then checks
+ * every pixel against the PNGs decoded by ImageIO
+ *
+ * Startup is only measured once per JVM, before anything is warm, so run it once without a cache,
+ * once to write the cache and once more to read it:
+ *   javac -d out src/*.java bench/*.java
+ *   java -Djava.awt.headless=true -cp out AssetStartupBenchmark
+ *   java -Djava.awt.headless=true -cp out AssetStartupBenchmark jousty.cache   (writes it)
+ *   java -Djava.awt.headless=true -cp out AssetStartupBenchmark jousty.cache   (reads it)
+ * The exit status is 1 if any pixel is different.
+ */
+public class AssetStartupBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		long start = System.nanoTime();
+		AssetLoader loader = new AssetLoader(AssetLoader.GAME_IMAGES, args.length > 0 ? Paths.get(args[0]) : null,
+				Runtime.getRuntime().availableProcessors());
+		loader.await();
+		long loaded = System.nanoTime();
+		System.out.println(String.format("%d images (%d from %s) in %.1f ms, %d ms after the JVM started, %d processors",
+				loader.getTotal(), loader.getFromCache(), args.length > 0 ? args[0] : "no cache", (loaded - start) / 1e6,
+				ManagementFactory.getRuntimeMXBean().getUptime(), Runtime.getRuntime().availableProcessors()));
+
+		// THE SAME PIXELS as the PNGs
+		int wrong = 0;
+		for(String basename : AssetLoader.GAME_IMAGES){
+			BufferedImage png = ImageIO.read(new File(basename + ".png"));
+			BufferedImage image = loader.get(basename);
+			if(image.getWidth() != png.getWidth() || image.getHeight() != png.getHeight()){
+				System.out.println(basename + ": " + image.getWidth() + "x" + image.getHeight() + " instead of " + png.getWidth() + "x" + png.getHeight());
+				wrong++;
+				continue;
+			}
+			int w = png.getWidth();
+			int h = png.getHeight();
+			int[] expected = png.getRGB(0, 0, w, h, null, 0, w);
+			int[] actual = image.getRGB(0, 0, w, h, null, 0, w);
+			for(int i = 0; i < expected.length; i++){
+				if(expected[i] != actual[i]){
+					System.out.println(basename + ": pixel " + (i % w) + ", " + (i / w) + " is " + Integer.toHexString(actual[i]) + " instead of " + Integer.toHexString(expected[i]));
+					wrong++;
+					break;
+				}
+			}
+		}
+		if(loader.getCacheProblem() != null){
+			System.out.println(loader.getCacheProblem());
+		}
+		System.out.println(wrong == 0 ? "every pixel the same" : wrong + " images different");
+		System.exit(wrong == 0 ? 0 : 1);
+	}
+}
@@ -0,0 +1,42 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+/**
+ * How long a swarm mode tick takes as the number of birds grows
+ * 
+ * For each swarm size, ticks a BirdWorld for a while to warm up, then reports the average time
+ * per tick, how much of a 50 Hz tick (20 ms) that is, how many pairs of birds collide per tick
+ * (the arena gets crowded fast) and how much the heap grew while ticking.
+ * 
+ * Run from the project directory with
+ *   javac -d out src/*.java bench/*.java
+ *   java -cp out BirdWorldBenchmark [ticks]
+ */
+public class BirdWorldBenchmark {
+
+	private static final int[] SIZES = { 2, 10, 50, 100, 250, 500, 1000 };
+
+	public static void main(String[] args) {
+		int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		System.out.println(String.format("%6s %12s %10s %12s %12s", "birds", "us/tick", "% of 20ms", "collisions", "heap growth"));
+		for(int size : SIZES){
+			BirdWorld world = new BirdWorld(size, GameSimulation.BIRD_SIZE, GameSimulation.BIRD_SIZE, 42);
+			for(int i = 0; i < ticks; i++){ // warm up
+				world.step(0);
+			}
+			System.gc();
+			long heapBefore = memory.getHeapMemoryUsage().getUsed();
+			long collisions = 0;
+			long start = System.nanoTime();
+			for(int i = 0; i < ticks; i++){
+				world.step(0);
+				collisions += world.getCollisionCount();
+			}
+			long elapsed = System.nanoTime() - start;
+			long heapAfter = memory.getHeapMemoryUsage().getUsed();
+			double microsPerTick = elapsed / 1000.0 / ticks;
+			System.out.println(String.format("%6d %12.2f %9.2f%% %12d %9d KB", size, microsPerTick, microsPerTick / 200.0, collisions / ticks, (heapAfter - heapBefore) / 1024));
+		}
+	}
+}
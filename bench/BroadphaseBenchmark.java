@@ -0,0 +1,82 @@
+/**
+ * Checks that the collision grid finds exactly what checking every pair finds, then times both
+ *
+ * For each swarm size and seed, two BirdWorlds with the same seed are ticked side by side, one with
+ * the broadphase on and one with it off. After every tick every bird must be in the same place, with
+ * the same velocity, facing and score, and the same number of collisions must have been found.
+ * Any difference is reported and the program exits with status 1.
+ *
+ * Run from the project directory with
+ *   javac -d out src/*.java bench/*.java
+ *   java -cp out BroadphaseBenchmark [ticks]
+ */
+public class BroadphaseBenchmark {
+
+	private static final int[] SIZES = { 2, 10, 50, 100, 250, 500, 1000 };
+	private static final long[] SEEDS = { 1, 42, 1234567 };
+
+	public static void main(String[] args) {
+		int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+
+		// SAME RESULTS
+		for(int size : SIZES){
+			for(long seed : SEEDS){
+				String difference = BroadphaseBenchmark.compare(size, seed, ticks);
+				if(difference != null){
+					System.out.println("FAILED: " + size + " birds, seed " + seed + ": " + difference);
+					System.exit(1);
+				}
+			}
+		}
+		System.out.println("grid and every pair agree on " + SIZES.length * SEEDS.length + " swarms of " + ticks + " ticks");
+
+		// SPEED
+		System.out.println(String.format("%6s %14s %14s %10s", "birds", "pairs us/tick", "grid us/tick", "speedup"));
+		for(int size : SIZES){
+			double allPairs = BroadphaseBenchmark.time(size, false, ticks);
+			double grid = BroadphaseBenchmark.time(size, true, ticks);
+			System.out.println(String.format("%6d %14.2f %14.2f %9.2fx", size, allPairs, grid, allPairs / grid));
+		}
+	}
+
+	/**
+	 * @return what first differed between the two ways of checking collisions, or null if nothing did
+	 */
+	private static String compare(int size, long seed, int ticks) {
+		BirdWorld grid = new BirdWorld(size, GameSimulation.BIRD_SIZE, GameSimulation.BIRD_SIZE, seed);
+		BirdWorld allPairs = new BirdWorld(size, GameSimulation.BIRD_SIZE, GameSimulation.BIRD_SIZE, seed);
+		allPairs.setBroadphase(false);
+		for(int t = 0; t < ticks; t++){
+			int inputs = t % 7 == 0 ? GameSimulation.INPUT_RED_LEFT | GameSimulation.INPUT_GREEN_RIGHT : 0;
+			grid.step(inputs);
+			allPairs.step(inputs);
+			if(grid.getCollisionCount() != allPairs.getCollisionCount()){
+				return "tick " + t + ": " + grid.getCollisionCount() + " collisions instead of " + allPairs.getCollisionCount();
+			}
+			for(int i = 0; i < size; i++){
+				if(grid.getXPosition(i) != allPairs.getXPosition(i) || grid.getYPosition(i) != allPairs.getYPosition(i)
+						|| grid.getXVelocity(i) != allPairs.getXVelocity(i) || grid.getYVelocity(i) != allPairs.getYVelocity(i)
+						|| grid.getFacing(i) != allPairs.getFacing(i) || grid.getScore(i) != allPairs.getScore(i)){
+					return "tick " + t + ": bird " + i + " differs";
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return microseconds per tick, after warming up
+	 */
+	private static double time(int size, boolean broadphase, int ticks) {
+		BirdWorld world = new BirdWorld(size, GameSimulation.BIRD_SIZE, GameSimulation.BIRD_SIZE, 42);
+		world.setBroadphase(broadphase);
+		for(int i = 0; i < ticks; i++){ // warm up
+			world.step(0);
+		}
+		long start = System.nanoTime();
+		for(int i = 0; i < ticks; i++){
+			world.step(0);
+		}
+		return (System.nanoTime() - start) / 1000.0 / ticks;
+	}
+}
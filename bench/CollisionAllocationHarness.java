@@ -0,0 +1,91 @@
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Checks that the collision checks of a tick (GameSimulation.checkBoxCollisions and checkBirdCollisions)
+ * allocate nothing once the game is warmed up
+ *
+ * The game is put in each of the states of a scripted match in turn (lava and moving platforms on, keys
+ * pressed now and then, birds landing on each other), and the two checks are run there, each one on its
+ * own between two readings of the bytes this thread has allocated (com.sun.management.ThreadMXBean,
+ * which allocates nothing itself). That is done WARM_UP times to let the JIT compile them, then
+ * CALLS times counting. It is done with box collisions, pixel collisions (see SpriteMask) and swept
+ * collisions (two ticks a step), since each takes a different way through the checks.
+ * The exit status is 1 if either check allocated anything.
+ *
+ * Run from the project directory with
+ *   javac -d out src/*.java bench/*.java
+ *   java -Djava.awt.headless=true -cp out CollisionAllocationHarness [calls]
+ */
+public class CollisionAllocationHarness {
+
+	private static final int STATES = 512;
+	private static final int WARM_UP = 200000;
+
+	public static void main(String[] args) {
+		int calls = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		long[] states = CollisionAllocationHarness.states(STATES);
+		SpriteMask[] redMasks = SpriteCache.getBirdMasks("birdr");
+		SpriteMask[] greenMasks = SpriteCache.getBirdMasks("birdg");
+		System.out.println(String.format("%-22s %10s %22s %22s", "collisions", "calls", "checkBoxCollisions B", "checkBirdCollisions B"));
+		boolean allocated = false;
+		for(int mode = 0; mode < 4; mode++){
+			boolean pixels = (mode & 1) != 0;
+			boolean swept = (mode & 2) != 0;
+			GameSimulation game = new GameSimulation();
+			game.setLavaOn(true);
+			game.setMovingPlatformsOn(true);
+			if(pixels){
+				game.setPixelMasks(redMasks, greenMasks);
+			}
+			game.setTickRate(swept ? GameSimulation.TICK_RATE / 2 : GameSimulation.TICK_RATE);
+			long boxBytes = 0;
+			long birdBytes = 0;
+			for(int i = 0; i < WARM_UP + calls; i++){
+				if(i == WARM_UP){
+					boxBytes = 0;
+					birdBytes = 0;
+				}
+				game.readState(states, (i % STATES) * GameSimulation.STATE_SIZE);
+				long before = threads.getThreadAllocatedBytes(thread);
+				game.checkBoxCollisions();
+				long between = threads.getThreadAllocatedBytes(thread);
+				game.checkBirdCollisions();
+				long after = threads.getThreadAllocatedBytes(thread);
+				boxBytes += between - before;
+				birdBytes += after - between;
+			}
+			allocated |= boxBytes != 0 || birdBytes != 0;
+			System.out.println(String.format("%-22s %10d %22d %22d", (pixels ? "pixels" : "boxes") + (swept ? ", swept" : ""), calls, boxBytes, birdBytes));
+		}
+		System.out.println(allocated ? "ALLOCATED in steady state" : "nothing allocated");
+		System.exit(allocated ? 1 : 0);
+	}
+
+	/**
+	 * The states of a match, spread over its length; a few ticks apart, so the birds are often close
+	 */
+	private static long[] states(int count) {
+		GameSimulation game = new GameSimulation();
+		game.setLavaOn(true);
+		game.setMovingPlatformsOn(true);
+		Random random = new Random(11);
+		long[] states = new long[count * GameSimulation.STATE_SIZE];
+		game.step(GameSimulation.INPUT_PAUSE);
+		for(int s = 0; s < count; s++){
+			for(int t = 0; t < 5; t++){
+				if(game.isGameOver()){ // start again, keeping the birds where they are
+					game = new GameSimulation();
+					game.setLavaOn(true);
+					game.setMovingPlatformsOn(true);
+					game.step(GameSimulation.INPUT_PAUSE);
+				}
+				game.step(random.nextInt(16) & random.nextInt(16));
+			}
+			game.writeState(states, s * GameSimulation.STATE_SIZE);
+		}
+		return states;
+	}
+}
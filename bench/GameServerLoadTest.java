@@ -0,0 +1,115 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Starts a GameServer in this process and connects enough players to it for the given number of
+ * matches, then lets them play for a while and reports how the server kept up
+ *
+ * The players all run on one thread with their own Selector: each one presses a random key now
+ * and then and reads every state the server sends. The report shows how late the server's
+ * ticks started and how long they took (over every match), and how many states the players got
+ * out of the ones the tick rate (50 Hz unless given) should send. On a machine with few processors, the players take
+ * processor time away from the server, so real servers should do better.
+ *
+ * Run from the project directory with
+ *   javac -d out src/*.java bench/*.java
+ *   java -cp out GameServerLoadTest [matches] [seconds] [server threads] [tick rate]
+ */
+public class GameServerLoadTest {
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int matches = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		int tickRate = args.length > 3 ? Integer.parseInt(args[3]) : GameLoop.DEFAULT_TICK_RATE;
+		GameServer server = new GameServer(new InetSocketAddress("127.0.0.1", 0), threads, tickRate);
+		server.start();
+		System.out.println(matches + " matches at " + tickRate + " Hz, " + threads + " server threads, " + Runtime.getRuntime().availableProcessors() + " processors");
+
+		// PLAYERS
+		Selector selector = Selector.open();
+		InetSocketAddress address = new InetSocketAddress("127.0.0.1", server.getPort());
+		for(int i = 0; i < 2 * matches; i++){
+			SocketChannel channel = SocketChannel.open(address);
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			channel.register(selector, SelectionKey.OP_READ, ByteBuffer.allocate(64 * 1024));
+		}
+		while(server.getMatchCount() < matches){
+			Thread.sleep(10);
+		}
+
+		// PLAY
+		Random random = new Random(1);
+		ByteBuffer input = ByteBuffer.allocate(2);
+		long states = 0;
+		long start = System.nanoTime();
+		long end = start + seconds * 1000000000L;
+		long nextKeys = start;
+		while(System.nanoTime() < end){
+			selector.select(5);
+			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+			while(keys.hasNext()){
+				SelectionKey key = keys.next();
+				keys.remove();
+				ByteBuffer in = (ByteBuffer)key.attachment();
+				if(((SocketChannel)key.channel()).read(in) < 0){
+					key.cancel();
+					continue;
+				}
+				in.flip();
+				while(in.remaining() > 0){
+					int size = GameServerLoadTest.messageSize(in.get(in.position()));
+					if(in.remaining() < size){
+						break;
+					}
+					if(in.get(in.position()) == GameServer.STATE){
+						states++;
+					}
+					in.position(in.position() + size);
+				}
+				in.compact();
+			}
+			if(System.nanoTime() >= nextKeys){ // about one key per player per 10 ticks
+				nextKeys += 20000000L;
+				for(SelectionKey key : selector.keys()){
+					if(key.isValid() && random.nextInt(10) == 0){
+						input.clear();
+						input.put(GameServer.INPUT);
+						input.put((byte)(1 << random.nextInt(4)));
+						input.flip();
+						((SocketChannel)key.channel()).write(input);
+					}
+				}
+			}
+		}
+		double elapsed = (System.nanoTime() - start) / 1e9;
+
+		// REPORT
+		System.out.print(server.report());
+		TickStats totals = server.getTotals();
+		System.out.println(String.format("mean tick %.1f us; %.0f ticks/s over every match (%.0f wanted)",
+				totals.getMeanDurationMicros(), totals.getTicks() / elapsed, matches * (double)tickRate));
+		System.out.println(String.format("players got %.0f states/s (%.0f sent if none were skipped)", states / elapsed, matches * 2.0 * tickRate));
+		for(SelectionKey key : selector.keys()){
+			key.channel().close();
+		}
+		server.stop();
+	}
+
+	private static int messageSize(byte type) {
+		if(type == GameServer.WELCOME){
+			return 6;
+		}
+		if(type == GameServer.STATE){
+			return GameServer.STATE_MESSAGE_SIZE;
+		}
+		return 3; // END
+	}
+}
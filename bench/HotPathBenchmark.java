@@ -0,0 +1,331 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Throughput and allocation of the hot paths: bird physics, collision checks (boxes and pixels), probes, a whole tick and whole frames
+ *
+ * Each case is run in batches big enough to take about 10 ms, warmed up for a second, then measured
+ * for ROUNDS rounds of a second each. For each case this prints
+ *  >> operations a second, the mean over the rounds and how far the rounds were from it
+ *  >> bytes allocated per operation by the measuring thread (com.sun.management.ThreadMXBean),
+ *     which should be 0 for everything but drawing
+ * Frames are drawn with the game's GameView into the image of an ImageRenderer, so they need no screen.
+ *
+ * Results can be saved, and later results compared with them: a case that got more than 10% slower,
+ * or allocates more, is marked and the exit status is 1.
+ *
+ * Run from the project directory with
+ *   javac -d out src/*.java bench/*.java
+ *   java -Djava.awt.headless=true -cp out HotPathBenchmark [part of a case name] [-save results.txt] [-compare results.txt]
+ */
+public class HotPathBenchmark {
+
+	private static final int ROUNDS = Integer.getInteger("bench.rounds", 5);
+	private static final long ROUND_NANOS = 1000000000L;
+	private static final long BATCH_NANOS = 10000000L;
+	private static final double SLOWER = 0.9; // slower than this much of the saved throughput is a regression
+
+	private static volatile long sink; // results go here, so the work can't be optimized away
+
+	/**
+	 * Something to measure
+	 */
+	private interface Operation {
+
+		/**
+		 * Does the operation some number of times
+		 * @return anything that depends on the work done
+		 */
+		long run(int times);
+	}
+
+	public static void main(String[] args) throws IOException {
+		String filter = "";
+		String save = null;
+		String compare = null;
+		for(int i = 0; i < args.length; i++){
+			if(args[i].equals("-save")){
+				save = args[++i];
+			} else if(args[i].equals("-compare")){
+				compare = args[++i];
+			} else{
+				filter = args[i];
+			}
+		}
+		Map<String, double[]> baseline = compare == null ? null : HotPathBenchmark.load(compare);
+		PrintWriter results = save == null ? null : new PrintWriter(Files.newBufferedWriter(Paths.get(save), StandardCharsets.UTF_8));
+		boolean regressed = false;
+		System.out.println(String.format("%-36s %14s %8s %10s  %s", "case", "ops/s", "+-", "bytes/op", compare == null ? "" : "vs saved"));
+		for(Map.Entry<String, Operation> entry : HotPathBenchmark.cases().entrySet()){
+			if(!entry.getKey().contains(filter)){
+				continue;
+			}
+			double[] measured = HotPathBenchmark.measure(entry.getValue());
+			String versus = "";
+			if(baseline != null && baseline.containsKey(entry.getKey())){
+				double[] saved = baseline.get(entry.getKey());
+				boolean slower = measured[0] < saved[0] * SLOWER;
+				boolean allocates = measured[2] > saved[1] + 0.5;
+				regressed |= slower || allocates;
+				versus = String.format("%+.1f%%%s%s", 100 * (measured[0] / saved[0] - 1), slower ? " SLOWER" : "", allocates ? " ALLOCATES MORE" : "");
+			}
+			System.out.println(String.format("%-36s %14.0f %7.1f%% %10.1f  %s", entry.getKey(), measured[0], measured[1], measured[2], versus));
+			if(results != null){
+				results.println(entry.getKey() + "\t" + measured[0] + "\t" + measured[2]);
+			}
+		}
+		if(results != null){
+			results.close();
+		}
+		System.exit(regressed ? 1 : 0);
+	}
+
+	/**
+	 * @return operations a second, their spread over the rounds (% of the mean), and bytes allocated per operation
+	 */
+	private static double[] measure(Operation operation) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+
+		// BATCH SIZE
+		int batch = 1;
+		while(true){
+			long start = System.nanoTime();
+			sink += operation.run(batch);
+			if(System.nanoTime() - start >= BATCH_NANOS || batch >= 1 << 28){
+				break;
+			}
+			batch *= 2;
+		}
+
+		// WARM UP
+		long warmUntil = System.nanoTime() + ROUND_NANOS;
+		while(System.nanoTime() < warmUntil){
+			sink += operation.run(batch);
+		}
+
+		// ROUNDS
+		double[] rates = new double[ROUNDS];
+		long operations = 0;
+		long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+		for(int r = 0; r < ROUNDS; r++){
+			long start = System.nanoTime();
+			long done = 0;
+			long elapsed;
+			do {
+				sink += operation.run(batch);
+				done += batch;
+				elapsed = System.nanoTime() - start;
+			} while(elapsed < ROUND_NANOS);
+			rates[r] = done * 1e9 / elapsed;
+			operations += done;
+		}
+		long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+		double mean = 0;
+		for(double rate : rates){
+			mean += rate / ROUNDS;
+		}
+		double spread = 0;
+		for(double rate : rates){
+			spread = Math.max(spread, Math.abs(rate - mean) / mean * 100);
+		}
+		return new double[] { mean, spread, allocated / (double)operations };
+	}
+
+	/**
+	 * Every case, in the order they are printed
+	 */
+	private static Map<String, Operation> cases() {
+		Map<String, Operation> cases = new LinkedHashMap<String, Operation>();
+		final Random random = new Random(42);
+
+		// BIRD PHYSICS
+		final Bird bird = new Bird(GameSimulation.BIRD_SIZE, GameSimulation.BIRD_SIZE, 0, 400);
+		cases.put("Bird.changePosition", new Operation() {
+			public long run(int times) {
+				for(int i = 0; i < times; i++){
+					if((i & 63) == 0){ // keep it flying about instead of resting against a wall
+						bird.changeVelocity((i & 64) == 0 ? 1 : -1);
+					}
+					bird.changePosition();
+				}
+				return (long)bird.getXPosition();
+			}
+		});
+		cases.put("Bird.fall", new Operation() {
+			public long run(int times) {
+				for(int i = 0; i < times; i++){
+					if((i & 63) == 0){
+						bird.setYPosition(300);
+					}
+					bird.fall();
+				}
+				return (long)bird.getYVelocity();
+			}
+		});
+		cases.put("Bird.changeVelocity", new Operation() {
+			public long run(int times) {
+				long sum = 0;
+				for(int i = 0; i < times; i++){
+					bird.changeVelocity((i & 1) == 0 ? 1 : -1);
+					sum += (long)bird.getXVelocity();
+				}
+				return sum;
+			}
+		});
+
+		// COLLISION CHECKS, over pairs of boxes that sometimes touch
+		final Hitbox[] boxes = new Hitbox[256];
+		for(int i = 0; i < boxes.length; i++){
+			boxes[i] = new Hitbox().set(random.nextInt(300), random.nextInt(300), 40 + random.nextInt(60), 20 + random.nextInt(60));
+		}
+		final CollisionBox collisionBox = new CollisionBox();
+		cases.put("CollisionBox.checkBirdCollision", new Operation() {
+			public long run(int times) {
+				long sum = 0;
+				for(int i = 0; i < times; i++){
+					sum += collisionBox.checkBirdCollision(boxes[i & 255], boxes[(i * 7 + 1) & 255]).ordinal();
+				}
+				return sum;
+			}
+		});
+		cases.put("CollisionBox.checkForBoxCollision", new Operation() {
+			public long run(int times) {
+				long sum = 0;
+				for(int i = 0; i < times; i++){
+					sum += collisionBox.checkForBoxCollision(boxes[i & 255], boxes[(i * 7 + 1) & 255]) ? 1 : 0;
+				}
+				return sum;
+			}
+		});
+
+		// PIXEL COLLISIONS, between frames of the two birds whose pictures always overlap, so every pair is tested
+		final SpriteMask[] redMasks = SpriteCache.getBirdMasks("birdr");
+		final SpriteMask[] greenMasks = SpriteCache.getBirdMasks("birdg");
+		final int[] offsets = new int[512];
+		for(int i = 0; i < offsets.length; i++){
+			offsets[i] = random.nextInt(2 * GameSimulation.BIRD_SIZE - 1) - GameSimulation.BIRD_SIZE + 1;
+		}
+		cases.put("SpriteMask.overlaps", new Operation() {
+			public long run(int times) {
+				long sum = 0;
+				for(int i = 0; i < times; i++){
+					int pair = i & 255;
+					sum += SpriteMask.overlaps(redMasks[i % 6], 0, 0, greenMasks[(i >> 3) % 6], offsets[pair * 2], offsets[pair * 2 + 1]) ? 1 : 0;
+				}
+				return sum;
+			}
+		});
+
+		// PERFORMANCE PROBES, as recorded twice a tick and five times a frame
+		final Histogram histogram = new Histogram();
+		cases.put("Histogram.record", new Operation() {
+			public long run(int times) {
+				for(int i = 0; i < times; i++){
+					histogram.record(i & 0xFFFFF);
+				}
+				return histogram.getMax();
+			}
+		});
+
+		// WHOLE TICKS, from states of a scripted match
+		final long[] states = HotPathBenchmark.states(256);
+		final GameSimulation game = new GameSimulation();
+		cases.put("GameSimulation.checkBoxCollisions", new Operation() {
+			public long run(int times) {
+				for(int i = 0; i < times; i++){
+					if((i & 15) == 0){
+						game.readState(states, ((i >> 4) & 255) * GameSimulation.STATE_SIZE);
+					}
+					game.checkBoxCollisions();
+				}
+				return (long)game.getRedBird().getYPosition();
+			}
+		});
+		cases.put("GameSimulation.step", new Operation() {
+			public long run(int times) {
+				for(int i = 0; i < times; i++){
+					if((i & 15) == 0){
+						game.readState(states, ((i >> 4) & 255) * GameSimulation.STATE_SIZE);
+					}
+					game.step((i & 7) == 0 ? GameSimulation.INPUT_RED_LEFT | GameSimulation.INPUT_GREEN_RIGHT : 0);
+				}
+				return game.checksum();
+			}
+		});
+
+		final GameSimulation halfRate = new GameSimulation();
+		halfRate.setTickRate(GameSimulation.TICK_RATE / 2);
+		cases.put("GameSimulation.step, 2 ticks a step (swept)", new Operation() {
+			public long run(int times) {
+				for(int i = 0; i < times; i++){
+					if((i & 15) == 0){
+						halfRate.readState(states, ((i >> 4) & 255) * GameSimulation.STATE_SIZE);
+					}
+					halfRate.step((i & 7) == 0 ? GameSimulation.INPUT_RED_LEFT | GameSimulation.INPUT_GREEN_RIGHT : 0);
+				}
+				return halfRate.checksum();
+			}
+		});
+
+		// WHOLE FRAMES, drawn offscreen the way JoustScreen draws them
+		final GameSimulation shown = new GameSimulation(new Bird("birdr", 0, 100), new Bird("birdg", 0, 700));
+		final ImageRenderer renderer = new ImageRenderer(800, 600);
+		final GameView view = new GameView(new BackgroundLayer(800, 600, SpriteCache.getImage("landscape"), SpriteCache.getImage("lava")), new Hud());
+		for(final boolean backgroundOn : new boolean[] { false, true }){
+			cases.put("GameView.draw, background " + (backgroundOn ? "on" : "off"), new Operation() {
+				public long run(int times) {
+					for(int i = 0; i < times; i++){
+						shown.readState(states, (i & 255) * GameSimulation.STATE_SIZE);
+						do {
+							view.draw(renderer.beginFrame(), shown, backgroundOn, 0.5);
+						} while(!renderer.endFrame());
+					}
+					return renderer.getContent().getRGB(400, 300);
+				}
+			});
+		}
+		return cases;
+	}
+
+	/**
+	 * The states of a match (lava and moving platforms on, keys pressed now and then), spread over its length
+	 */
+	private static long[] states(int count) {
+		GameSimulation game = new GameSimulation();
+		game.setLavaOn(true);
+		game.setMovingPlatformsOn(true);
+		Random random = new Random(7);
+		long[] states = new long[count * GameSimulation.STATE_SIZE];
+		game.step(GameSimulation.INPUT_PAUSE);
+		for(int s = 0; s < count; s++){
+			for(int t = 0; t < 20 && !game.isGameOver(); t++){
+				game.step(random.nextInt(16) & random.nextInt(16));
+			}
+			game.writeState(states, s * GameSimulation.STATE_SIZE);
+		}
+		return states;
+	}
+
+	/**
+	 * Reads saved results: case, operations a second and bytes per operation, tab separated
+	 */
+	private static Map<String, double[]> load(String file) throws IOException {
+		Map<String, double[]> saved = new HashMap<String, double[]>();
+		for(String line : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8)){
+			String[] parts = line.split("\t");
+			if(parts.length == 3){
+				saved.put(parts[0], new double[] { Double.parseDouble(parts[1]), Double.parseDouble(parts[2]) });
+			}
+		}
+		return saved;
+	}
+}
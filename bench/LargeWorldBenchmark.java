@@ -0,0 +1,175 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.imageio.ImageIO;
+
+/**
+ * How long a swarm mode frame takes, and how much memory the background needs, as the world grows
+ *
+ * For each world size, a swarm flies around a world of that size with a platform every few hundred
+ * pixels, and the camera follows one of the birds (not one steered by the keys, so it goes places).
+ * Each tick, one frame is drawn the way JoustScreen draws it (see Camera and TiledBackground) into an
+ * image the size of the screen. Ticks are 50 a second, as in the game, so the tiles are read in the time
+ * in between as they would be (flat out, on one processor, the tiles would never get read). The report shows
+ *  >> p50 and p99 of drawing the sky and background, then of drawing the birds and platforms on screen,
+ *     and of drawing every bird and platform without culling, for comparison
+ *  >> how many birds were on screen on average
+ *  >> how many strips of background tiles were read, and how much memory the kept tiles take
+ *  >> the heap after a collection, once the world is done, and the most it held while the world was
+ *     played (the peaks of its pools added up, so garbage not yet collected counts too)
+ * The background picture is repeated across worlds bigger than it, so try a big one as well as the landscape.
+ * Last, the biggest world is played again behind a made up picture WIDE_WIDTH by WIDE_HEIGHT, far wider than
+ * the screen, to show that the tiles stay within their memory however wide a picture is.
+ *
+ * Run from the project directory with
+ *   javac -d out src/*.java bench/*.java
+ *   java -Djava.awt.headless=true -cp out LargeWorldBenchmark [birds] [frames] [background] [tile cache MB]
+ */
+public class LargeWorldBenchmark {
+
+	private static final int[][] WORLDS = { { 800, 600 }, { 4000, 3000 }, { 16000, 12000 }, { 64000, 48000 } };
+	private static final int FOLLOWED = 2;
+	private static final int WIDE_WIDTH = 30000;
+	private static final int WIDE_HEIGHT = 512;
+
+	public static void main(String[] args) throws IOException {
+		int birds = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		int frames = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		File picture = new File(args.length > 2 ? args[2] : "landscape.png");
+		long maxBytes = (args.length > 3 ? Long.parseLong(args[3]) : 32) * 1024 * 1024;
+		System.out.println(birds + " birds, " + frames + " frames, " + picture + " behind, tiles up to " + (maxBytes >> 20) + " MB");
+		System.out.println(String.format("%12s %19s %19s %19s %9s %7s %9s %8s %8s", "world", "background p50/p99", "culled p50/p99",
+				"no cull p50/p99", "on screen", "strips", "tiles MB", "heap MB", "peak MB"));
+		for(int[] size : WORLDS){
+			LargeWorldBenchmark.play(size[0], size[1], picture, birds, frames, maxBytes);
+		}
+
+		// A PICTURE FAR WIDER THAN THE SCREEN
+		File wide = File.createTempFile("jousty", ".png");
+		try {
+			LargeWorldBenchmark.writeWidePicture(wide);
+			System.out.println(WIDE_WIDTH + "x" + WIDE_HEIGHT + " picture behind");
+			int[] biggest = WORLDS[WORLDS.length - 1];
+			LargeWorldBenchmark.play(biggest[0], biggest[1], wide, birds, frames, maxBytes);
+		} finally {
+			wide.delete();
+		}
+	}
+
+	/**
+	 * Plays one world and prints its line of the report
+	 */
+	private static void play(int worldWidth, int worldHeight, File picture, int birds, int frames, long maxBytes) throws IOException {
+		SpriteFrame[] red = SpriteCache.getBirdFrames("birdr");
+		SpriteFrame[] green = SpriteCache.getBirdFrames("birdg");
+		BufferedImage screen = SpriteCache.createCompatibleImage(800, 600, java.awt.Transparency.OPAQUE);
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		System.gc();
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()){
+			pool.resetPeakUsage();
+		}
+		Arena arena = LargeWorldBenchmark.arena(worldWidth, worldHeight, picture);
+		BirdWorld world = new BirdWorld(arena, birds, GameSimulation.BIRD_SIZE, GameSimulation.BIRD_SIZE, 42, 1);
+		Camera camera = new Camera(worldWidth, worldHeight, 800, 600);
+		camera.lookAt(world.getXPosition(FOLLOWED), world.getYPosition(FOLLOWED));
+		TiledBackground background = new TiledBackground(picture, BackgroundLayer.SKY, maxBytes, 800, 600);
+		Histogram behind = new Histogram();
+		Histogram culled = new Histogram();
+		Histogram everything = new Histogram();
+		long onScreen = 0;
+		Graphics2D g = screen.createGraphics();
+		long next = System.nanoTime();
+		for(int f = 0; f < frames; f++){
+			next += 1000000000L / GameLoop.DEFAULT_TICK_RATE;
+			LockSupport.parkNanos(next - System.nanoTime());
+			world.step(0);
+			camera.follow(world.getXPosition(FOLLOWED), world.getYPosition(FOLLOWED));
+			camera.view(.5);
+			int left = camera.getLeft(), top = camera.getTop();
+
+			// AS JOUSTSCREEN DRAWS IT
+			long start = System.nanoTime();
+			g.setColor(BackgroundLayer.SKY);
+			g.fillRect(0, 0, 800, 600);
+			background.draw(g, left, top, 800, 600);
+			long drawn = System.nanoTime();
+			behind.record(drawn - start);
+			start = drawn;
+			world.draw(g, red, green, .5, left, top, 800, 600);
+			culled.record(System.nanoTime() - start);
+			onScreen += world.getDrawnCount();
+
+			// EVERYTHING, left for the screen to clip
+			start = System.nanoTime();
+			g.translate(-left, -top);
+			world.draw(g, red, green, .5);
+			g.translate(left, top);
+			everything.record(System.nanoTime() - start);
+		}
+		g.dispose();
+		background.close();
+		world.shutdown();
+		long tileBytes = background.getBytes();
+		int strips = background.getStripsRead();
+		long peak = 0;
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()){
+			if(pool.getType() == MemoryType.HEAP){
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		System.gc();
+		long heap = memory.getHeapMemoryUsage().getUsed();
+		System.out.println(String.format("%12s %19s %19s %19s %9d %7d %9.1f %8.1f %8.1f", worldWidth + "x" + worldHeight,
+				LargeWorldBenchmark.micros(behind), LargeWorldBenchmark.micros(culled), LargeWorldBenchmark.micros(everything),
+				onScreen / frames, strips, tileBytes / 1048576.0, heap / 1048576.0, peak / 1048576.0));
+	}
+
+	/**
+	 * Writes a PNG of WIDE_WIDTH by WIDE_HEIGHT: stripes of colour, so every tile looks different
+	 */
+	private static void writeWidePicture(File file) throws IOException {
+		BufferedImage picture = new BufferedImage(WIDE_WIDTH, WIDE_HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D g = picture.createGraphics();
+		for(int x = 0; x < WIDE_WIDTH; x += 40){
+			g.setColor(Color.getHSBColor(x / 997f, .5f, .9f));
+			g.fillRect(x, 0, 40, WIDE_HEIGHT);
+		}
+		g.dispose();
+		ImageIO.write(picture, "png", file);
+	}
+
+	/**
+	 * @return p50 and p99 in microseconds
+	 */
+	private static String micros(Histogram times) {
+		return String.format("%.0f / %.0f", times.getPercentile(.5) / 1e3, times.getPercentile(.99) / 1e3);
+	}
+
+	/**
+	 * @return a world of the given size, with a platform every 400 by 300 pixels (up to the most an arena can have)
+	 */
+	private static Arena arena(int width, int height, File picture) throws IOException {
+		StringBuilder text = new StringBuilder();
+		text.append("start red 100 150\nstart green 700 150\nspawn 100 40\n");
+		text.append("world ").append(width).append(' ').append(height).append('\n');
+		text.append("background ").append(picture.getPath()).append('\n');
+		int platforms = 0;
+		for(int y = 250; y < height && platforms < Arena.MAX_PLATFORMS; y += 300){
+			for(int x = 100; x < width && platforms < Arena.MAX_PLATFORMS; x += 400){
+				text.append("platform ").append(x).append(' ').append(y).append(" 200 20 trim 30\n");
+				platforms++;
+			}
+		}
+		return Arena.read(new BufferedReader(new StringReader(text.toString())), width + "x" + height);
+	}
+}
@@ -0,0 +1,209 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays network matches between two NetSessions on this computer, through a relay that delays,
+ * reorders and drops packets, and checks that both sides end up with the same game
+ *
+ * Both sides press keys from a script (the same seed always presses the same keys), so the
+ * match they should have played can also be played on one GameSimulation with no network at all.
+ * After the last tick both sides keep exchanging packets until every guess has been settled and each
+ * has acknowledged all of the other's keys, as JoustScreen does at the end of a match, then both games
+ * and the one played without a network must have the same checksum.
+ * Ticks are one millisecond apart, so a latency of 40 ms is 40 ticks.
+ *
+ * Run from the project directory with
+ *   javac -d out src/*.java bench/*.java
+ *   java -cp out NetplayHarness [ticks]
+ */
+public class NetplayHarness {
+
+	/**
+	 * One way latency (ms), jitter (ms) and packet loss (%) for each match
+	 */
+	private static final int[][] CONDITIONS = {
+		{ 0, 0, 0 },
+		{ 5, 2, 1 },
+		{ 20, 10, 5 },
+		{ 40, 20, 10 },
+		{ 60, 30, 25 },
+	};
+	private static final int BASE_PORT = 47000;
+
+	public static void main(String[] args) throws Exception {
+		int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+		System.out.println(String.format("%8s %8s %6s %10s %10s %10s %8s %10s %8s",
+				"latency", "jitter", "loss", "rollbacks", "replayed", "deepest", "stalls", "packets", "result"));
+		boolean allSame = true;
+		int port = BASE_PORT;
+		for(int[] condition : CONDITIONS){
+			allSame &= NetplayHarness.play(ticks, condition[0], condition[1], condition[2], port);
+			port += 4;
+		}
+		System.exit(allSame ? 0 : 1);
+	}
+
+	private static boolean play(int ticks, int latency, int jitter, int loss, int port) throws IOException {
+		InetSocketAddress redAddress = new InetSocketAddress("127.0.0.1", port);
+		InetSocketAddress greenAddress = new InetSocketAddress("127.0.0.1", port + 1);
+		InetSocketAddress relayForRed = new InetSocketAddress("127.0.0.1", port + 2);   // red sends here
+		InetSocketAddress relayForGreen = new InetSocketAddress("127.0.0.1", port + 3); // green sends here
+		Relay relay = new Relay(relayForRed, redAddress, relayForGreen, greenAddress, latency, jitter, loss, port);
+		Thread relayThread = new Thread(relay, "relay");
+		relayThread.start();
+		NetSession red = new NetSession(new GameSimulation(), GameLoop.DEFAULT_TICK_RATE, NetSession.RED, redAddress, relayForRed);
+		NetSession green = new NetSession(new GameSimulation(), GameLoop.DEFAULT_TICK_RATE, NetSession.GREEN, greenAddress, relayForGreen);
+		int[] redKeys = NetplayHarness.script(ticks, 1, GameSimulation.INPUT_RED_LEFT, GameSimulation.INPUT_RED_RIGHT);
+		int[] greenKeys = NetplayHarness.script(ticks, 2, GameSimulation.INPUT_GREEN_LEFT, GameSimulation.INPUT_GREEN_RIGHT);
+
+		// PLAY, one tick a millisecond on each side
+		long next = System.nanoTime();
+		while(red.getTick() < ticks || green.getTick() < ticks || !red.isSettled() || !green.isSettled()
+				|| !red.isAcknowledged() || !green.isAcknowledged()){
+			NetplayHarness.tick(red, redKeys, ticks);
+			NetplayHarness.tick(green, greenKeys, ticks);
+			next += 1000000;
+			LockSupport.parkNanos(next - System.nanoTime());
+		}
+		relay.stop();
+		red.close();
+		green.close();
+
+		// THE SAME MATCH, WITHOUT A NETWORK
+		GameSimulation offline = new GameSimulation();
+		for(int t = 0; t < ticks; t++){
+			offline.setLavaOn(t >= ticks / 3);
+			offline.setMovingPlatformsOn(t >= ticks / 2);
+			offline.step(redKeys[t] | greenKeys[t]);
+		}
+		boolean same = red.getGame().checksum() == offline.checksum() && green.getGame().checksum() == offline.checksum();
+		System.out.println(String.format("%6d ms %5d ms %5d%% %10d %10d %10d %8d %10d %8s",
+				latency, jitter, loss, red.getRollbacks() + green.getRollbacks(), red.getReplayedTicks() + green.getReplayedTicks(),
+				Math.max(red.getDeepestRollback(), green.getDeepestRollback()), red.getStalls() + green.getStalls(),
+				red.getPacketsSent() + green.getPacketsSent(), same ? "same" : "DIFFERENT"));
+		return same;
+	}
+
+	private static void tick(NetSession session, int[] keys, int ticks) throws IOException {
+		if(!session.poll()){
+			return;
+		}
+		int t = session.getTick();
+		if(t < ticks){
+			session.tick(keys[t], t >= ticks / 3, t >= ticks / 2);
+		} else{
+			session.resend();
+		}
+	}
+
+	/**
+	 * Enter on the first tick to start, then a key now and then
+	 */
+	private static int[] script(int ticks, long seed, int left, int right) {
+		Random random = new Random(seed);
+		int[] keys = new int[ticks];
+		keys[0] = seed == 1 ? GameSimulation.INPUT_PAUSE : 0;
+		for(int t = 1; t < ticks; t++){
+			int roll = random.nextInt(10);
+			keys[t] = roll == 0 ? left : roll == 1 ? right : 0;
+		}
+		return keys;
+	}
+
+	/**
+	 * Passes packets between the two sides, late, out of order or not at all
+	 */
+	private static class Relay implements Runnable {
+
+		private final DatagramChannel fromRed;
+		private final DatagramChannel fromGreen;
+		private final InetSocketAddress red;
+		private final InetSocketAddress green;
+		private final int latency;
+		private final int jitter;
+		private final int loss;
+		private final Random random;
+		private final PriorityQueue<Packet> queue = new PriorityQueue<Packet>();
+		private volatile boolean running = true;
+
+		Relay(InetSocketAddress forRed, InetSocketAddress red, InetSocketAddress forGreen, InetSocketAddress green,
+				int latency, int jitter, int loss, long seed) throws IOException {
+			this.fromRed = DatagramChannel.open().bind(forRed);
+			this.fromGreen = DatagramChannel.open().bind(forGreen);
+			this.fromRed.configureBlocking(false);
+			this.fromGreen.configureBlocking(false);
+			this.red = red;
+			this.green = green;
+			this.latency = latency;
+			this.jitter = jitter;
+			this.loss = loss;
+			this.random = new Random(seed);
+		}
+
+		public void run() {
+			ByteBuffer buffer = ByteBuffer.allocate(1500);
+			try{
+				while(this.running){
+					this.take(this.fromRed, this.fromGreen, this.green, buffer); // red's packets go to green
+					this.take(this.fromGreen, this.fromRed, this.red, buffer);
+					long now = System.nanoTime();
+					while(!this.queue.isEmpty() && this.queue.peek().due <= now){
+						Packet packet = this.queue.poll();
+						packet.through.send(ByteBuffer.wrap(packet.data), packet.to);
+					}
+					LockSupport.parkNanos(100000);
+				}
+				this.fromRed.close();
+				this.fromGreen.close();
+			} catch(IOException e){
+				throw new RuntimeException(e);
+			}
+		}
+
+		private void take(DatagramChannel from, DatagramChannel through, InetSocketAddress to, ByteBuffer buffer) throws IOException {
+			while(true){
+				buffer.clear();
+				SocketAddress sender = from.receive(buffer);
+				if(sender == null){
+					return;
+				}
+				if(this.random.nextInt(100) < this.loss){
+					continue;
+				}
+				buffer.flip();
+				byte[] data = new byte[buffer.remaining()];
+				buffer.get(data);
+				long delay = (this.latency + (this.jitter > 0 ? this.random.nextInt(this.jitter + 1) : 0)) * 1000000L;
+				this.queue.add(new Packet(System.nanoTime() + delay, data, through, to));
+			}
+		}
+
+		void stop() {
+			this.running = false;
+		}
+	}
+
+	private static class Packet implements Comparable<Packet> {
+		final long due;
+		final byte[] data;
+		final DatagramChannel through;
+		final InetSocketAddress to;
+
+		Packet(long due, byte[] data, DatagramChannel through, InetSocketAddress to) {
+			this.due = due;
+			this.data = data;
+			this.through = through;
+			this.to = to;
+		}
+
+		public int compareTo(Packet other) {
+			return Long.compare(this.due, other.due);
+		}
+	}
+}
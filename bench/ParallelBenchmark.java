@@ -0,0 +1,96 @@
+/**
+ * How a swarm mode tick scales with the number of threads, and proof that it plays out the same
+ *
+ * For each swarm size, a one thread BirdWorld and one for every thread count are ticked side by side
+ * from the same seed. After every tick every bird must be in the same place, with the same velocity,
+ * facing and score, or the program reports the difference and exits with status 1. Then each thread
+ * count is timed on its own and compared with one thread.
+ *
+ * Run from the project directory with
+ *   javac -d out src/*.java bench/*.java
+ *   java -cp out ParallelBenchmark [ticks] [most threads]
+ */
+public class ParallelBenchmark {
+
+	private static final int[] SIZES = { 100, 500, 1000, 2000 };
+
+	public static void main(String[] args) {
+		int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		int mostThreads = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(4, Runtime.getRuntime().availableProcessors());
+		System.out.println(Runtime.getRuntime().availableProcessors() + " processors");
+
+		// SAME RESULTS
+		for(int size : SIZES){
+			for(int threads = 2; threads <= mostThreads; threads *= 2){
+				String difference = ParallelBenchmark.compare(size, threads, ticks);
+				if(difference != null){
+					System.out.println("FAILED: " + size + " birds on " + threads + " threads: " + difference);
+					System.exit(1);
+				}
+			}
+		}
+		System.out.println("every thread count matches one thread bit for bit");
+
+		// SPEED
+		System.out.println(String.format("%6s %8s %12s %10s", "birds", "threads", "us/tick", "speedup"));
+		for(int size : SIZES){
+			double single = 0;
+			for(int threads = 1; threads <= mostThreads; threads *= 2){
+				double micros = ParallelBenchmark.time(size, threads, ticks);
+				if(threads == 1){
+					single = micros;
+				}
+				System.out.println(String.format("%6d %8d %12.2f %9.2fx", size, threads, micros, single / micros));
+			}
+		}
+	}
+
+	/**
+	 * @return what first differed from the one thread run, or null if nothing did
+	 */
+	private static String compare(int size, int threads, int ticks) {
+		BirdWorld single = new BirdWorld(size, GameSimulation.BIRD_SIZE, GameSimulation.BIRD_SIZE, size);
+		BirdWorld parallel = new BirdWorld(size, GameSimulation.BIRD_SIZE, GameSimulation.BIRD_SIZE, size, threads);
+		try{
+			for(int t = 0; t < ticks; t++){
+				int inputs = t % 5 == 0 ? GameSimulation.INPUT_RED_RIGHT | GameSimulation.INPUT_GREEN_LEFT : 0;
+				single.step(inputs);
+				parallel.step(inputs);
+				if(single.getCollisionCount() != parallel.getCollisionCount()){
+					return "tick " + t + ": " + parallel.getCollisionCount() + " collisions instead of " + single.getCollisionCount();
+				}
+				for(int i = 0; i < size; i++){
+					if(Double.doubleToLongBits(single.getXPosition(i)) != Double.doubleToLongBits(parallel.getXPosition(i))
+							|| Double.doubleToLongBits(single.getYPosition(i)) != Double.doubleToLongBits(parallel.getYPosition(i))
+							|| Double.doubleToLongBits(single.getXVelocity(i)) != Double.doubleToLongBits(parallel.getXVelocity(i))
+							|| Double.doubleToLongBits(single.getYVelocity(i)) != Double.doubleToLongBits(parallel.getYVelocity(i))
+							|| single.getFacing(i) != parallel.getFacing(i) || single.getScore(i) != parallel.getScore(i)){
+						return "tick " + t + ": bird " + i + " differs";
+					}
+				}
+			}
+			return null;
+		} finally{
+			parallel.shutdown();
+		}
+	}
+
+	/**
+	 * @return microseconds per tick, after warming up
+	 */
+	private static double time(int size, int threads, int ticks) {
+		BirdWorld world = new BirdWorld(size, GameSimulation.BIRD_SIZE, GameSimulation.BIRD_SIZE, 42, threads);
+		try{
+			for(int i = 0; i < ticks; i++){ // warm up
+				world.step(0);
+			}
+			long start = System.nanoTime();
+			for(int i = 0; i < ticks; i++){
+				world.step(0);
+			}
+			return (System.nanoTime() - start) / 1000.0 / ticks;
+		} finally{
+			world.shutdown();
+		}
+	}
+}
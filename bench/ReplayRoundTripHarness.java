@@ -0,0 +1,93 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Records matches the way JoustScreen does, plays them back the way ReplayPlayer does, and checks
+ * that every checksum in each recording matches
+ *
+ * Each match is a scripted one (the same seed always presses the same keys, with lava and moving
+ * platforms on), played to the end or MAX_TICKS. Matches are recorded
+ *  >> at 50, 25, 30 and 20 ticks a second (two ticks a step at 25, and 1.67 and 2.5 at the others, see
+ *     GameSimulation.setTickRate)
+ *  >> with no rules, pixel collisions and swept collisions (see Replay.rules)
+ *  >> in the original arena and in any arena files given
+ * and each one is played back with ReplayPlayer.open, which has to find the arena, tick rate and rules
+ * from the recording alone. For comparison, it is also played on a plain GameSimulation (one tick a step,
+ * no rules), which shows how soon a player that ignored the header would go wrong.
+ * The exit status is 1 if any playback differed from its recording.
+ *
+ * Run from the project directory with
+ *   javac -d out src/*.java bench/*.java
+ *   java -Djava.awt.headless=true -cp out ReplayRoundTripHarness [arena file...]
+ */
+public class ReplayRoundTripHarness {
+
+	private static final int[] TICK_RATES = { GameLoop.DEFAULT_TICK_RATE, GameLoop.DEFAULT_TICK_RATE / 2, 30, 20 };
+	private static final int[] RULES = { 0, Replay.RULE_PIXEL_COLLISIONS, Replay.RULE_SWEPT_COLLISIONS };
+	private static final int MAX_TICKS = 30000;
+
+	public static void main(String[] args) throws IOException {
+		Arena[] arenas = new Arena[1 + args.length];
+		arenas[0] = Arena.classic();
+		for(int a = 0; a < args.length; a++){
+			arenas[a + 1] = Arena.load(Paths.get(args[a]));
+		}
+		Path file = Files.createTempFile("jousty", ".jbr");
+		System.out.println(String.format("%-16s %6s %-44s %7s %10s %10s %12s", "arena", "rate", "rules", "ticks", "checksums", "result", "plain game"));
+		boolean allSame = true;
+		try {
+			for(Arena arena : arenas){
+				for(int tickRate : TICK_RATES){
+					for(int rules : RULES){
+						allSame &= ReplayRoundTripHarness.roundTrip(file, arena, tickRate, rules);
+					}
+				}
+			}
+		} finally {
+			Files.delete(file);
+		}
+		System.exit(allSame ? 0 : 1);
+	}
+
+	/**
+	 * @return if the recording played back the same
+	 */
+	private static boolean roundTrip(Path file, Arena arena, int tickRate, int rules) throws IOException {
+
+		// RECORD, set up as JoustScreen sets up a game
+		GameSimulation game = new GameSimulation(arena);
+		if((rules & Replay.RULE_PIXEL_COLLISIONS) != 0){
+			game.setPixelMasks(SpriteCache.getBirdMasks("birdr"), SpriteCache.getBirdMasks("birdg"));
+		}
+		game.setTickRate(tickRate);
+		game.setSweptCollisions((rules & Replay.RULE_SWEPT_COLLISIONS) != 0);
+		ReplayRecorder recorder = new ReplayRecorder(file, tickRate, Replay.DEFAULT_CHECKSUM_INTERVAL, game);
+		game.setLavaOn(true);
+		game.setMovingPlatformsOn(true);
+		Random random = new Random(tickRate * 31 + rules);
+		for(int t = 0; t < MAX_TICKS && !game.isGameOver(); t++){
+			int inputs = t == 0 ? GameSimulation.INPUT_PAUSE : random.nextInt(16) & random.nextInt(16);
+			game.step(inputs);
+			recorder.tick(inputs, game);
+		}
+		recorder.close();
+
+		// PLAY BACK, from the recording alone
+		ReplayPlayer player = ReplayPlayer.open(new ReplayReader(file), null);
+		while(player.step()){
+		}
+		boolean same = player.getDivergedAt() < 0 && player.getChecksumsMatched() > 0 && player.getGame().checksum() == game.checksum();
+
+		// AND ON A PLAIN GAME
+		ReplayPlayer plain = new ReplayPlayer(new ReplayReader(file), new GameSimulation(ReplayPlayer.findArena(new ReplayReader(file), arena)));
+		while(plain.step()){
+		}
+		System.out.println(String.format("%-16s %6d %-44s %7d %10d %10s %12s", arena.getName(), tickRate, Replay.describeRules(Replay.rules(game)),
+				recorder.getTicks(), player.getChecksumsMatched(), same ? "same" : "DIVERGED",
+				plain.getDivergedAt() < 0 ? "same" : "tick " + plain.getDivergedAt()));
+		return same;
+	}
+}
@@ -0,0 +1,175 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Checks that spectators see what the match host sees, and measures what the feed costs the host
+ *
+ *  >> ENCODING: a scripted match (lava and moving platforms on part of the time) is captured every
+ *     tick, written as a delta (or keyframe) and read back into another SpectatorState, which must
+ *     match the capture exactly on every tick
+ *  >> FAN OUT: the same match is published to a SpectatorFeed on this computer, one tick a millisecond,
+ *     with many spectators connected from the start and one more joining halfway; once the last tick
+ *     (a keyframe) has arrived, every spectator must have the host's last state
+ *
+ * Run from the project directory with
+ *   javac -d out src/*.java bench/*.java
+ *   java -cp out SpectatorFeedHarness [spectators] [ticks]
+ */
+public class SpectatorFeedHarness {
+
+	public static void main(String[] args) throws Exception {
+		int spectators = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 3000;
+		ticks = ticks / SpectatorFeed.KEYFRAME_INTERVAL * SpectatorFeed.KEYFRAME_INTERVAL + 1; // ends on a keyframe
+		int[] keys = SpectatorFeedHarness.script(ticks);
+		boolean same = SpectatorFeedHarness.encoding(keys);
+		same &= SpectatorFeedHarness.fanOut(keys, spectators);
+		System.exit(same ? 0 : 1);
+	}
+
+	private static boolean encoding(int[] keys) {
+		GameSimulation game = new GameSimulation();
+		SpectatorState host = new SpectatorState();
+		SpectatorState previous = new SpectatorState();
+		SpectatorState spectator = new SpectatorState();
+		ByteBuffer message = ByteBuffer.allocate(SpectatorState.MAX_MESSAGE_SIZE);
+		long bytes = 0;
+		int largest = 0;
+		for(int t = 0; t < keys.length; t++){
+			SpectatorFeedHarness.step(game, keys, t);
+			host.capture(game, t);
+			message.clear();
+			if(t % SpectatorFeed.KEYFRAME_INTERVAL == 0){
+				host.writeKeyframe(message);
+			} else{
+				host.writeDelta(message, previous);
+			}
+			message.flip();
+			bytes += message.remaining();
+			largest = Math.max(largest, message.remaining());
+			previous.copy(host);
+			if(spectator.readMessages(message) != 1 || !spectator.sameAs(host)){
+				System.out.println("encoding: DIFFERENT at tick " + t);
+				return false;
+			}
+		}
+		System.out.println(String.format("encoding: same for %d ticks, %.1f bytes a tick (largest %d), the whole state is %d",
+				keys.length, bytes / (double)keys.length, largest, GameServer.STATE_MESSAGE_SIZE));
+		return true;
+	}
+
+	private static boolean fanOut(int[] keys, int count) throws IOException {
+		SpectatorFeed feed = new SpectatorFeed(new InetSocketAddress("127.0.0.1", 0));
+		feed.start();
+		InetSocketAddress address = new InetSocketAddress("127.0.0.1", feed.getPort());
+		Selector selector = Selector.open();
+		List<Watcher> watchers = new ArrayList<Watcher>();
+		for(int i = 0; i < count; i++){
+			watchers.add(new Watcher(address, selector));
+		}
+		GameSimulation game = new GameSimulation();
+		SpectatorState host = new SpectatorState();
+		long publishNanos = 0;
+		long next = System.nanoTime();
+		for(int t = 0; t < keys.length; t++){
+			if(t == keys.length / 2){
+				watchers.add(new Watcher(address, selector)); // joins late
+			}
+			SpectatorFeedHarness.step(game, keys, t);
+			long start = System.nanoTime();
+			feed.publish(game);
+			publishNanos += System.nanoTime() - start;
+			Watcher.readAll(selector);
+			next += 1000000;
+			while(System.nanoTime() < next){
+				Watcher.readAll(selector);
+				LockSupport.parkNanos(100000);
+			}
+		}
+		host.capture(game, keys.length - 1);
+		long deadline = System.nanoTime() + 5000000000L;
+		while(!Watcher.allAt(watchers, keys.length - 1) && System.nanoTime() < deadline){
+			Watcher.readAll(selector);
+			LockSupport.parkNanos(1000000);
+		}
+		int same = 0;
+		for(Watcher watcher : watchers){
+			if(watcher.state.sameAs(host)){
+				same++;
+			}
+			watcher.channel.close();
+		}
+		System.out.println(String.format("fan out: %d of %d spectators (one late) have the host's last tick, %d messages skipped, "
+				+ "%.2f us to publish a tick, %.1f bytes a tick", same, watchers.size(), feed.getMessagesSkipped(),
+				publishNanos / 1000.0 / keys.length, feed.getBytesPublished() / (double)keys.length));
+		feed.stop();
+		selector.close();
+		return same == watchers.size();
+	}
+
+	private static void step(GameSimulation game, int[] keys, int t) {
+		game.setLavaOn(t >= keys.length / 3);
+		game.setMovingPlatformsOn(t >= keys.length / 4);
+		game.step(keys[t]);
+	}
+
+	/**
+	 * Enter on the first tick to start, then keys for both birds now and then
+	 */
+	private static int[] script(int ticks) {
+		Random random = new Random(7);
+		int[] keys = new int[ticks];
+		keys[0] = GameSimulation.INPUT_PAUSE;
+		for(int t = 1; t < ticks; t++){
+			keys[t] = random.nextInt(16) & random.nextInt(16); // each key about a quarter of the time
+		}
+		return keys;
+	}
+
+	/**
+	 * One spectator, reading without drawing
+	 */
+	private static class Watcher {
+
+		final SocketChannel channel;
+		final ByteBuffer in = ByteBuffer.allocate(8192);
+		final SpectatorState state = new SpectatorState();
+
+		Watcher(InetSocketAddress feed, Selector selector) throws IOException {
+			this.channel = SocketChannel.open(feed);
+			this.channel.configureBlocking(false);
+			this.channel.register(selector, SelectionKey.OP_READ, this);
+		}
+
+		static void readAll(Selector selector) throws IOException {
+			selector.selectNow();
+			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+			while(keys.hasNext()){
+				Watcher watcher = (Watcher)keys.next().attachment();
+				keys.remove();
+				watcher.channel.read(watcher.in);
+				watcher.in.flip();
+				watcher.state.readMessages(watcher.in);
+				watcher.in.compact();
+			}
+		}
+
+		static boolean allAt(List<Watcher> watchers, int tick) {
+			for(Watcher watcher : watchers){
+				if(!watcher.state.isKeyframed() || watcher.state.getTick() != tick){
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
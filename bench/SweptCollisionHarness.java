@@ -0,0 +1,266 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Throws birds at platforms and at each other far faster than they ever fly, and checks that swept
+ * collisions (see GameSimulation.setSweptCollisions) never let one go through
+ *
+ *  >> PLATFORMS: a bird starts outside every platform with a random velocity of up to SPEED pixels a tick
+ *     and moves once. Its path is checked in small steps against every platform; if it got into one
+ *     anywhere along the way, it has to end up standing on a platform or bounced off one, not past it.
+ *  >> BIRDS: two birds in an arena with no platforms start apart and fly at each other; if their
+ *     bodies overlapped by more than GRAZE pixels anywhere along the way, they have to have collided.
+ *     The game only knows where birds are to the pixel at the ends of a tick, so a graze of a pixel or
+ *     two in between may or may not count, and isn't going through.
+ * Each part is played without sweeping too, to show how often the birds would have gone through.
+ *  >> TICK RATES: scripted matches (lava and moving platforms on) are stepped for SECONDS seconds' worth
+ *     at each of TICK_RATES (see GameSimulation.setTickRate). The game time has to move on 50 ticks a
+ *     second at all of them, and no bird may go right through a platform from one step to the next.
+ * The exit status is 1 if anything went through with sweeping on, or a tick rate played at the wrong speed.
+ *
+ * Run from the project directory with
+ *   javac -d out src/*.java bench/*.java
+ *   java -cp out SweptCollisionHarness [trials] [arena file]
+ */
+public class SweptCollisionHarness {
+
+	private static final double SPEED = 600;    // pixels a tick, about 25 times as fast as a bird falls
+	private static final int SAMPLES = 2000;    // points along each path checked by hand
+	private static final int GRAZE = 2;         // pixels birds can overlap in between ticks without colliding
+	private static final int[] TICK_RATES = { GameSimulation.TICK_RATE, GameSimulation.TICK_RATE / 2, 30, 20 };
+	private static final int SECONDS = 600;
+
+	public static void main(String[] args) throws IOException {
+		int trials = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		Arena arena = args.length > 1 ? Arena.load(Paths.get(args[1])) : Arena.classic();
+		System.out.println(String.format("%-10s %8s %10s %12s %10s", "", "swept", "trials", "got into", "went through"));
+		int missed = 0;
+		for(boolean swept : new boolean[] { false, true }){
+			int[] platforms = SweptCollisionHarness.platforms(arena, trials, swept);
+			System.out.println(String.format("%-10s %8s %10d %12d %10d", "platforms", swept ? "on" : "off", trials, platforms[0], platforms[1]));
+			int[] birds = SweptCollisionHarness.birds(trials, swept);
+			System.out.println(String.format("%-10s %8s %10d %12d %10d", "birds", swept ? "on" : "off", trials, birds[0], birds[1]));
+			if(swept){
+				missed = platforms[1] + birds[1];
+			}
+		}
+		System.out.println();
+		System.out.println(String.format("%-10s %8s %10s %10s %12s %10s", "tick rate", "steps", "game ticks", "expected", "ticks a sec", "went through"));
+		for(int tickRate : TICK_RATES){
+			int[] rates = SweptCollisionHarness.rates(arena, tickRate);
+			System.out.println(String.format("%-10s %8d %10d %10d %12.2f %10d", tickRate + " Hz", SECONDS * tickRate, rates[0], rates[1],
+					rates[0] / (double)SECONDS, rates[2]));
+			missed += rates[2] + (rates[0] == rates[1] ? 0 : 1);
+		}
+		System.exit(missed == 0 ? 0 : 1);
+	}
+
+	/**
+	 * @return how many birds got into a platform on their way, and how many of them went through it
+	 */
+	private static int[] platforms(Arena arena, int trials, boolean swept) {
+		GameSimulation game = new GameSimulation(arena);
+		game.setSweptCollisions(swept);
+		Bird bird = game.getRedBird();
+		Hitbox box = new Hitbox();
+		CollisionBox check = new CollisionBox();
+		Random random = new Random(1);
+		int gotInto = 0;
+		int wentThrough = 0;
+		for(int t = 0; t < trials; t++){
+			int w = bird.getWidth();
+			int h = bird.getHeight();
+			double x0, y0;
+			do {
+				x0 = w / 4 + random.nextDouble() * (800 - w / 2);
+				y0 = w / 4 + random.nextDouble() * (599 - w / 2);
+			} while(SweptCollisionHarness.platformAt(game, check, box.set((int)x0 - w/2, (int)y0 - h/2, w, h), arena.getDepth()) >= 0);
+			double angle = random.nextDouble() * 2 * Math.PI;
+			double speed = random.nextDouble() * SPEED;
+			double x1 = Math.max(w / 4, Math.min(800 - w / 4, x0 + Math.cos(angle) * speed)); // where changePosition would leave it
+			double y1 = Math.max(w / 4, y0 + Math.sin(angle) * speed);
+
+			// BY HAND, the first platform it gets into
+			int first = -1;
+			for(int s = 1; s <= SAMPLES && first < 0; s++){
+				double x = x0 + (x1 - x0) * s / SAMPLES;
+				double y = y0 + (y1 - y0) * s / SAMPLES;
+				first = SweptCollisionHarness.platformAt(game, check, box.set((int)x - w/2, (int)y - h/2, w, h), arena.getDepth());
+			}
+			if(first < 0){
+				continue;
+			}
+			gotInto++;
+
+			// THE GAME
+			double vy = Math.sin(angle) * speed;
+			bird.setXPosition(x0);
+			bird.setYPosition(y0);
+			bird.rememberPosition();
+			bird.setXPosition(x1);
+			bird.setYPosition(y1);
+			bird.setYVelocity(vy);
+			game.checkBoxCollisions();
+			boolean stood = false;
+			for(int p = 0; p < game.getPlatformCount(); p++){ // on the first platform on its way, or one it ended up in
+				stood |= bird.getYPosition() == game.getPlatform(p).y - 1 - h/4;
+			}
+			boolean bounced = bird.getYVelocity() == vy * -1.25;
+			if(!stood && !bounced){
+				wentThrough++;
+			}
+		}
+		return new int[] { gotInto, wentThrough };
+	}
+
+	/**
+	 * @return how many ticks the game time moved on in SECONDS seconds of steps at the tick rate, how many
+	 * it should have, and how many times a bird went from above a platform to below it (or back) in one step;
+	 * a bird flying up into a platform far enough to be above its middle is stood on top of it, which isn't going through
+	 */
+	private static int[] rates(Arena arena, int tickRate) {
+		Random random = new Random(tickRate);
+		GameSimulation game = null;
+		int gameTime = 0;
+		int expected = 0;
+		int steps = 0;    // in this match
+		int wentThrough = 0;
+		int[] before = new int[2 * arena.getPlatformCount()];
+		double[] birds = new double[4];
+		for(int step = 0; step < SECONDS * tickRate; step++){
+			int inputs = random.nextInt(6) == 0 ? random.nextInt(16) : 0;
+			if(game == null || game.isGameOver()){
+				gameTime += game == null ? 0 : game.getGameTime();
+				expected += steps * GameSimulation.TICK_RATE / tickRate; // each match starts on a whole tick
+				steps = 0;
+				game = new GameSimulation(arena);
+				game.setTickRate(tickRate);
+				game.setLavaOn(true);
+				game.setMovingPlatformsOn(true);
+				inputs = GameSimulation.INPUT_PAUSE;
+			}
+			for(int p = 0; p < game.getPlatformCount(); p++){
+				before[2 * p] = game.getPlatform(p).x;
+				before[2 * p + 1] = game.getPlatform(p).y;
+			}
+			birds[0] = game.getRedBird().getXPosition();
+			birds[1] = game.getRedBird().getYPosition();
+			birds[2] = game.getGreenBird().getXPosition();
+			birds[3] = game.getGreenBird().getYPosition();
+			int scores = game.getLeftPlayerScore() + game.getRightPlayerScore();
+			game.step(inputs);
+			steps++;
+			if(game.getLeftPlayerScore() + game.getRightPlayerScore() != scores){
+				continue; // a bird was sent back up to a spawn, or out of the lava
+			}
+			for(int b = 0; b < 2; b++){
+				Bird bird = b == 0 ? game.getRedBird() : game.getGreenBird();
+				int h = bird.getHeight();
+				for(int p = 0; p < game.getPlatformCount(); p++){
+					Hitbox platform = game.getPlatform(p);
+					if(Math.abs(platform.x - before[2 * p]) > 10 * game.getStepTicks() || Math.abs(platform.y - before[2 * p + 1]) > 10 * game.getStepTicks()){
+						continue; // jumped to the start of its lap
+					}
+					int right = platform.x + arena.getSolidWidth(p);
+					boolean over = birds[2 * b] >= before[2 * p] && birds[2 * b] < before[2 * p] + arena.getSolidWidth(p)
+							&& bird.getXPosition() >= platform.x && bird.getXPosition() < right;
+					boolean down = birds[2 * b + 1] < before[2 * p + 1] - h/4 && bird.getYPosition() > platform.y + platform.height + h/4;
+					boolean up = birds[2 * b + 1] > before[2 * p + 1] + platform.height + h/4 && bird.getYPosition() < platform.y - 1 - h/4; // not stood on it
+					if(over && (down || up)){
+						wentThrough++;
+					}
+				}
+			}
+		}
+		expected += steps * GameSimulation.TICK_RATE / tickRate;
+		return new int[] { gameTime + game.getGameTime(), expected, wentThrough };
+	}
+
+	/**
+	 * @return the first platform the box is far enough into, or -1
+	 */
+	private static int platformAt(GameSimulation game, CollisionBox check, Hitbox box, int depth) {
+		Hitbox solid = new Hitbox();
+		for(int p = 0; p < game.getPlatformCount(); p++){
+			Hitbox platform = game.getPlatform(p);
+			solid.set(platform.x, platform.y, game.getArena().getSolidWidth(p), platform.height);
+			if(check.checkForBoxCollision(box, solid, depth)){
+				return p;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return how many pairs of birds overlapped on their way, and how many of them went through each other
+	 */
+	private static int[] birds(int trials, boolean swept) throws IOException {
+		Arena open = Arena.read(new BufferedReader(new StringReader("start red 100 100\nstart green 700 100\nspawn 400 300\n")), "open sky");
+		GameSimulation game = new GameSimulation(open);
+		game.setSweptCollisions(swept);
+		Bird a = game.getRedBird();
+		Bird b = game.getGreenBird();
+		Hitbox boxA = new Hitbox();
+		Hitbox boxB = new Hitbox();
+		Random random = new Random(2);
+		int overlapped = 0;
+		int wentThrough = 0;
+		for(int t = 0; t < trials; t++){
+			int w = a.getWidth();
+			int h = a.getHeight();
+			double[] start = new double[4];
+			double[] end = new double[4];
+			do {
+				for(int i = 0; i < 4; i += 2){
+					start[i] = w / 4 + random.nextDouble() * (800 - w / 2);
+					start[i + 1] = w / 4 + 1 + random.nextDouble() * 400;
+				}
+			} while(boxA.set((int)start[0], (int)start[1], w/2, h-30).intersects(boxB.set((int)start[2], (int)start[3], w/2, h-30)));
+			for(int i = 0; i < 4; i += 2){
+				double angle = random.nextDouble() * 2 * Math.PI;
+				double speed = random.nextDouble() * SPEED;
+				end[i] = Math.max(w / 4, Math.min(800 - w / 4, start[i] + Math.cos(angle) * speed));
+				end[i + 1] = Math.max(w / 4, Math.min(500, start[i + 1] + Math.sin(angle) * speed)); // stays off the ground
+			}
+
+			// BY HAND, how far into each other they got
+			int deepest = 0;
+			for(int s = 1; s <= SAMPLES && deepest <= GRAZE; s++){
+				boxA.set((int)(start[0] + (end[0] - start[0]) * s / SAMPLES), (int)(start[1] + (end[1] - start[1]) * s / SAMPLES), w/2, h-30);
+				boxB.set((int)(start[2] + (end[2] - start[2]) * s / SAMPLES), (int)(start[3] + (end[3] - start[3]) * s / SAMPLES), w/2, h-30);
+				if(boxA.intersects(boxB)){
+					deepest = Math.max(deepest, Math.min(boxA.intersectionWidth(boxB), boxA.intersectionHeight(boxB)));
+				}
+			}
+			if(deepest <= GRAZE){
+				continue;
+			}
+			overlapped++;
+
+			// THE GAME
+			a.setXPosition(start[0]);
+			a.setYPosition(start[1]);
+			a.rememberPosition();
+			b.setXPosition(start[2]);
+			b.setYPosition(start[3]);
+			b.rememberPosition();
+			a.setXPosition(end[0]);
+			a.setYPosition(end[1]);
+			b.setXPosition(end[2]);
+			b.setYPosition(end[3]);
+			a.setXVelocity(0);
+			b.setXVelocity(0);
+			int scores = game.getLeftPlayerScore() + game.getRightPlayerScore();
+			game.checkBoxCollisions();
+			game.checkBirdCollisions();
+			boolean collided = game.getLeftPlayerScore() + game.getRightPlayerScore() != scores || a.getXVelocity() != 0 || b.getXVelocity() != 0;
+			if(!collided){
+				wentThrough++;
+			}
+		}
+		return new int[] { overlapped, wentThrough };
+	}
+}
@@ -0,0 +1,513 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Where a match is played: the platforms and how they move, the lava, and where the birds appear
+ *
+ * Arenas are read from small text files, one thing per line, with # starting a comment
+ *  >> start red|green X Y: where that bird is at the start of the match
+ *  >> spawn X Y: where a bird that was landed on (or fell in the lava, if there is no lava respawn line)
+ *     appears again; the one farthest across from it is used
+ *  >> lava X Y WIDTH: everything below Y, from X to X + WIDTH, is lava (when the lava pit is on)
+ *  >> lava respawn Y: a bird that falls in the lava comes back up at Y, where it fell in, rather than at a spawn
+ *  >> depth PIXELS: how far a bird has to be into a platform before it stands on it (or bounces off it)
+ *  >> platform X Y WIDTH HEIGHT [trim PIXELS] [idle X Y]: a platform, resting at X, Y; birds only stand on
+ *     the part left after trimming PIXELS off its right end. idle is where a moving platform waits until
+ *     the match starts, if not where it rests
+ *  >> key X Y TICKS: a point on the path of the platform above: it is at X, Y and gets to the next key
+ *     (or back to the first, after the last) TICKS ticks later, moving the same amount every tick.
+ *     A lap can take up to MAX_LAP ticks, and all of them MAX_PATHS, since every tick of them is kept
+ *  >> world WIDTH HEIGHT: how big the world is in swarm mode, if bigger than the screen (800 by 600);
+ *     the camera follows the first bird around it (see Camera). The two player game is always one screen.
+ *  >> background FILE: the picture behind a world bigger than the screen, repeated if the world is
+ *     bigger still, and read a tile at a time as the camera gets to it (see TiledBackground)
+ * A platform without keys never moves.
+ *
+ * Everything is worked out when the arena is read, so a tick only looks things up: each path is
+ * followed tick by tick into flat arrays of positions, one lap long, and a moving platform is only
+ * ever a place in its lap (see GameSimulation.updatePlatformPosition). Arenas never change once read,
+ * so one can be shared by any number of games on any number of threads.
+ */
+public class Arena {
+
+	public static final int MAX_PLATFORMS = UniformGrid.MAX_BOXES; // so a set of platforms fits in a long, for swarm mode
+	public static final int SCREEN_WIDTH = 800;
+	public static final int SCREEN_HEIGHT = 600;
+	public static final int MAX_LAP = 1 << 20;    // ticks in one platform's lap, almost six minutes at 50 ticks a second
+	public static final int MAX_PATHS = 1 << 22;  // ticks in every platform's lap put together, 32 MB of positions
+	private static final int DEFAULT_DEPTH = 10;
+	private static final int AT_SPAWNS = Integer.MIN_VALUE; // no lava respawn line
+
+	/**
+	 * The original arena: the top platform scrolls left and steps down the screen a row at a time,
+	 * and the bottom one slides back and forth
+	 */
+	static final String CLASSIC =
+			"# the original two platforms\n" +
+			"start red 100 150\n" +
+			"start green 700 150\n" +
+			"spawn 100 40\n" +
+			"spawn 700 40\n" +
+			"lava 0 550 800\n" +
+			"lava respawn 100\n" +
+			"depth 10\n" +
+			"platform 0 200 300 20 trim 30 idle 650 200\n" +
+			"key 700 50 700\n" + "key 0 50 1\n" +
+			"key 700 100 700\n" + "key 0 100 1\n" +
+			"key 700 150 700\n" + "key 0 150 1\n" +
+			"key 700 200 700\n" + "key 0 200 1\n" +
+			"key 700 250 700\n" + "key 0 250 1\n" +
+			"key 700 300 700\n" + "key 0 300 1\n" +
+			"key 700 350 700\n" + "key 0 350 1\n" +
+			"key 700 400 700\n" + "key 0 400 1\n" +
+			"key 700 450 700\n" + "key 0 450 1\n" +
+			"key 0 0 1\n" +
+			"platform 0 525 450 20 trim 30\n" +
+			"key 0 525 175\n" +
+			"key 350 525 175\n" +
+			"key 0 525 1\n" +
+			"key -2 525 1\n";
+	private static Arena classic;
+
+	private final String name;
+	private final int[] starts;      // red x, y, green x, y
+	private final int[] spawns;      // x, y of each
+	private final int[] lava;        // x, y, width of each
+	private final int lavaRespawnY;  // or AT_SPAWNS
+	private final int depth;
+	private final int worldWidth;
+	private final int worldHeight;
+	private final String background; // the picture behind a bigger world, or null for the landscape
+
+	/**
+	 * Platforms, one entry per platform
+	 */
+	private final int[] widths;
+	private final int[] heights;
+	private final int[] solidWidths; // the part birds stand on
+	private final int[] pathStarts;  // where each platform's lap starts in pathX and pathY
+	private final int[] pathLengths; // ticks in a lap, 1 for a platform that never moves
+	private final int[] startPhases; // where in its lap each platform rests
+	private final int[] idlePhases;  // and waits for the match to start
+	private final int[] pathX;       // every platform's position on every tick of its lap
+	private final int[] pathY;
+	private final int[] moving;      // the platforms with a lap longer than a tick, the only ones a tick has to move
+	private final long fingerprint;
+
+	private Arena(String name, int[] starts, int[] spawns, int[] lava, int lavaRespawnY, int depth, int worldWidth, int worldHeight, String background,
+			int[] widths, int[] heights, int[] solidWidths, int[] pathStarts, int[] pathLengths, int[] startPhases, int[] idlePhases, int[] pathX, int[] pathY) {
+		this.name = name;
+		this.starts = starts;
+		this.spawns = spawns;
+		this.lava = lava;
+		this.lavaRespawnY = lavaRespawnY;
+		this.depth = depth;
+		this.worldWidth = worldWidth;
+		this.worldHeight = worldHeight;
+		this.background = background;
+		this.widths = widths;
+		this.heights = heights;
+		this.solidWidths = solidWidths;
+		this.pathStarts = pathStarts;
+		this.pathLengths = pathLengths;
+		this.startPhases = startPhases;
+		this.idlePhases = idlePhases;
+		this.pathX = pathX;
+		this.pathY = pathY;
+		int count = 0;
+		for(int length : pathLengths){
+			count += length > 1 ? 1 : 0;
+		}
+		this.moving = new int[count];
+		for(int p = 0, m = 0; p < pathLengths.length; p++){
+			if(pathLengths[p] > 1){
+				this.moving[m++] = p;
+			}
+		}
+		long h = 17;
+		for(int[] values : new int[][] { starts, spawns, lava, { lavaRespawnY, depth }, widths, heights, solidWidths, pathLengths, startPhases, idlePhases, pathX, pathY }){
+			for(int value : values){
+				h = h * 31 + value;
+			}
+			h = h * 31 + values.length;
+		}
+		this.fingerprint = h;
+	}
+
+	/**
+	 * @return the original arena
+	 */
+	public static synchronized Arena classic() {
+		if(Arena.classic == null){
+			try {
+				Arena.classic = Arena.read(new BufferedReader(new StringReader(CLASSIC)), "classic");
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return Arena.classic;
+	}
+
+	/**
+	 * @return the arena named by -Djousty.arena=file, or the original one
+	 */
+	public static Arena fromSettings() throws IOException {
+		String file = System.getProperty("jousty.arena");
+		return file == null ? Arena.classic() : Arena.load(Paths.get(file));
+	}
+
+	/**
+	 * Reads an arena file
+	 */
+	public static Arena load(Path file) throws IOException {
+		try(BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)){
+			return Arena.read(reader, file.toString());
+		}
+	}
+
+	/**
+	 * Reads an arena, working out every platform's lap
+	 * @param name for the messages, if it can't be read
+	 */
+	public static Arena read(BufferedReader reader, String name) throws IOException {
+		int[] starts = new int[4];
+		boolean[] started = new boolean[2];
+		List<int[]> spawns = new ArrayList<int[]>();
+		List<int[]> lava = new ArrayList<int[]>();
+		int lavaRespawnY = AT_SPAWNS;
+		int depth = DEFAULT_DEPTH;
+		int worldWidth = SCREEN_WIDTH;
+		int worldHeight = SCREEN_HEIGHT;
+		String background = null;
+		List<int[]> platforms = new ArrayList<int[]>(); // x, y, width, height, trim, idle x, idle y
+		List<List<int[]>> keys = new ArrayList<List<int[]>>();
+		long lap = 0;   // ticks in the last platform's lap so far
+		long paths = 0; // and in every platform's
+
+		// LINES
+		String line;
+		int number = 0;
+		while((line = reader.readLine()) != null){
+			number++;
+			int comment = line.indexOf('#');
+			String[] words = (comment < 0 ? line : line.substring(0, comment)).trim().split("\\s+");
+			if(words[0].isEmpty()){
+				continue;
+			}
+			String where = name + ":" + number + ": ";
+			if(words[0].equals("start") && words.length == 4 && (words[1].equals("red") || words[1].equals("green"))){
+				int bird = words[1].equals("red") ? 0 : 1;
+				starts[2 * bird] = Arena.number(words[2], where);
+				starts[2 * bird + 1] = Arena.number(words[3], where);
+				started[bird] = true;
+			} else if(words[0].equals("spawn") && words.length == 3){
+				spawns.add(new int[] { Arena.number(words[1], where), Arena.number(words[2], where) });
+			} else if(words[0].equals("lava") && words.length == 3 && words[1].equals("respawn")){
+				lavaRespawnY = Arena.number(words[2], where);
+			} else if(words[0].equals("lava") && words.length == 4){
+				lava.add(new int[] { Arena.number(words[1], where), Arena.number(words[2], where), Arena.number(words[3], where) });
+			} else if(words[0].equals("depth") && words.length == 2){
+				depth = Arena.number(words[1], where);
+			} else if(words[0].equals("world") && words.length == 3){
+				worldWidth = Arena.number(words[1], where);
+				worldHeight = Arena.number(words[2], where);
+				if(worldWidth < SCREEN_WIDTH || worldHeight < SCREEN_HEIGHT){
+					throw new IOException(where + "a world has to be at least as big as the screen, " + SCREEN_WIDTH + " by " + SCREEN_HEIGHT);
+				}
+			} else if(words[0].equals("background") && words.length == 2){
+				background = words[1];
+			} else if(words[0].equals("platform") && words.length >= 5){
+				int[] platform = new int[7];
+				for(int i = 0; i < 4; i++){
+					platform[i] = Arena.number(words[i + 1], where);
+				}
+				platform[5] = platform[0];
+				platform[6] = platform[1];
+				for(int w = 5; w < words.length; w++){
+					if(words[w].equals("trim") && w + 1 < words.length){
+						platform[4] = Arena.number(words[++w], where);
+					} else if(words[w].equals("idle") && w + 2 < words.length){
+						platform[5] = Arena.number(words[++w], where);
+						platform[6] = Arena.number(words[++w], where);
+					} else{
+						throw new IOException(where + "expected trim PIXELS or idle X Y, not " + words[w]);
+					}
+				}
+				if(platform[2] <= 0 || platform[3] <= 0 || platform[4] < 0 || platform[4] >= platform[2]){
+					throw new IOException(where + "a platform needs a size, and something left once trimmed");
+				}
+				if(platforms.size() == MAX_PLATFORMS){
+					throw new IOException(where + "an arena can have at most " + MAX_PLATFORMS + " platforms");
+				}
+				platforms.add(platform);
+				keys.add(new ArrayList<int[]>());
+				lap = 0;
+			} else if(words[0].equals("key") && words.length == 4){
+				if(platforms.isEmpty()){
+					throw new IOException(where + "a key has to come after its platform");
+				}
+				int[] key = { Arena.number(words[1], where), Arena.number(words[2], where), Arena.number(words[3], where) };
+				if(key[2] < 1){
+					throw new IOException(where + "a key has to last at least a tick");
+				}
+				lap += key[2];
+				paths += key[2];
+				if(lap > MAX_LAP){
+					throw new IOException(where + "a platform's lap can take at most " + MAX_LAP + " ticks");
+				}
+				if(paths > MAX_PATHS){
+					throw new IOException(where + "the platforms' laps can take at most " + MAX_PATHS + " ticks between them");
+				}
+				keys.get(keys.size() - 1).add(key);
+			} else{
+				throw new IOException(where + "can't make sense of \"" + line.trim() + "\"");
+			}
+		}
+		if(!started[0] || !started[1]){
+			throw new IOException(name + ": needs a start for both red and green");
+		}
+		if(spawns.isEmpty()){
+			throw new IOException(name + ": needs at least one spawn");
+		}
+
+		// LAPS
+		int count = platforms.size();
+		int[] widths = new int[count];
+		int[] heights = new int[count];
+		int[] solidWidths = new int[count];
+		int[] pathStarts = new int[count];
+		int[] pathLengths = new int[count];
+		int[] startPhases = new int[count];
+		int[] idlePhases = new int[count];
+		int total = 0;
+		for(int p = 0; p < count; p++){
+			int length = 0;
+			for(int[] key : keys.get(p)){
+				length += key[2];
+			}
+			pathStarts[p] = total;
+			pathLengths[p] = Math.max(1, length);
+			total += pathLengths[p];
+		}
+		int[] pathX = new int[total];
+		int[] pathY = new int[total];
+		for(int p = 0; p < count; p++){
+			int[] platform = platforms.get(p);
+			widths[p] = platform[2];
+			heights[p] = platform[3];
+			solidWidths[p] = platform[2] - platform[4];
+			List<int[]> path = keys.get(p);
+			int at = pathStarts[p];
+			if(path.isEmpty()){
+				pathX[at] = platform[0];
+				pathY[at] = platform[1];
+				continue;
+			}
+			for(int k = 0; k < path.size(); k++){
+				int[] from = path.get(k);
+				int[] to = path.get((k + 1) % path.size());
+				for(int t = 0; t < from[2]; t++){
+					pathX[at] = from[0] + (int)((long)(to[0] - from[0]) * t / from[2]);
+					pathY[at] = from[1] + (int)((long)(to[1] - from[1]) * t / from[2]);
+					at++;
+				}
+			}
+			startPhases[p] = Arena.phaseAt(pathX, pathY, pathStarts[p], pathLengths[p], platform[0], platform[1]);
+			idlePhases[p] = Arena.phaseAt(pathX, pathY, pathStarts[p], pathLengths[p], platform[5], platform[6]);
+			if(startPhases[p] < 0 || idlePhases[p] < 0){
+				throw new IOException(name + ": platform " + (p + 1) + " has to rest and idle somewhere on its path");
+			}
+		}
+		return new Arena(name, starts, Arena.flatten(spawns), Arena.flatten(lava), lavaRespawnY, depth, worldWidth, worldHeight, background,
+				widths, heights, solidWidths, pathStarts, pathLengths, startPhases, idlePhases, pathX, pathY);
+	}
+
+	private static int number(String word, String where) throws IOException {
+		try {
+			return Integer.parseInt(word);
+		} catch (NumberFormatException e) {
+			throw new IOException(where + "expected a whole number, not " + word);
+		}
+	}
+
+	/**
+	 * @return the first tick of a lap where the platform is at x, y, or -1 if it never is
+	 */
+	private static int phaseAt(int[] pathX, int[] pathY, int start, int length, int x, int y) {
+		for(int t = 0; t < length; t++){
+			if(pathX[start + t] == x && pathY[start + t] == y){
+				return t;
+			}
+		}
+		return -1;
+	}
+
+	private static int[] flatten(List<int[]> rows) {
+		int width = rows.isEmpty() ? 0 : rows.get(0).length;
+		int[] flat = new int[rows.size() * width];
+		for(int r = 0; r < rows.size(); r++){
+			System.arraycopy(rows.get(r), 0, flat, r * width, width);
+		}
+		return flat;
+	}
+
+	/**
+	 * @return if a bird at x, y is in the lava
+	 */
+	public boolean isInLava(double x, double y) {
+		for(int z = 0; z < this.lava.length; z += 3){
+			if(y > this.lava[z + 1] && x >= this.lava[z] && x < this.lava[z] + this.lava[z + 2]){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the spawn farthest across from x (the first of them, if some are as far), for a bird landed on there
+	 */
+	public int spawnAcrossFrom(double x) {
+		int farthest = 0;
+		double distance = -1;
+		for(int s = 0; s < this.getSpawnCount(); s++){
+			double d = Math.abs(this.spawns[2 * s] - x);
+			if(d > distance){
+				farthest = s;
+				distance = d;
+			}
+		}
+		return farthest;
+	}
+
+	/**
+	 * get methods
+	 */
+	public String getName(){
+		return this.name;
+	}
+
+	/**
+	 * @return a hash of everything in the arena, so games in different arenas never have the same checksum
+	 */
+	public long getFingerprint(){
+		return this.fingerprint;
+	}
+
+	public int getStartX(boolean red){
+		return this.starts[red ? 0 : 2];
+	}
+
+	public int getStartY(boolean red){
+		return this.starts[red ? 1 : 3];
+	}
+
+	public int getSpawnCount(){
+		return this.spawns.length / 2;
+	}
+
+	public int getSpawnX(int spawn){
+		return this.spawns[2 * spawn];
+	}
+
+	public int getSpawnY(int spawn){
+		return this.spawns[2 * spawn + 1];
+	}
+
+	/**
+	 * @return if a bird that falls in the lava comes back up where it fell in, at getLavaRespawnY, rather than at a spawn
+	 */
+	public boolean hasLavaRespawnY(){
+		return this.lavaRespawnY != AT_SPAWNS;
+	}
+
+	public int getLavaRespawnY(){
+		return this.lavaRespawnY;
+	}
+
+	public int getDepth(){
+		return this.depth;
+	}
+
+	/**
+	 * @return how big the world is in swarm mode, the size of the screen unless the arena says otherwise
+	 */
+	public int getWorldWidth(){
+		return this.worldWidth;
+	}
+
+	public int getWorldHeight(){
+		return this.worldHeight;
+	}
+
+	/**
+	 * @return if the world is bigger than the screen, so it needs a camera
+	 */
+	public boolean isLargeWorld(){
+		return this.worldWidth > SCREEN_WIDTH || this.worldHeight > SCREEN_HEIGHT;
+	}
+
+	/**
+	 * @return the picture behind a world bigger than the screen, or null for the landscape
+	 */
+	public String getBackground(){
+		return this.background;
+	}
+
+	public int getPlatformCount(){
+		return this.widths.length;
+	}
+
+	public int getWidth(int platform){
+		return this.widths[platform];
+	}
+
+	public int getHeight(int platform){
+		return this.heights[platform];
+	}
+
+	public int getSolidWidth(int platform){
+		return this.solidWidths[platform];
+	}
+
+	public int getMovingCount(){
+		return this.moving.length;
+	}
+
+	/**
+	 * @param moving from 0 to getMovingCount - 1
+	 * @return which platform that is
+	 */
+	public int getMovingPlatform(int moving){
+		return this.moving[moving];
+	}
+
+	public int getLapLength(int platform){
+		return this.pathLengths[platform];
+	}
+
+	public int getStartPhase(int platform){
+		return this.startPhases[platform];
+	}
+
+	public int getIdlePhase(int platform){
+		return this.idlePhases[platform];
+	}
+
+	/**
+	 * @param phase how far into its lap, from 0 to getLapLength - 1
+	 */
+	public int getX(int platform, int phase){
+		return this.pathX[this.pathStarts[platform] + phase];
+	}
+
+	public int getY(int platform, int phase){
+		return this.pathY[this.pathStarts[platform] + phase];
+	}
+}
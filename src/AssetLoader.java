@@ -0,0 +1,335 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Loads the game's images on a few threads of its own, all at once, while the windows are being built
+ *
+ *  >> every image is read on whichever loader thread is free, and handed to SpriteCache when it asks
+ *     for it (see SpriteCache.setLoader), so only an image that isn't ready yet is waited for
+ *  >> every image comes out as TYPE_INT_ARGB, however it was stored, so loaded and cached images are the same
+ *  >> with a cache file, the images' pixels are also written there, as they are after decoding. On the
+ *     next launch the file is mapped into memory and the pixels copied straight out of it, with no PNG
+ *     decoding at all. An image whose PNG has changed since (or isn't in the file) is decoded again,
+ *     and the file written again afterwards.
+ *
+ * Cache files are in the byte order of the machine that wrote them, so the pixels are copied out without
+ * swapping any bytes; the magic number "JBPX" reads backwards in the other order. After it come a version
+ * and how many images (ints); then for each image its name (a short length and UTF-8), the length and last
+ * modified time of its PNG (longs), its width and height (ints) and where in the file its pixels start
+ * (long); then, from the next whole int on, the pixels, one ARGB int each, row by row.
+ */
+public class AssetLoader {
+
+	/**
+	 * Every image JoustScreen draws
+	 */
+	public static final String[] GAME_IMAGES = { "lava", "landscape", "birdr", "birdrf", "birdrb", "birdg", "birdgf", "birdgb" };
+
+	private static final int CACHE_MAGIC = 0x4A425058; // "JBPX"
+	private static final int CACHE_VERSION = 1;
+
+	private final Path cache;
+	private final Map<String, Future<BufferedImage>> images = new LinkedHashMap<String, Future<BufferedImage>>();
+	private final int total;
+	private final AtomicInteger loaded = new AtomicInteger();
+	private final AtomicInteger fromCache = new AtomicInteger();
+	private final long started = System.nanoTime();
+	private Future<?> written;        // writing the cache file, if it has to be
+	private volatile long finished;   // System.nanoTime when the last image was loaded, 0 until then
+	private volatile String cacheProblem; // why the cache couldn't be used or written, if it couldn't
+
+	/**
+	 * Starts loading straight away
+	 * @param basenames the images to load, such as "lava" for lava.png
+	 * @param cache the cache file, or null to always decode the PNGs
+	 * @param threads how many images to load at once
+	 */
+	public AssetLoader(String[] basenames, Path cache, int threads) {
+		this.cache = cache;
+		this.total = basenames.length;
+		final AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, basenames.length)), new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Jousty Bird asset loader " + threadCount.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		Map<String, Entry> cached = this.readCache();
+		for(final String basename : basenames){
+			final Entry entry = cached.get(basename);
+			this.images.put(basename, pool.submit(new Callable<BufferedImage>() {
+				public BufferedImage call() throws IOException {
+					BufferedImage image = entry != null ? entry.image() : AssetLoader.decode(basename);
+					if(entry != null){
+						AssetLoader.this.fromCache.incrementAndGet();
+					}
+					if(AssetLoader.this.loaded.incrementAndGet() == AssetLoader.this.total){
+						AssetLoader.this.finished = System.nanoTime();
+					}
+					return image;
+				}
+			}));
+		}
+		if(cache != null && cached.size() < basenames.length){ // after every image, as the pool takes them in order
+			this.written = pool.submit(new Runnable() {
+				public void run() {
+					AssetLoader.this.writeCache();
+				}
+			});
+		}
+		pool.shutdown(); // the threads end once everything is loaded
+	}
+
+	/**
+	 * Waits for an image, if it isn't loaded yet
+	 * @return the image, which callers must not draw on
+	 */
+	public BufferedImage get(String basename) {
+		try {
+			return this.images.get(basename).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("interrupted loading " + basename, e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("could not load " + basename + ".png", e.getCause());
+		}
+	}
+
+	/**
+	 * @return if this loader is loading the image
+	 */
+	public boolean has(String basename) {
+		return this.images.containsKey(basename);
+	}
+
+	/**
+	 * Waits for every image, and for the cache file to be written if it is being
+	 */
+	public void await() {
+		for(String basename : this.images.keySet()){
+			this.get(basename);
+		}
+		if(this.written != null){
+			try {
+				this.written.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) { // writeCache catches everything itself
+				throw new RuntimeException(e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * @return the image from its PNG, as TYPE_INT_ARGB
+	 */
+	private static BufferedImage decode(String basename) throws IOException {
+		BufferedImage png = ImageIO.read(new File(basename + ".png"));
+		if(png == null){
+			throw new IOException(basename + ".png is not an image");
+		}
+		if(png.getType() == BufferedImage.TYPE_INT_ARGB){
+			return png;
+		}
+		int width = png.getWidth();
+		int height = png.getHeight();
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		image.getRaster().setDataElements(0, 0, width, height, png.getRGB(0, 0, width, height, null, 0, width));
+		return image;
+	}
+
+	/**
+	 * An image in the cache file, still to be copied out of it
+	 */
+	private static class Entry {
+		final IntBuffer pixels;
+		final int width;
+		final int height;
+
+		Entry(IntBuffer pixels, int width, int height) {
+			this.pixels = pixels;
+			this.width = width;
+			this.height = height;
+		}
+
+		BufferedImage image() {
+			int[] argb = new int[this.width * this.height];
+			this.pixels.duplicate().get(argb); // each thread with a view of its own
+			BufferedImage image = new BufferedImage(this.width, this.height, BufferedImage.TYPE_INT_ARGB);
+			image.getRaster().setDataElements(0, 0, this.width, this.height, argb);
+			return image;
+		}
+	}
+
+	/**
+	 * Maps the cache file, if there is one, and finds the images in it whose PNGs haven't changed
+	 * @return the images that can be copied out of it, by name
+	 */
+	private Map<String, Entry> readCache() {
+		Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+		if(this.cache == null || !Files.isRegularFile(this.cache)){
+			return entries;
+		}
+		try (FileChannel channel = FileChannel.open(this.cache, StandardOpenOption.READ)) {
+			MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // stays mapped after closing
+			map.order(ByteOrder.nativeOrder());
+			int magic = map.getInt();
+			if(magic == Integer.reverseBytes(CACHE_MAGIC)){ // written on another kind of machine
+				map.order(ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+				magic = CACHE_MAGIC;
+			}
+			if(magic != CACHE_MAGIC || map.getInt() != CACHE_VERSION){
+				this.cacheProblem = this.cache + " is not an asset cache";
+				return entries;
+			}
+			int count = map.getInt();
+			for(int i = 0; i < count; i++){
+				byte[] name = new byte[map.getShort() & 0xFFFF];
+				map.get(name);
+				String basename = new String(name, StandardCharsets.UTF_8);
+				long length = map.getLong();
+				long modified = map.getLong();
+				int width = map.getInt();
+				int height = map.getInt();
+				long offset = map.getLong();
+				File png = new File(basename + ".png");
+				if(png.length() != length || png.lastModified() != modified){ // changed since, decode it again
+					continue;
+				}
+				if(width <= 0 || height <= 0 || offset < 0 || offset + 4L * width * height > map.capacity()){
+					this.cacheProblem = this.cache + " is damaged";
+					entries.clear();
+					return entries;
+				}
+				ByteBuffer start = map.duplicate();
+				start.position((int)offset);
+				IntBuffer pixels = start.slice().order(map.order()).asIntBuffer();
+				pixels.limit(width * height);
+				entries.put(basename, new Entry(pixels, width, height));
+			}
+		} catch (IOException | RuntimeException e) { // a damaged file is only a slower start
+			this.cacheProblem = "could not read " + this.cache + ": " + e;
+			entries.clear();
+		}
+		return entries;
+	}
+
+	/**
+	 * Writes every image to the cache file, once they are all loaded, through a temporary file so a
+	 * game starting at the same time never maps half a file
+	 */
+	private void writeCache() {
+		try {
+			String[] names = this.images.keySet().toArray(new String[0]);
+			BufferedImage[] loaded = new BufferedImage[names.length];
+			byte[][] utf = new byte[names.length][];
+			long size = 12;
+			for(int i = 0; i < names.length; i++){
+				loaded[i] = this.get(names[i]);
+				utf[i] = names[i].getBytes(StandardCharsets.UTF_8);
+				size += 2 + utf[i].length + 8 + 8 + 4 + 4 + 8;
+			}
+			long header = (size + 3) & ~3; // the pixels start on a whole int
+			long offset = header;
+			size = header;
+			for(BufferedImage image : loaded){
+				size += 4L * image.getWidth() * image.getHeight();
+			}
+			ByteBuffer file = ByteBuffer.allocate((int)size).order(ByteOrder.nativeOrder());
+			file.putInt(CACHE_MAGIC);
+			file.putInt(CACHE_VERSION);
+			file.putInt(names.length);
+			for(int i = 0; i < names.length; i++){
+				File png = new File(names[i] + ".png");
+				file.putShort((short)utf[i].length);
+				file.put(utf[i]);
+				file.putLong(png.length());
+				file.putLong(png.lastModified());
+				file.putInt(loaded[i].getWidth());
+				file.putInt(loaded[i].getHeight());
+				file.putLong(offset);
+				offset += 4L * loaded[i].getWidth() * loaded[i].getHeight();
+			}
+			file.position((int)header);
+			IntBuffer pixels = file.asIntBuffer();
+			for(BufferedImage image : loaded){
+				pixels.put((int[])image.getRaster().getDataElements(0, 0, image.getWidth(), image.getHeight(), null));
+			}
+			file.position(0);
+
+			Path temp = Files.createTempFile(this.cache.toAbsolutePath().getParent(), this.cache.getFileName().toString(), ".tmp");
+			try {
+				try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+					while(file.hasRemaining()){
+						channel.write(file);
+					}
+				}
+				Files.move(temp, this.cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		} catch (IOException | RuntimeException e) { // the next start decodes the PNGs again
+			this.cacheProblem = "could not write " + this.cache + ": " + e;
+		}
+	}
+
+	/**
+	 * get methods
+	 */
+	public int getLoaded() {
+		return this.loaded.get();
+	}
+
+	public int getTotal() {
+		return this.total;
+	}
+
+	public boolean isDone() {
+		return this.loaded.get() == this.total;
+	}
+
+	/**
+	 * @return how many images were copied out of the cache file rather than decoded
+	 */
+	public int getFromCache() {
+		return this.fromCache.get();
+	}
+
+	/**
+	 * @return milliseconds from starting to every image being loaded, or -1 if they aren't yet
+	 */
+	public double getLoadMillis() {
+		long end = this.finished;
+		return end == 0 ? -1 : (end - this.started) / 1e6;
+	}
+
+	/**
+	 * @return why the cache file couldn't be read or written, or null if it could (or there isn't one)
+	 */
+	public String getCacheProblem() {
+		return this.cacheProblem;
+	}
+}
@@ -0,0 +1,83 @@
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+/**
+ * Everything behind the birds that doesn't move, composited into one image
+ *  >> the pale blue sky
+ *  >> the cool background (if selected in options window)
+ *  >> the lava pit (if selected in options window)
+ *
+ * The image is only put together again when one of those settings changes,
+ * so each frame starts with a single opaque copy instead of a fill and two translucent images.
+ */
+public class BackgroundLayer {
+
+	public static final Color SKY = new Color(150, 210, 255); // pale blue
+
+	private BufferedImage background;
+	private BufferedImage lavaPit;
+	private BufferedImage layer;
+	private boolean backgroundOn;
+	private boolean lavaOn;
+	private boolean valid = false;
+
+	/**
+	 * @param width the size of the screen
+	 * @param height
+	 * @param background the cool background, drawn at the top left
+	 * @param lavaPit the lava, drawn at the bottom of the screen
+	 */
+	public BackgroundLayer(int width, int height, BufferedImage background, BufferedImage lavaPit) {
+		this.background = background;
+		this.lavaPit = lavaPit;
+		this.layer = SpriteCache.createCompatibleImage(width, height, Transparency.OPAQUE);
+	}
+
+	/**
+	 * Draws the layer, putting it together again first if the settings changed
+	 * @param g the paintbrush to use for the drawing
+	 */
+	public void draw(Graphics g, boolean backgroundOn, boolean lavaOn) {
+		this.update(backgroundOn, lavaOn);
+		g.drawImage(this.layer, 0, 0, null);
+	}
+
+	/**
+	 * Draws part of the layer, for covering up what was drawn there in the previous frame
+	 * @param g the paintbrush to use for the drawing
+	 */
+	public void draw(Graphics g, int x, int y, int width, int height) {
+		g.drawImage(this.layer, x, y, x + width, y + height, x, y, x + width, y + height, null);
+	}
+
+	/**
+	 * Puts the layer together again if the settings changed
+	 * @return true if it was put together again, so all of it needs to be drawn
+	 */
+	public boolean update(boolean backgroundOn, boolean lavaOn) {
+		if(!this.valid || backgroundOn != this.backgroundOn || lavaOn != this.lavaOn){
+			this.backgroundOn = backgroundOn;
+			this.lavaOn = lavaOn;
+			this.rebuild();
+			return true;
+		}
+		return false;
+	}
+
+	private void rebuild() {
+		Graphics2D g = this.layer.createGraphics();
+		g.setColor(SKY);
+		g.fillRect(0, 0, this.layer.getWidth(), this.layer.getHeight());
+		if(this.backgroundOn == true){
+			g.drawImage(this.background, 0, 0, null);
+		}
+		if(this.lavaOn == true){
+			g.drawImage(this.lavaPit, 0, 540, null);
+		}
+		g.dispose();
+		this.valid = true;
+	}
+}
@@ -1,22 +1,20 @@
 import java.awt.Graphics;
-import java.awt.Graphics2D;
-import java.awt.Point;
-import java.awt.geom.AffineTransform;
-import java.awt.geom.Point2D;
-import java.awt.geom.Point2D.Double;
-import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
-
-import javax.imageio.ImageIO;
 
 //Brian Schwartz (bjs9yv)
 //Tod Colvin (trc8ed)
 
 public class Bird {
 	
-	/// imgs: default storage for the pictures of the bird
-	private BufferedImage[] imgs;
+	/// DRAG[n]: how much of its speed across a bird keeps over n ticks, so whole ticks don't need Math.pow
+	private static final double[] DRAG = new double[9];
+	static {
+		for(int n = 0; n < DRAG.length; n++){
+			DRAG[n] = Math.pow(.96, n);
+		}
+	}
+	
+	/// imgs: the pictures of the bird, shared with every other bird of the same color
+	private SpriteFrame[] imgs;
 	
 	// TODO: add your own fields here
 	private double xPosition;//arbitrary starting position
@@ -24,6 +22,10 @@ public class Bird {
 	private double xVelocity = 0.0;
 	private double yVelocity = 0.0;
 	private int facing = 0;//birds current i value
+	private double previousXPosition;//position at the start of the current tick, for drawing in between ticks
+	private double previousYPosition;
+	private int width;//size of the bird's images
+	private int height;
 	
 	/**
 	 * Creates a bird object with the given image set 
@@ -32,59 +34,91 @@ public class Bird {
 	public Bird(String basename, int facing, int xPos) {
 		// You may change this method if you wish, including adding 
 		// parameters if you want; however, the existing image code works as is.
-		this.imgs = new BufferedImage[6];
-		try {
-			// 0-2: right-facing (folded, back, and forward wings)
-			this.imgs[0] = ImageIO.read(new File(basename+".png"));  
-			this.imgs[1] = ImageIO.read(new File(basename+"f.png"));
-			this.imgs[2] = ImageIO.read(new File(basename+"b.png"));
-			// 3-5: left-facing (folded, back, and forward wings)
-			this.imgs[3] = Bird.makeFlipped(this.imgs[0]);
-			this.imgs[4] = Bird.makeFlipped(this.imgs[1]);
-			this.imgs[5] = Bird.makeFlipped(this.imgs[2]);
-		} catch (IOException e) {
-			throw new RuntimeException(e);
-		}
+		// 0-2: right-facing (folded, back, and forward wings)
+		// 3-5: left-facing (folded, back, and forward wings)
+		this.imgs = SpriteCache.getBirdFrames(basename);
 		this.facing = facing;
+		this.width = this.imgs[0].getWidth();
+		this.height = this.imgs[0].getHeight();
 		this.xPosition = xPos;
 		this.yPosition = 150.0;
+		this.rememberPosition();
 		
 	}
 	
+	/**
+	 * Creates a bird without any images, for running the game headless
+	 * @param width the width the bird's images would have
+	 * @param height the height the bird's images would have
+	 */
+	public Bird(int width, int height, int facing, int xPos) {
+		this.facing = facing;
+		this.width = width;
+		this.height = height;
+		this.xPosition = xPos;
+		this.yPosition = 150.0;
+		this.rememberPosition();
+	}
+	
 	/**
 	 * Gravity implementation
 	 */
 	public void fall(){
-		if(this.yPosition > 599 - this.imgs[0].getWidth()/4){
-			this.yPosition = 599 - this.imgs[0].getWidth()/4;
+		this.fall(1);
+	}
+	
+	/**
+	 * Gravity over more than one tick
+	 * @param ticks how many ticks (at GameLoop.DEFAULT_TICK_RATE) to fall for, 1 for the usual tick
+	 */
+	public void fall(double ticks){
+		if(this.yPosition > 599 - this.width/4){
+			this.yPosition = 599 - this.width/4;
 			this.yVelocity *= -.1;
 		}
 		else{
-			this.yVelocity += .5;		
+			this.yVelocity += .5 * ticks;		
 		}
 	}
 	
 	public void changePosition(){
+		this.changePosition(1);
+	}
+	
+	/**
+	 * Momentum and drag over more than one tick, in one move
+	 * @param ticks how many ticks (at GameLoop.DEFAULT_TICK_RATE) to move for, 1 for the usual tick
+	 */
+	public void changePosition(double ticks){
 		//drag
-		this.xVelocity *= .96;
-		this.xPosition += this.xVelocity;
-		this.yPosition += this.yVelocity;
+		this.xVelocity *= ticks == (int)ticks && ticks >= 0 && ticks < DRAG.length ? DRAG[(int)ticks] : Math.pow(.96, ticks);
+		this.xPosition += this.xVelocity * ticks;
+		this.yPosition += this.yVelocity * ticks;
 		
 		//check if inside bounds of screen
-		if(this.xPosition < 0 + this.imgs[0].getWidth()/4){//left
-			this.xPosition = 0 + this.imgs[0].getWidth()/4;
+		if(this.xPosition < 0 + this.width/4){//left
+			this.xPosition = 0 + this.width/4;
 			this.xVelocity = this.xVelocity *-.5;
 		}
-		if(this.xPosition > 800 - this.imgs[0].getWidth()/4){//right wall 
-			this.xPosition = 800 - this.imgs[0].getWidth()/4;
+		if(this.xPosition > 800 - this.width/4){//right wall 
+			this.xPosition = 800 - this.width/4;
 			this.xVelocity = this.xVelocity *-.5;
 		}
-		if(this.yPosition < 0 + this.imgs[0].getWidth()/4){//ceiling 
-			this.yPosition = 0 + this.imgs[0].getWidth()/4;
+		if(this.yPosition < 0 + this.width/4){//ceiling 
+			this.yPosition = 0 + this.width/4;
 			this.yVelocity = this.yVelocity*-0.5;
 		}
 	}
 	
+	/**
+	 * Remembers the current position as the one the bird is drawn moving away from;
+	 * called at the start of every tick, and after a respawn so the bird doesn't slide across the screen
+	 */
+	public void rememberPosition(){
+		this.previousXPosition = this.xPosition;
+		this.previousYPosition = this.yPosition;
+	}
+	
 	public void changeVelocity(int direction){
 		//change to handle momentum and direction changes
 		this.xVelocity = 9 * direction;
@@ -98,33 +132,40 @@ public class Bird {
 	}
 	
 	/**
-	 * A helper method for flipping in image left-to-right into a mirror image.
-	 * There is no reason to change this method.
-	 * 
-	 * @param original The image to flip
-	 * @return A left-right mirrored copy of the original image
+	 * Draws this bird
+	 * @param g the paintbrush to use for the drawing
 	 */
-	private static BufferedImage makeFlipped(BufferedImage original) {
-		AffineTransform af = AffineTransform.getScaleInstance(-1, 1);
-		af.translate(-original.getWidth(), 0);
-		BufferedImage ans = new BufferedImage(original.getWidth(), original.getHeight(), original.getType());
-		Graphics2D g = (Graphics2D)ans.getGraphics();
-		g.drawImage(original, af, null);
-		return ans;
+	public void draw(Graphics g) {
+		this.draw(g, 1.0);
 	}
 	
 	/**
-	 * Draws this bird
+	 * Draws this bird in between ticks
 	 * @param g the paintbrush to use for the drawing
+	 * @param alpha how far (0 to 1) to draw the bird between its previous and current position
 	 */
-	public void draw(Graphics g) {
+	public void draw(Graphics g, double alpha) {
 		
 		int i = this.facing; // between 0 and 6, depending on facing and wing state
-		double x = this.xPosition; // where to center the picture 
-		double y = this.yPosition;
-		// TODO: find the right x, y, and i instead of the examples given here
-		
-		g.drawImage(this.imgs[i], (int)x - this.imgs[i].getWidth()/2, (int)y - this.imgs[i].getHeight()/2, null);
+		this.imgs[i].draw(g, this.getDrawnX(alpha), this.getDrawnY(alpha));
+	}
+	
+	/**
+	 * Where the left edge of the picture goes when drawn in between ticks
+	 * @param alpha how far (0 to 1) the bird is between its previous and current position
+	 */
+	public int getDrawnX(double alpha) {
+		double x = this.previousXPosition + (this.xPosition - this.previousXPosition) * alpha; // where to center the picture 
+		return (int)x - this.width/2;
+	}
+	
+	/**
+	 * Where the top edge of the picture goes when drawn in between ticks
+	 * @param alpha how far (0 to 1) the bird is between its previous and current position
+	 */
+	public int getDrawnY(double alpha) {
+		double y = this.previousYPosition + (this.yPosition - this.previousYPosition) * alpha;
+		return (int)y - this.height/2;
 	}
 	
 	/**
@@ -132,13 +173,13 @@ public class Bird {
 	 */
 	public int getHeight(){
 		
-		return this.imgs[0].getHeight();
+		return this.height;
 		
 	}
 	
 	public int getWidth(){
 		
-		return this.imgs[this.facing].getWidth();
+		return this.width;
 	}
 	
 	public double getYPosition(){
@@ -153,6 +194,14 @@ public class Bird {
 		return this.facing;
 	}
 	
+	public double getPreviousXPosition(){
+		return this.previousXPosition;
+	}
+	
+	public double getPreviousYPosition(){
+		return this.previousYPosition;
+	}
+	
 	public double getXVelocity(){
 		return this.xVelocity;
 	}
@@ -0,0 +1,685 @@
+import java.awt.Color;
+import java.awt.Graphics;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Swarm mode: hundreds of birds in one arena, every bird for itself
+ *
+ * Instead of one Bird object per bird, every bird's state is kept in parallel arrays
+ * (position, velocity, facing and score), and each part of a tick is one tight loop over them.
+ * The same rules as the two player game apply
+ *  >> MOMENTUM, DRAG and bouncing off the edges of the world (Bird.changePosition), which is the screen
+ *     unless the arena makes it bigger (see Arena); draw(..., left, top, width, height) then draws only
+ *     what is in the part of it the camera shows
+ *  >> PLATFORM COLLISIONS and GRAVITY (GameSimulation.checkBoxCollisions, Bird.fall)
+ *  >> BIRD COLLISIONS: land on another bird's head to score, bump into it to bounce off
+ *
+ * Birds 0 and 1 can be steered with the same keys as the two player game, the rest fly themselves.
+ * Collisions go through a UniformGrid first, so only birds and platforms near each other are checked
+ * with CollisionBox; setBroadphase(false) checks every pair instead, with the same results.
+ * Nothing is created while ticking, so the heap stays flat no matter how many birds there are.
+ *
+ * With more than one thread, the birds are split into shards and each tick runs in phases on a ForkJoinPool
+ *  >> MOVE: steering, momentum, platforms and gravity, each shard on its own birds
+ *  >> COLLIDE: each shard finds the collisions of its own birds with higher numbered birds
+ *  >> RESOLVE: on the ticking thread, going through the shards' collisions in shard order
+ * Each bird has its own random numbers and the collisions are resolved in the same order as with one
+ * thread, so a seed plays out exactly the same no matter how many threads there are.
+ */
+public class BirdWorld {
+
+	private static final int CELL_SIZE = 64; // bigger than a bird's body
+
+	private int[] platforms;    // x, y, width, height of each of the arena's platforms, where they rest
+	private int[] solid;        // and the part of each that birds stand on, as in GameSimulation
+	private int depth;
+	private int worldWidth;     // the screen, 800 by 600, unless the arena is bigger
+	private int worldHeight;
+	private double flapScale;   // the lower a bird is, the more often it flaps, the same across any height
+	private int count;
+	private int birdWidth;
+	private int birdHeight;
+
+	/**
+	 * Bird state, one entry per bird
+	 */
+	private double[] x;
+	private double[] y;
+	private double[] previousX; // at the start of the tick, for drawing in between ticks
+	private double[] previousY;
+	private double[] xVelocity;
+	private double[] yVelocity;
+	private int[] facing;
+	private int[] score;
+	private long[] random;      // each bird's own random numbers, so a seed always plays out the same
+	private int[] bodyX;        // where each bird's body is this tick, for bird collisions
+	private int[] bodyY;
+
+	private int inputs;         // for this tick
+	private int hitCount;       // bird collisions found this tick, over every shard
+	private int drawnCount;     // birds in the last frame drawn
+	private boolean[] respawned;
+	private long tick;
+
+	/**
+	 * Broadphase
+	 */
+	private boolean broadphase = true;
+	private UniformGrid grid;
+
+	/**
+	 * Shards of birds, and the threads that tick them (no pool with one thread)
+	 */
+	private int threads;
+	private Shard[] shards;
+	private Phase phase;
+	private ForkJoinPool pool;
+
+	/**
+	 * A swarm ticked on the calling thread
+	 * @param count how many birds
+	 * @param birdWidth the size of the bird pictures
+	 * @param birdHeight
+	 * @param seed where the birds start and how they fly depends only on this
+	 */
+	public BirdWorld(int count, int birdWidth, int birdHeight, long seed) {
+		this(count, birdWidth, birdHeight, seed, 1);
+	}
+
+	/**
+	 * @param count how many birds
+	 * @param birdWidth the size of the bird pictures
+	 * @param birdHeight
+	 * @param seed where the birds start and how they fly depends only on this
+	 * @param threads how many threads tick the swarm; the result is the same for any number
+	 */
+	public BirdWorld(int count, int birdWidth, int birdHeight, long seed, int threads) {
+		this(Arena.classic(), count, birdWidth, birdHeight, seed, threads);
+	}
+
+	/**
+	 * @param arena whose platforms the swarm flies around; they stay where they rest
+	 * @param count how many birds
+	 * @param birdWidth the size of the bird pictures
+	 * @param birdHeight
+	 * @param seed where the birds start and how they fly depends only on this
+	 * @param threads how many threads tick the swarm; the result is the same for any number
+	 */
+	public BirdWorld(Arena arena, int count, int birdWidth, int birdHeight, long seed, int threads) {
+		if(threads < 1){
+			throw new IllegalArgumentException("need at least one thread: " + threads);
+		}
+		this.count = count;
+		this.birdWidth = birdWidth;
+		this.birdHeight = birdHeight;
+		this.worldWidth = arena.getWorldWidth();
+		this.worldHeight = arena.getWorldHeight();
+		this.flapScale = 12.0 * this.worldHeight / Arena.SCREEN_HEIGHT;
+		this.grid = new UniformGrid(this.worldWidth, this.worldHeight, CELL_SIZE);
+		this.x = new double[count];
+		this.y = new double[count];
+		this.previousX = new double[count];
+		this.previousY = new double[count];
+		this.xVelocity = new double[count];
+		this.yVelocity = new double[count];
+		this.facing = new int[count];
+		this.score = new int[count];
+		this.random = new long[count];
+		this.respawned = new boolean[count];
+		this.bodyX = new int[count];
+		this.bodyY = new int[count];
+		for(int i = 0; i < count; i++){
+			this.random[i] = BirdWorld.mix(seed + i) | 1; // never zero
+			this.x[i] = this.birdWidth/4 + this.nextInt(i, this.worldWidth - this.birdWidth/2);
+			this.y[i] = this.birdWidth/4 + this.nextInt(i, this.worldHeight / 2);
+			this.facing[i] = this.nextInt(i, 2) * 3;
+		}
+		System.arraycopy(this.x, 0, this.previousX, 0, this.count);
+		System.arraycopy(this.y, 0, this.previousY, 0, this.count);
+		this.platforms = new int[4 * arena.getPlatformCount()];
+		this.solid = new int[this.platforms.length];
+		for(int p = 0; p < arena.getPlatformCount(); p++){
+			int phase = arena.getStartPhase(p);
+			this.platforms[4*p] = this.solid[4*p] = arena.getX(p, phase);
+			this.platforms[4*p+1] = this.solid[4*p+1] = arena.getY(p, phase);
+			this.platforms[4*p+2] = arena.getWidth(p);
+			this.solid[4*p+2] = arena.getSolidWidth(p);
+			this.platforms[4*p+3] = this.solid[4*p+3] = arena.getHeight(p);
+		}
+		this.depth = arena.getDepth();
+		this.grid.setBoxes(this.solid, arena.getPlatformCount());
+
+		// SHARDS, a few per thread so a thread that finishes early can take another
+		this.threads = threads;
+		int shardCount = threads == 1 ? 1 : Math.max(1, Math.min(count, threads * 4));
+		this.shards = new Shard[shardCount];
+		for(int s = 0; s < shardCount; s++){
+			this.shards[s] = new Shard(this, (int)((long)count * s / shardCount), (int)((long)count * (s + 1) / shardCount));
+		}
+		if(threads > 1){
+			this.pool = new ForkJoinPool(threads);
+			this.phase = new Phase(this.shards);
+		}
+	}
+
+	/**
+	 * Advances the swarm by one tick
+	 * @param inputs GameSimulation.INPUT_ bits steering birds 0 (red keys) and 1 (green keys)
+	 */
+	public void step(int inputs) {
+		this.inputs = inputs;
+		this.runPhase(Shard.MOVE);
+		if(this.broadphase){
+			this.grid.build(this.bodyX, this.bodyY, this.count);
+		}
+		this.runPhase(Shard.COLLIDE);
+		this.hitCount = 0;
+		for(Shard shard : this.shards){
+			this.hitCount += shard.hitCount;
+		}
+		this.resolveCollisions();
+		this.tick++;
+	}
+
+	/**
+	 * Runs one phase on every shard, and waits until all of them are done
+	 */
+	private void runPhase(int phase) {
+		if(this.pool == null){
+			for(Shard shard : this.shards){
+				shard.run(phase);
+			}
+			return;
+		}
+		for(Shard shard : this.shards){
+			shard.reinitialize();
+			shard.phase = phase;
+		}
+		this.phase.reinitialize();
+		this.pool.invoke(this.phase);
+	}
+
+	/**
+	 * MOVE phase for birds from (inclusive) to (exclusive)
+	 */
+	void move(int from, int to) {
+		System.arraycopy(this.x, from, this.previousX, from, to - from);
+		System.arraycopy(this.y, from, this.previousY, from, to - from);
+		this.steer(from, to);
+		this.integrate(from, to);
+		this.findBodies(from, to);
+	}
+
+	/**
+	 * KEYS for the two players, a flap now and then for everyone else
+	 */
+	private void steer(int from, int to) {
+		int inputs = this.inputs;
+		for(int i = from; i < to; i++){
+			if(i == 0){
+				if((inputs & (GameSimulation.INPUT_RED_LEFT | GameSimulation.INPUT_RED_RIGHT)) != 0){
+					this.flap(0, (inputs & GameSimulation.INPUT_RED_LEFT) != 0 ? -1 : 1);
+				}
+			} else if(i == 1){
+				if((inputs & (GameSimulation.INPUT_GREEN_LEFT | GameSimulation.INPUT_GREEN_RIGHT)) != 0){
+					this.flap(1, (inputs & GameSimulation.INPUT_GREEN_LEFT) != 0 ? -1 : 1);
+				}
+			}
+			// flap more often the lower the bird is, toward the middle of the world
+			else if(this.nextInt(i, 600) < this.y[i] / this.flapScale){
+				this.flap(i, this.x[i] < this.worldWidth / 2 ? (this.nextInt(i, 4) == 0 ? -1 : 1) : (this.nextInt(i, 4) == 0 ? 1 : -1));
+			}
+		}
+	}
+
+	/**
+	 * Same as Bird.changeVelocity
+	 */
+	private void flap(int i, int direction) {
+		this.xVelocity[i] = 9 * direction;
+		this.yVelocity[i] = -9;
+	}
+
+	/**
+	 * MOMENTUM, DRAG, PLATFORM COLLISIONS and GRAVITY for birds from (inclusive) to (exclusive)
+	 */
+	private void integrate(int from, int to) {
+		double[] x = this.x, y = this.y, vx = this.xVelocity, vy = this.yVelocity;
+		int quarter = this.birdWidth/4;
+		int right = this.worldWidth - quarter, floor = this.worldHeight - 1 - quarter;
+
+		// MOMENTUM, DRAG (Bird.changePosition)
+		for(int i = from; i < to; i++){
+			vx[i] *= .96;
+			x[i] += vx[i];
+			y[i] += vy[i];
+			if(x[i] < 0 + quarter){//left
+				x[i] = 0 + quarter;
+				vx[i] = vx[i] *-.5;
+			}
+			if(x[i] > right){//right wall
+				x[i] = right;
+				vx[i] = vx[i] *-.5;
+			}
+			if(y[i] < 0 + quarter){//ceiling
+				y[i] = 0 + quarter;
+				vy[i] = vy[i]*-0.5;
+			}
+		}
+
+		// PLATFORM COLLISIONS and GRAVITY (GameSimulation.checkBoxCollisions, Bird.fall)
+		long everyPlatform = this.platforms.length / 4 == Arena.MAX_PLATFORMS ? -1L : (1L << (this.platforms.length / 4)) - 1;
+		for(int i = from; i < to; i++){
+			int left = (int)x[i] - this.birdWidth/2;
+			int top = (int)y[i] - this.birdHeight/2;
+			long near = this.broadphase ? this.grid.boxesNear(left, top, this.birdWidth, this.birdHeight) : everyPlatform;
+			boolean onPlatform = false;
+			while(near != 0 && !onPlatform){ // lowest numbered platform first, as when checking all of them
+				int p = 4 * Long.numberOfTrailingZeros(near);
+				near &= near - 1;
+				int px = this.solid[p], py = this.solid[p+1], pw = this.solid[p+2], ph = this.solid[p+3];
+				if(left < px + pw && px < left + this.birdWidth && top < py + ph && py < top + this.birdHeight
+						&& Math.min(top + this.birdHeight, py + ph) - Math.max(top, py) > this.depth){
+					onPlatform = true;
+					if(y[i] <= py + ph/2.0){
+						y[i] = py - 1 - this.birdHeight/4;
+					} else{
+						vy[i] *= -1.25;
+					}
+				}
+			}
+			if(!onPlatform){ //GRAVITY
+				if(y[i] > floor){
+					y[i] = floor;
+					vy[i] *= -.1;
+				} else{
+					vy[i] += .5;
+				}
+			}
+		}
+
+		// FACING the way the bird is flying
+		for(int i = from; i < to; i++){
+			if(vx[i] > 0){
+				this.facing[i] = 0;
+			} else if(vx[i] < 0){
+				this.facing[i] = 3;
+			}
+		}
+	}
+
+	/**
+	 * BIRD COLLISIONS: finds every pair of birds whose bodies touch, where the first bird is one of the shard's,
+	 * in order of the first bird then the second
+	 */
+	void collideBirds(Shard shard) {
+		shard.hitCount = 0;
+		if(this.broadphase){
+			this.collideNearbyBirds(shard);
+		} else{
+			this.collideAllBirds(shard);
+		}
+	}
+
+	/**
+	 * Checks each bird against the birds in its own and the eight surrounding cells of the grid
+	 */
+	private void collideNearbyBirds(Shard shard) {
+		UniformGrid grid = this.grid;
+		int columns = grid.getColumns();
+		int w = this.birdWidth/2, h = this.birdHeight - 30;
+		for(int a = shard.from; a < shard.to; a++){
+			int ax = this.bodyX[a], ay = this.bodyY[a];
+			int cell = grid.getCell(a);
+			int column = cell % columns, row = cell / columns;
+			int found = 0, lowest = Integer.MAX_VALUE, highest = -1;
+			for(int dr = -1; dr <= 1; dr++){
+				int r = dr == 0 ? row : grid.neighbourRow(row, dr); // the grid might wrap around
+				for(int dc = -1; dc <= 1 && r >= 0; dc++){
+					int c = dc == 0 ? column : grid.neighbourColumn(column, dc);
+					if(c < 0){
+						continue;
+					}
+					int near = r * columns + c;
+					for(int k = grid.getCellStart(near); k < grid.getCellEnd(near); k++){
+						int b = grid.getItem(k);
+						if(b > a && this.bodyX[b] + w > ax && ax + w > this.bodyX[b] && this.bodyY[b] + h > ay && ay + h > this.bodyY[b]){
+							if(found == shard.candidates.length){
+								shard.candidates = Arrays.copyOf(shard.candidates, found * 2);
+							}
+							shard.candidates[found++] = b;
+							lowest = Math.min(lowest, b);
+							highest = Math.max(highest, b);
+						}
+					}
+				}
+			}
+			int[] candidates = shard.candidates;
+			long[] touching = shard.touching;
+			if(found > 16 && (highest >> 6) - (lowest >> 6) < 4 * found){ // crowded: read them back in order from bits
+				for(int k = 0; k < found; k++){
+					touching[candidates[k] >> 6] |= 1L << candidates[k];
+				}
+				for(int word = lowest >> 6; word <= highest >> 6; word++){
+					long bits = touching[word];
+					touching[word] = 0;
+					while(bits != 0){
+						int b = word * 64 + Long.numberOfTrailingZeros(bits);
+						bits &= bits - 1;
+						shard.addHit(a, b, this.checkPair(shard, a, b));
+					}
+				}
+			} else{
+				Arrays.sort(candidates, 0, found); // same order as collideAllBirds
+				for(int k = 0; k < found; k++){
+					shard.addHit(a, candidates[k], this.checkPair(shard, a, candidates[k]));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks every pair of birds
+	 */
+	private void collideAllBirds(Shard shard) {
+		int w = this.birdWidth/2, h = this.birdHeight - 30;
+		for(int a = shard.from; a < shard.to; a++){
+			int ax = this.bodyX[a], ay = this.bodyY[a];
+			for(int b = a + 1; b < this.count; b++){
+				if(this.bodyX[b] + w > ax && ax + w > this.bodyX[b] && this.bodyY[b] + h > ay && ay + h > this.bodyY[b]){
+					shard.addHit(a, b, this.checkPair(shard, a, b));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Where each bird's body is: the box GameSimulation checks bird collisions with
+	 */
+	private void findBodies(int from, int to) {
+		for(int i = from; i < to; i++){
+			this.bodyX[i] = (int)this.x[i];
+			this.bodyY[i] = (int)this.y[i];
+		}
+	}
+
+	/**
+	 * CollisionBox.checkBirdCollision on the birds' bodies, after findBodies
+	 */
+	private Collision checkPair(Shard shard, int a, int b) {
+		int w = this.birdWidth/2, h = this.birdHeight - 30;
+		shard.bodyA.set(this.bodyX[a], this.bodyY[a], w, h);
+		shard.bodyB.set(this.bodyX[b], this.bodyY[b], w, h);
+		return shard.collisionBox.checkBirdCollision(shard.bodyA, shard.bodyB);
+	}
+
+	/**
+	 * SCORING: in the order the collisions were found, a bird landed on scores and the other one
+	 * starts over at the top of the screen; birds that bumped bounce off each other.
+	 * A bird that already started over this tick takes no part in any more collisions.
+	 */
+	private void resolveCollisions() {
+		Arrays.fill(this.respawned, 0, this.count, false);
+		for(Shard shard : this.shards){
+			for(int h = 0; h < shard.hitCount; h++){
+				int a = shard.hitA[h], b = shard.hitB[h];
+				if(this.respawned[a] || this.respawned[b]){
+					continue;
+				}
+				if(shard.hitResult[h] == Collision.A_SCORES){
+					this.score[a]++;
+					this.respawn(b);
+				} else if(shard.hitResult[h] == Collision.B_SCORES){
+					this.score[b]++;
+					this.respawn(a);
+				} else{
+					this.bounce(a);
+					this.bounce(b);
+				}
+			}
+		}
+	}
+
+	private void respawn(int i) {
+		this.respawned[i] = true;
+		this.x[i] = this.x[i] >= this.worldWidth / 2 ? 100 : this.worldWidth - 100;
+		this.y[i] = 40;
+		this.previousX[i] = this.x[i];
+		this.previousY[i] = this.y[i];
+	}
+
+	/**
+	 * Same as Bird.bounce, away from the way the bird was flying
+	 */
+	private void bounce(int i) {
+		this.xVelocity[i] += this.xVelocity[i] <= 0 ? 20 : -20;
+	}
+
+	/**
+	 * Draws every bird, then the platforms
+	 * @param g the paintbrush to use for the drawing
+	 * @param red the frames for even numbered birds (from SpriteCache.getBirdFrames)
+	 * @param green the frames for odd numbered birds
+	 * @param alpha how far (0 to 1) to draw the birds between their previous and current positions
+	 */
+	public void draw(Graphics g, SpriteFrame[] red, SpriteFrame[] green, double alpha) {
+		this.draw(g, red, green, alpha, 0, 0, this.worldWidth, this.worldHeight);
+	}
+
+	/**
+	 * Draws the birds, then the platforms, that are in part of the world, with its top left corner at
+	 * the top left of the paintbrush; everything else is skipped without being drawn
+	 * @param g the paintbrush to use for the drawing
+	 * @param red the frames for even numbered birds (from SpriteCache.getBirdFrames)
+	 * @param green the frames for odd numbered birds
+	 * @param alpha how far (0 to 1) to draw the birds between their previous and current positions
+	 * @param left the part of the world to draw, such as what the camera shows
+	 * @param top
+	 * @param width
+	 * @param height
+	 */
+	public void draw(Graphics g, SpriteFrame[] red, SpriteFrame[] green, double alpha, int left, int top, int width, int height) {
+		int drawn = 0;
+		for(int i = 0; i < this.count; i++){
+			int x = (int)(this.previousX[i] + (this.x[i] - this.previousX[i]) * alpha) - this.birdWidth/2;
+			int y = (int)(this.previousY[i] + (this.y[i] - this.previousY[i]) * alpha) - this.birdHeight/2;
+			if(x < left + width && left < x + this.birdWidth && y < top + height && top < y + this.birdHeight){
+				SpriteFrame frame = (i % 2 == 0 ? red : green)[this.facing[i]];
+				frame.draw(g, x - left, y - top);
+				drawn++;
+			}
+		}
+		g.setColor(Color.BLACK);
+		for(int p = 0; p < this.platforms.length; p += 4){
+			int x = this.platforms[p], y = this.platforms[p+1], w = this.platforms[p+2], h = this.platforms[p+3];
+			if(x < left + width && left < x + w && y < top + height && top < y + h){
+				g.fillRect(x - left, y - top, w, h);
+			}
+		}
+		this.drawnCount = drawn;
+	}
+
+	/**
+	 * A random number from 0 (inclusive) to bound (exclusive) from bird i's own generator
+	 */
+	private int nextInt(int i, int bound) {
+		long r = this.random[i];
+		r ^= r << 13;
+		r ^= r >>> 7;
+		r ^= r << 17;
+		this.random[i] = r;
+		return (int)((r >>> 33) % bound);
+	}
+
+	/**
+	 * Spreads the bits of a seed around (the SplitMix64 finalizer)
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Stops the threads; the swarm cannot be ticked after this
+	 */
+	public void shutdown() {
+		if(this.pool != null){
+			this.pool.shutdown();
+		}
+	}
+
+	/**
+	 * Turns the grid on or off; with it off, every pair of birds and every platform is checked
+	 */
+	public void setBroadphase(boolean broadphase) {
+		this.broadphase = broadphase;
+	}
+
+	/**
+	 * get methods
+	 */
+	public boolean isBroadphase(){
+		return this.broadphase;
+	}
+
+	public int getThreads(){
+		return this.threads;
+	}
+
+	public int getCount(){
+		return this.count;
+	}
+
+	/**
+	 * @return how many birds were in the part of the world last drawn
+	 */
+	public int getDrawnCount(){
+		return this.drawnCount;
+	}
+
+	public int getWorldWidth(){
+		return this.worldWidth;
+	}
+
+	public int getWorldHeight(){
+		return this.worldHeight;
+	}
+
+	public long getTick(){
+		return this.tick;
+	}
+
+	/**
+	 * @return how many pairs of birds collided in the last tick
+	 */
+	public int getCollisionCount(){
+		return this.hitCount;
+	}
+
+	public double getXPosition(int i){
+		return this.x[i];
+	}
+
+	public double getYPosition(int i){
+		return this.y[i];
+	}
+
+	public double getXVelocity(int i){
+		return this.xVelocity[i];
+	}
+
+	public double getYVelocity(int i){
+		return this.yVelocity[i];
+	}
+
+	public int getFacing(int i){
+		return this.facing[i];
+	}
+
+	public int getScore(int i){
+		return this.score[i];
+	}
+
+	/**
+	 * Some of the birds, and what their part of a phase needs of its own
+	 */
+	static class Shard extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		static final int MOVE = 0;
+		static final int COLLIDE = 1;
+
+		private final BirdWorld world;
+		final int from;
+		final int to;
+		int phase;
+
+		/**
+		 * Collisions found by this shard, in order
+		 */
+		int[] hitA = new int[16];
+		int[] hitB = new int[16];
+		Collision[] hitResult = new Collision[16];
+		int hitCount;
+
+		/**
+		 * Scratch space for finding collisions
+		 */
+		int[] candidates = new int[64]; // birds touching the one being checked
+		long[] touching;                // the same birds as bits, to put them in order quickly
+		CollisionBox collisionBox = new CollisionBox();
+		Hitbox bodyA = new Hitbox();
+		Hitbox bodyB = new Hitbox();
+
+		Shard(BirdWorld world, int from, int to) {
+			this.world = world;
+			this.from = from;
+			this.to = to;
+			this.touching = new long[(world.count + 63) / 64];
+		}
+
+		protected void compute() {
+			this.run(this.phase);
+		}
+
+		void run(int phase) {
+			if(phase == MOVE){
+				this.world.move(this.from, this.to);
+			} else{
+				this.world.collideBirds(this);
+			}
+		}
+
+		void addHit(int a, int b, Collision result) {
+			if(this.hitCount == this.hitA.length){
+				this.hitA = Arrays.copyOf(this.hitA, this.hitCount * 2);
+				this.hitB = Arrays.copyOf(this.hitB, this.hitCount * 2);
+				this.hitResult = Arrays.copyOf(this.hitResult, this.hitCount * 2);
+			}
+			this.hitA[this.hitCount] = a;
+			this.hitB[this.hitCount] = b;
+			this.hitResult[this.hitCount] = result;
+			this.hitCount++;
+		}
+	}
+
+	/**
+	 * One phase of a tick: every shard at once
+	 */
+	private static class Phase extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private final Shard[] shards;
+
+		Phase(Shard[] shards) {
+			this.shards = shards;
+		}
+
+		protected void compute() {
+			RecursiveAction.invokeAll(this.shards);
+		}
+	}
+}
@@ -0,0 +1,67 @@
+import java.util.Random;
+
+/**
+ * A computer player: picks the keys for one bird every tick
+ *
+ * Policies are handed the whole game to look at and a Random of the match's own (see SelfPlay), so
+ * the same match with the same seed is always played the same way. One policy may play many matches
+ * on many threads at once, so anything it remembers has to be in the game or come from the Random.
+ *
+ * Any class with a no argument constructor can be played by SelfPlay by its name, as well as the ones here:
+ *  >> idle: never flaps
+ *  >> flailer: flaps in a random direction now and then
+ *  >> hunter: climbs until it is above the other bird, then drops onto it
+ */
+public interface BotPolicy {
+
+	int FLAP_LEFT = 1;
+	int FLAP_RIGHT = 2;
+
+	/**
+	 * @param game the match, after the last tick
+	 * @param red true to play the red bird, false for green
+	 * @param random the match's own, for any randomness
+	 * @return FLAP_LEFT, FLAP_RIGHT, both or neither
+	 */
+	int keys(GameSimulation game, boolean red, Random random);
+
+	/**
+	 * Never flaps, so only the lava and the other bird decide what happens to it
+	 */
+	class Idle implements BotPolicy {
+		public int keys(GameSimulation game, boolean red, Random random) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Flaps one way or the other about one tick in six, more often when close to the lava
+	 */
+	class Flailer implements BotPolicy {
+		public int keys(GameSimulation game, boolean red, Random random) {
+			Bird me = red ? game.getRedBird() : game.getGreenBird();
+			int odds = me.getYPosition() > 450 ? 2 : 6;
+			if(random.nextInt(odds) != 0){
+				return 0;
+			}
+			return random.nextBoolean() ? FLAP_LEFT : FLAP_RIGHT;
+		}
+	}
+
+	/**
+	 * Stays above the other bird and drops onto it: flaps towards it while lower, or falling fast
+	 * or near the lava, and lets itself fall while above it
+	 */
+	class Hunter implements BotPolicy {
+		public int keys(GameSimulation game, boolean red, Random random) {
+			Bird me = red ? game.getRedBird() : game.getGreenBird();
+			Bird them = red ? game.getGreenBird() : game.getRedBird();
+			int towards = them.getXPosition() < me.getXPosition() ? FLAP_LEFT : FLAP_RIGHT;
+			boolean climb = me.getYPosition() > them.getYPosition() - 40 || me.getYVelocity() > 6 || me.getYPosition() > 450;
+			if(climb && random.nextInt(3) == 0){
+				return towards;
+			}
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/**
+ * The part of a world bigger than the screen that is shown, following one bird around it
+ *
+ *  >> each tick it moves a part of the way (FOLLOW) toward having the bird in the middle, so it
+ *     eases after the bird instead of jerking with every flap
+ *  >> it never shows anything past the edges of the world
+ *  >> like the birds, it is drawn in between where it was at the last two ticks (see view)
+ */
+public class Camera {
+
+	private static final double FOLLOW = .15; // of the way to the bird each tick
+
+	private final int worldWidth;
+	private final int worldHeight;
+	private final int width;
+	private final int height;
+	private double x;           // the top left corner of what it shows
+	private double y;
+	private double previousX;   // at the tick before
+	private double previousY;
+	private int left;           // in the frame being drawn, worked out by view
+	private int top;
+
+	/**
+	 * @param worldWidth the size of the world
+	 * @param worldHeight
+	 * @param width the size of the screen
+	 * @param height
+	 */
+	public Camera(int worldWidth, int worldHeight, int width, int height) {
+		this.worldWidth = worldWidth;
+		this.worldHeight = worldHeight;
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Jumps straight to a bird, without easing, such as when the swarm starts
+	 */
+	public void lookAt(double birdX, double birdY) {
+		this.x = this.clampX(birdX - this.width / 2.0);
+		this.y = this.clampY(birdY - this.height / 2.0);
+		this.previousX = this.x;
+		this.previousY = this.y;
+	}
+
+	/**
+	 * Moves toward the bird, once a tick
+	 * @param birdX where the bird is in the world
+	 * @param birdY
+	 */
+	public void follow(double birdX, double birdY) {
+		this.previousX = this.x;
+		this.previousY = this.y;
+		this.x = this.clampX(this.x + (birdX - this.width / 2.0 - this.x) * FOLLOW);
+		this.y = this.clampY(this.y + (birdY - this.height / 2.0 - this.y) * FOLLOW);
+	}
+
+	/**
+	 * Works out what a frame shows (getLeft and getTop)
+	 * @param alpha how far the frame is between the last tick and the next one, as for the birds
+	 */
+	public void view(double alpha) {
+		this.left = (int)(this.previousX + (this.x - this.previousX) * alpha);
+		this.top = (int)(this.previousY + (this.y - this.previousY) * alpha);
+	}
+
+	private double clampX(double x) {
+		return Math.max(0, Math.min(this.worldWidth - this.width, x));
+	}
+
+	private double clampY(double y) {
+		return Math.max(0, Math.min(this.worldHeight - this.height, y));
+	}
+
+	/**
+	 * get methods
+	 */
+	public int getWidth(){
+		return this.width;
+	}
+
+	public int getHeight(){
+		return this.height;
+	}
+
+	/**
+	 * @return the left edge of what the frame shows, in the world
+	 */
+	public int getLeft(){
+		return this.left;
+	}
+
+	public int getTop(){
+		return this.top;
+	}
+}
@@ -0,0 +1,78 @@
+import java.awt.AWTException;
+import java.awt.BufferCapabilities;
+import java.awt.Canvas;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.ImageCapabilities;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+
+/**
+ * Active rendering: draws frames straight into a Canvas through a BufferStrategy
+ * 
+ * The back buffers are accelerated VolatileImages, so a frame is flipped or blitted to the screen
+ * by the graphics card instead of going through the Swing repaint manager. The video memory behind
+ * them can be lost at any time (display mode changes, screen lock, ...), in which case endFrame
+ * returns false and the frame is drawn again.
+ */
+public class CanvasRenderer implements Renderer {
+
+	private Canvas canvas;
+	private int buffers;
+	private BufferStrategy strategy;
+	private Graphics2D paintbrush;
+
+	/**
+	 * @param buffers how many buffers to flip between, 2 or 3
+	 */
+	public CanvasRenderer(int width, int height, int buffers) {
+		if(buffers < 2 || buffers > 3){
+			throw new IllegalArgumentException("buffers must be 2 or 3: " + buffers);
+		}
+		this.buffers = buffers;
+		this.canvas = new Canvas();
+		this.canvas.setPreferredSize(new Dimension(width, height));
+		this.canvas.setIgnoreRepaint(true); // we do all of the painting
+		this.canvas.setFocusable(false);    // keys keep going to the window
+	}
+
+	public Component getComponent() {
+		return this.canvas;
+	}
+
+	public Graphics2D beginFrame() {
+		if(this.strategy == null){ // the canvas has to be on screen before it can have a strategy
+			this.createStrategy();
+		}
+		this.paintbrush = (Graphics2D)this.strategy.getDrawGraphics();
+		return this.paintbrush;
+	}
+
+	public boolean endFrame() {
+		this.paintbrush.dispose();
+		if(this.strategy.contentsRestored()){ // the buffer was lost while drawing, draw again
+			return false;
+		}
+		this.strategy.show();
+		Toolkit.getDefaultToolkit().sync();
+		return !this.strategy.contentsLost();
+	}
+
+	public boolean keepsFrames() {
+		return false; // nothing repaints the canvas for us
+	}
+
+	/**
+	 * Asks for accelerated front and back buffers, and takes whatever AWT can do if that fails
+	 */
+	private void createStrategy() {
+		ImageCapabilities accelerated = new ImageCapabilities(true);
+		try {
+			this.canvas.createBufferStrategy(this.buffers, new BufferCapabilities(accelerated, accelerated, null));
+		} catch (AWTException e) {
+			this.canvas.createBufferStrategy(this.buffers);
+		}
+		this.strategy = this.canvas.getBufferStrategy();
+	}
+}
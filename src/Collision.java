@@ -0,0 +1,9 @@
+/**
+ * What happened when two birds ran into each other
+ */
+public enum Collision {
+	NONE,     // they didn't
+	PARTIAL,  // they bumped, both bounce off
+	A_SCORES, // the first bird landed on the second one's head
+	B_SCORES  // the second bird landed on the first one's head
+}
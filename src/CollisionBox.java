@@ -1,38 +1,120 @@
-import java.awt.Rectangle;
-import java.awt.geom.Rectangle2D;
-
 //Brian Schwartz (bjs9yv)
 //Tod Colvin (trc8ed)
 public class CollisionBox {
 	
-	public String checkBirdCollision(Rectangle birdA, Rectangle birdB) {
+	public Collision checkBirdCollision(Hitbox birdA, Hitbox birdB) {
 		
-		Rectangle intersection = birdA.intersection(birdB);
 		if (birdA.intersects(birdB)) {
 			
-			if (birdA.y < birdB.y && intersection.width > birdA.width/2) {
-				return "birdyBird scores";
+			int intersectionWidth = birdA.intersectionWidth(birdB);
+			if (birdA.y < birdB.y && intersectionWidth > birdA.width/2) {
+				return Collision.A_SCORES;
 			}
-			if (birdA.y > birdB.y && intersection.width > birdA.width/2) {
-				return "otherBird scores";
+			if (birdA.y > birdB.y && intersectionWidth > birdA.width/2) {
+				return Collision.B_SCORES;
 			}
+			return Collision.PARTIAL;
 		}
-		if(birdA.intersects(birdB))
-		{
-			return "partial collision";
+		return Collision.NONE;
+	}
+	
+	/**
+	 * The same, but the birds' pictures have to really touch too, not just their boxes
+	 * @param maskA the solid pixels of A's picture, drawn with its top left corner at ax, ay
+	 * @param maskB the solid pixels of B's picture, drawn at bx, by
+	 */
+	public Collision checkBirdCollision(Hitbox birdA, Hitbox birdB, SpriteMask maskA, int ax, int ay, SpriteMask maskB, int bx, int by) {
+		
+		Collision collision = this.checkBirdCollision(birdA, birdB);
+		if (collision != Collision.NONE && !SpriteMask.overlaps(maskA, ax, ay, maskB, bx, by)) { // only checked once the boxes overlap
+			return Collision.NONE;
 		}
-		return "no collision";
+		return collision;
+	}
+	
+	public boolean checkForBoxCollision(Hitbox bird, Hitbox barrier) { 
+		return this.checkForBoxCollision(bird, barrier, 10);
 	}
 	
-	public boolean checkForBoxCollision(Rectangle bird, Rectangle barrier) { 
+	/**
+	 * @param depth how far the bird has to be into the barrier, in pixels (see Arena)
+	 */
+	public boolean checkForBoxCollision(Hitbox bird, Hitbox barrier, int depth) { 
 		if (bird.intersects(barrier)) {
-			Rectangle intersection = bird.intersection(barrier);
-			if(intersection.height > 10){
+			if(bird.intersectionHeight(barrier) > depth){
 				return true;
 			}
 
 		}
 		return false;
 	}
+	
+	/**
+	 * Sweeps a bird along its move over a tick, for birds moving fast enough to go right through a barrier between ticks
+	 * @param bird the bird's box at the start of the tick
+	 * @param dx how far the box moved across during the tick
+	 * @param dy how far it moved down
+	 * @param depth how far the bird has to be into the barrier, in pixels (see Arena)
+	 * @return how far through the tick (0 to 1) the bird first got depth pixels into the barrier,
+	 * or -1 if it never did, or was already in it at the start
+	 */
+	public double sweepForBoxCollision(Hitbox bird, double dx, double dy, Hitbox barrier, int depth) {
+		if (bird.width <= 0 || bird.height <= depth || barrier.width <= 0 || barrier.height <= depth) {
+			return -1;
+		}
+		double enter = Math.max(enter(bird.x, dx, barrier.x - bird.width, barrier.x + barrier.width),
+				enter(bird.y, dy, barrier.y + depth - bird.height, barrier.y + barrier.height - depth));
+		double exit = Math.min(exit(bird.x, dx, barrier.x - bird.width, barrier.x + barrier.width),
+				exit(bird.y, dy, barrier.y + depth - bird.height, barrier.y + barrier.height - depth));
+		if (enter >= 0 && enter < 1 && enter < exit) {
+			return enter;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Sweeps two birds along their moves over a tick, for birds moving fast enough to pass right through each other between ticks
+	 * @param birdA A's body at the start of the tick
+	 * @param dax how far A moved across during the tick
+	 * @param day how far A moved down
+	 * @return how far through the tick (0 to 1) the birds were furthest into each other, halfway through
+	 * the time they overlapped, or -1 if they never did, or already did at the start
+	 */
+	public double sweepForBirdCollision(Hitbox birdA, double dax, double day, Hitbox birdB, double dbx, double dby) {
+		if (birdA.width <= 0 || birdA.height <= 0 || birdB.width <= 0 || birdB.height <= 0) {
+			return -1;
+		}
+		double dx = dax - dbx; // as if B stood still
+		double dy = day - dby;
+		double enter = Math.max(enter(birdA.x, dx, birdB.x - birdA.width, birdB.x + birdB.width),
+				enter(birdA.y, dy, birdB.y - birdA.height, birdB.y + birdB.height));
+		double exit = Math.min(exit(birdA.x, dx, birdB.x - birdA.width, birdB.x + birdB.width),
+				exit(birdA.y, dy, birdB.y - birdA.height, birdB.y + birdB.height));
+		if (enter >= 0 && enter < 1 && enter < exit) {
+			return (enter + Math.min(exit, 1)) / 2;
+		}
+		return -1;
+	}
+	
+	/**
+	 * @return when a point starting at p and moving d a tick is first strictly between lo and hi,
+	 * minus infinity if it always is, infinity if it never is
+	 */
+	private static double enter(double p, double d, double lo, double hi) {
+		if (d == 0) {
+			return p > lo && p < hi ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+		}
+		return d > 0 ? (lo - p) / d : (hi - p) / d;
+	}
+	
+	/**
+	 * @return when the same point stops being between lo and hi
+	 */
+	private static double exit(double p, double d, double lo, double hi) {
+		if (d == 0) {
+			return p > lo && p < hi ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+		}
+		return d > 0 ? (hi - p) / d : (lo - p) / d;
+	}
 
 }
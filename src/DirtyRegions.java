@@ -0,0 +1,180 @@
+import java.awt.Rectangle;
+
+/**
+ * The parts of the screen that have to be drawn again this frame
+ *
+ * Everything that moved or changed adds where it is now; where it was in the previous frame
+ * is remembered and added automatically. merge() then joins overlapping rectangles so no pixel
+ * is drawn twice, and counts how many pixels the frame touches.
+ */
+public class DirtyRegions {
+
+	private int screenWidth;
+	private int screenHeight;
+
+	/**
+	 * Rectangles as x, y, width, height in a row
+	 */
+	private int[] current = new int[4*16];
+	private int currentCount;
+	private int[] previous = new int[4*16];
+	private int previousCount;
+	private int[] regions = new int[4*32];
+	private int regionCount;   // merged rectangles that changed
+	private int[] covers = new int[4*32];
+	private int coverCount;    // the last frame's outlines, which have to be drawn over
+	private int[] outlined = new int[4*32];
+	private int outlinedCount;
+	private long pixelsTouched;
+
+	public DirtyRegions(int screenWidth, int screenHeight) {
+		this.screenWidth = screenWidth;
+		this.screenHeight = screenHeight;
+	}
+
+	/**
+	 * Marks part of the screen as changed; the part off the screen is ignored
+	 */
+	public void add(int x, int y, int width, int height) {
+		int x2 = Math.min(x + width, this.screenWidth);
+		int y2 = Math.min(y + height, this.screenHeight);
+		x = Math.max(x, 0);
+		y = Math.max(y, 0);
+		if(x2 <= x || y2 <= y){
+			return;
+		}
+		this.current = DirtyRegions.put(this.current, this.currentCount++, x, y, x2 - x, y2 - y);
+	}
+
+	public void add(Rectangle r) {
+		this.add(r.x, r.y, r.width, r.height);
+	}
+
+	/**
+	 * Marks the whole screen as changed
+	 */
+	public void addEverything() {
+		this.add(0, 0, this.screenWidth, this.screenHeight);
+	}
+
+	/**
+	 * Joins this frame's and the previous frame's rectangles into the regions to draw
+	 * @return how many regions there are
+	 */
+	public int merge() {
+		int n = 0;
+		for(int i = 0; i < this.currentCount; i++){
+			this.regions = DirtyRegions.put(this.regions, n++, this.current[4*i], this.current[4*i+1], this.current[4*i+2], this.current[4*i+3]);
+		}
+		for(int i = 0; i < this.previousCount; i++){
+			this.regions = DirtyRegions.put(this.regions, n++, this.previous[4*i], this.previous[4*i+1], this.previous[4*i+2], this.previous[4*i+3]);
+		}
+		int[] r = this.regions;
+		boolean joined = true;
+		while(joined){
+			joined = false;
+			for(int i = 0; i < n; i++){
+				for(int j = i + 1; j < n; j++){
+					if(r[4*i] <= r[4*j] + r[4*j+2] && r[4*j] <= r[4*i] + r[4*i+2]
+							&& r[4*i+1] <= r[4*j+1] + r[4*j+3] && r[4*j+1] <= r[4*i+1] + r[4*i+3]){ // touching or overlapping
+						int x = Math.min(r[4*i], r[4*j]);
+						int y = Math.min(r[4*i+1], r[4*j+1]);
+						int x2 = Math.max(r[4*i] + r[4*i+2], r[4*j] + r[4*j+2]);
+						int y2 = Math.max(r[4*i+1] + r[4*i+3], r[4*j+1] + r[4*j+3]);
+						DirtyRegions.put(r, i, x, y, x2 - x, y2 - y);
+						n--;
+						DirtyRegions.put(r, j, r[4*n], r[4*n+1], r[4*n+2], r[4*n+3]); // last one fills the gap
+						j = i; // start over against the bigger rectangle
+						joined = true;
+					}
+				}
+			}
+		}
+		this.regionCount = n;
+
+		this.pixelsTouched = 0;
+		for(int i = 0; i < this.getCount(); i++){
+			this.pixelsTouched += (long)this.getWidth(i) * this.getHeight(i);
+		}
+		return this.getCount();
+	}
+
+	/**
+	 * Remembers this frame's regions as outlined on the screen, so they are drawn over next frame
+	 */
+	public void outlined() {
+		int[] swap = this.outlined;
+		this.outlined = this.regions;
+		this.regions = swap;
+		this.outlinedCount = this.regionCount;
+		this.regionCount = 0;
+	}
+
+	/**
+	 * Ends the frame; what changed in this frame has to be drawn over in the next one
+	 */
+	public void endFrame() {
+		int[] swap = this.previous;
+		this.previous = this.current;
+		this.current = swap;
+		this.previousCount = this.currentCount;
+		this.currentCount = 0;
+
+		swap = this.covers;
+		this.covers = this.outlined;
+		this.outlined = swap;
+		this.coverCount = this.outlinedCount;
+		this.outlinedCount = 0;
+	}
+
+	/**
+	 * Regions to draw, as counted by merge(); the changed ones come first, then the last frame's outlines
+	 */
+	public int getCount(){
+		return this.regionCount + this.coverCount;
+	}
+
+	public int getChangedCount(){
+		return this.regionCount;
+	}
+
+	public int getX(int i){
+		return i < this.regionCount ? this.regions[4*i] : this.covers[4*(i - this.regionCount)];
+	}
+
+	public int getY(int i){
+		return i < this.regionCount ? this.regions[4*i+1] : this.covers[4*(i - this.regionCount)+1];
+	}
+
+	public int getWidth(int i){
+		return i < this.regionCount ? this.regions[4*i+2] : this.covers[4*(i - this.regionCount)+2];
+	}
+
+	public int getHeight(int i){
+		return i < this.regionCount ? this.regions[4*i+3] : this.covers[4*(i - this.regionCount)+3];
+	}
+
+	/**
+	 * How many pixels the frame draws, as counted by merge()
+	 */
+	public long getPixelsTouched(){
+		return this.pixelsTouched;
+	}
+
+	/**
+	 * Stores a rectangle, making room for it if needed
+	 * @return the array, or a bigger copy of it
+	 */
+	private static int[] put(int[] rects, int i, int x, int y, int width, int height) {
+		if(4*i + 4 > rects.length){
+			int[] bigger = new int[rects.length * 2];
+			System.arraycopy(rects, 0, bigger, 0, rects.length);
+			rects = bigger;
+		}
+		rects[4*i] = x;
+		rects[4*i+1] = y;
+		rects[4*i+2] = width;
+		rects[4*i+3] = height;
+		return rects;
+	}
+}
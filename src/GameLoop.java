@@ -0,0 +1,174 @@
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed-timestep game loop running on its own thread
+ *
+ *  >> the game ticks at a fixed rate (50 times a second by default) no matter how long drawing takes
+ *  >> frames are drawn as often as the frame cap allows, in between ticks
+ *  >> each frame is told how far it is between the last tick and the next one, so it can interpolate
+ *  >> if drawing falls behind, several ticks run before the next frame (frames are skipped)
+ *
+ * Both tick() and render() are called on the loop thread, never on the Swing event thread.
+ */
+public class GameLoop implements Runnable {
+
+	/**
+	 * Whatever is being ticked and drawn
+	 */
+	public interface Game {
+
+		/**
+		 * Advances the game by one fixed timestep
+		 */
+		void tick();
+
+		/**
+		 * Draws a frame
+		 * @param alpha how far (0 to 1) the frame is between the previous tick and the next one
+		 */
+		void render(double alpha);
+	}
+
+	public static final int DEFAULT_TICK_RATE = GameSimulation.TICK_RATE;
+	public static final int UNCAPPED = -1;       // draw frames as fast as possible
+	public static final int DISPLAY_RATE = 0;    // cap frames at the refresh rate of the screen
+	private static final int MAX_TICKS_PER_FRAME = 5; // ticks to catch up before giving up on lost time
+
+	private final Game game;
+	private final int tickRate;
+	private final long tickNanos;
+	private final long frameNanos;
+	private volatile boolean running;
+	private Thread thread;
+	private long tickTime;      // when the tick being run was due, read from tick()
+
+	/**
+	 * Measured rates, updated once a second
+	 */
+	private volatile double ticksPerSecond;
+	private volatile double framesPerSecond;
+
+	/**
+	 * @param game the game to tick and draw
+	 * @param tickRate ticks per second
+	 * @param frameRate frames per second, or UNCAPPED, or DISPLAY_RATE
+	 */
+	public GameLoop(Game game, int tickRate, int frameRate) {
+		if(tickRate <= 0){
+			throw new IllegalArgumentException("tick rate must be positive: " + tickRate);
+		}
+		this.game = game;
+		this.tickRate = tickRate;
+		this.tickNanos = 1000000000L / tickRate;
+		if(frameRate == DISPLAY_RATE){
+			frameRate = GameLoop.displayRefreshRate();
+		}
+		this.frameNanos = frameRate > 0 ? 1000000000L / frameRate : 0;
+	}
+
+	/**
+	 * Starts ticking on a new thread
+	 */
+	public synchronized void start() {
+		if(this.thread != null){
+			return;
+		}
+		this.running = true;
+		this.thread = new Thread(this, "Jousty Bird game loop");
+		this.thread.start();
+	}
+
+	/**
+	 * Stops the loop once the current frame is finished; safe to call from tick() or render()
+	 */
+	public void stop() {
+		this.running = false;
+	}
+
+	public void run() {
+		long previous = System.nanoTime();
+		long accumulator = 0;
+		long ticks = 0;
+		long frames = 0;
+		long rateStart = previous;
+
+		while(this.running){
+			long now = System.nanoTime();
+			accumulator += now - previous;
+			previous = now;
+
+			// TICKS (skipping frames until the game has caught up)
+			int ticked = 0;
+			while(accumulator >= this.tickNanos && ticked < MAX_TICKS_PER_FRAME){
+				this.tickTime = now - accumulator + this.tickNanos;
+				this.game.tick();
+				accumulator -= this.tickNanos;
+				ticked++;
+			}
+			if(accumulator >= this.tickNanos){ // too far behind to catch up, drop the lost time
+				accumulator %= this.tickNanos;
+			}
+			ticks += ticked;
+
+			// FRAME
+			this.game.render((double)accumulator / this.tickNanos);
+			frames++;
+
+			// RATES
+			long elapsed = System.nanoTime() - rateStart;
+			if(elapsed >= 1000000000L){
+				this.ticksPerSecond = ticks * 1e9 / elapsed;
+				this.framesPerSecond = frames * 1e9 / elapsed;
+				ticks = 0;
+				frames = 0;
+				rateStart += elapsed;
+			}
+
+			// WAIT until the next frame is due, ticks that come due meanwhile run before it
+			if(this.frameNanos > 0){
+				long wait = this.frameNanos - (System.nanoTime() - now);
+				if(wait > 0){
+					LockSupport.parkNanos(wait);
+				}
+			}
+		}
+	}
+
+	/**
+	 * get methods
+	 */
+	public int getTargetTickRate(){
+		return this.tickRate;
+	}
+
+	/**
+	 * @return the System.nanoTime() the tick being run stands for: the end of its timestep, which is
+	 * earlier than now while the loop is catching up; only meaningful from tick()
+	 */
+	public long getTickTime(){
+		return this.tickTime;
+	}
+
+	public double getTickRate(){
+		return this.ticksPerSecond;
+	}
+
+	public double getFrameRate(){
+		return this.framesPerSecond;
+	}
+
+	/**
+	 * The refresh rate of the default screen, or 60 if it cannot be found
+	 */
+	private static int displayRefreshRate() {
+		if(!GraphicsEnvironment.isHeadless()){
+			int rate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+			if(rate != DisplayMode.REFRESH_RATE_UNKNOWN){
+				return rate;
+			}
+		}
+		return 60;
+	}
+}
@@ -0,0 +1,405 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hosts many matches at once in one process, with no window
+ *
+ *  >> players connect over TCP; every two players that connect are put in a match together,
+ *     the first one red and the second one green
+ *  >> all of the network is handled by one thread, waiting on a Selector for every connection at once
+ *  >> every match is ticked by a shared pool of threads (one per processor by default), each match
+ *     at its own fixed rate, so thousands of matches need only a handful of threads
+ *  >> each match counts how late its ticks start and how long they take (see TickStats)
+ *
+ * Messages, each starting with a type byte
+ *  >> WELCOME (server to player): the match number (int) and the player's side (byte, NetSession.RED or GREEN)
+ *  >> INPUT (player to server): a tick word (byte, see Replay.tickWord) of the keys pressed since the last one
+ *  >> STATE (server to player): the tick (int) and the game after it (GameSimulation.writeState, as longs)
+ *  >> END (server to player): the two scores (bytes); the server then hangs up
+ * A player whose connection can't keep up skips states rather than falling behind.
+ *
+ *   java GameServer [port] [threads] [tickRate]
+ */
+public class GameServer implements Runnable {
+
+	public static final byte WELCOME = 1;
+	public static final byte INPUT = 2;
+	public static final byte STATE = 3;
+	public static final byte END = 4;
+	public static final int STATE_MESSAGE_SIZE = 1 + 4 + 8 * GameSimulation.STATE_SIZE;
+	public static final int DEFAULT_PORT = 7788;
+
+	private final Selector selector;
+	private final ServerSocketChannel serverChannel;
+	private final ScheduledThreadPoolExecutor scheduler;
+	private final long periodNanos;
+	private final int tickRate;      // ticks a second of every match
+	private final ConcurrentLinkedQueue<Connection> wantWrite = new ConcurrentLinkedQueue<Connection>(); // finish writing on the network thread
+	private final Set<ServerMatch> matches = ConcurrentHashMap.newKeySet();
+	private final TickStats finished = new TickStats(); // every match that has ended, added up
+	private Connection waiting;      // a player with no one to play yet
+	private int nextMatchId;
+	private volatile boolean running;
+	private Thread thread;
+
+	/**
+	 * @param address where to listen for players
+	 * @param threads how many threads tick the matches
+	 * @param tickRate ticks per second of every match, up to 50; at rates such as 25, each tick stands for more
+	 * than one (see GameSimulation.setTickRate), so matches play at the usual speed for less processor time
+	 */
+	public GameServer(InetSocketAddress address, int threads, int tickRate) throws IOException {
+		if(tickRate < 1 || tickRate > GameSimulation.TICK_RATE){
+			throw new IllegalArgumentException("matches can tick from 1 to " + GameSimulation.TICK_RATE + " times a second, not " + tickRate);
+		}
+		this.selector = Selector.open();
+		this.serverChannel = ServerSocketChannel.open();
+		this.serverChannel.configureBlocking(false);
+		this.serverChannel.bind(address, 1024);
+		this.serverChannel.register(this.selector, SelectionKey.OP_ACCEPT);
+		this.periodNanos = 1000000000L / tickRate;
+		this.tickRate = tickRate;
+		final AtomicInteger threadCount = new AtomicInteger();
+		this.scheduler = new ScheduledThreadPoolExecutor(threads, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Jousty Bird match ticker " + threadCount.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		this.scheduler.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * Starts taking players on a new thread
+	 */
+	public synchronized void start() {
+		if(this.thread != null){
+			return;
+		}
+		this.running = true;
+		this.thread = new Thread(this, "Jousty Bird server");
+		this.thread.start();
+	}
+
+	/**
+	 * Ends every match and stops
+	 */
+	public void stop() throws IOException {
+		this.running = false;
+		this.selector.wakeup();
+		try{
+			if(this.thread != null){
+				this.thread.join();
+			}
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+		for(ServerMatch match : this.matches){
+			match.end();
+		}
+		this.scheduler.shutdown();
+		this.serverChannel.close();
+		this.selector.close();
+	}
+
+	/**
+	 * The network thread
+	 */
+	public void run() {
+		try{
+			while(this.running){
+				this.selector.select(100);
+				Connection unfinished;
+				while((unfinished = this.wantWrite.poll()) != null){
+					if(unfinished.key.isValid()){
+						unfinished.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+					}
+				}
+				Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+				while(keys.hasNext()){
+					SelectionKey key = keys.next();
+					keys.remove();
+					if(!key.isValid()){
+						continue;
+					}
+					if(key.isAcceptable()){
+						this.accept();
+						continue;
+					}
+					Connection connection = (Connection)key.attachment();
+					if(key.isReadable()){
+						this.read(connection);
+					}
+					if(key.isValid() && key.isWritable()){
+						connection.flush();
+					}
+				}
+			}
+		} catch(IOException e){
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while((channel = this.serverChannel.accept()) != null){
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			Connection connection = new Connection(this, channel);
+			connection.key = channel.register(this.selector, SelectionKey.OP_READ, connection);
+			if(this.waiting == null){
+				this.waiting = connection;
+			} else{
+				this.startMatch(this.waiting, connection);
+				this.waiting = null;
+			}
+		}
+	}
+
+	/**
+	 * Puts two players in a new match; matches are spread out over the tick period, so they don't all tick at once
+	 */
+	private void startMatch(Connection red, Connection green) {
+		int id = this.nextMatchId++;
+		long delay = this.periodNanos * ((id * 7919L) % 1000) / 1000;
+		ServerMatch match = new ServerMatch(id, this, red, green, System.nanoTime() + delay, this.periodNanos);
+		match.getGame().setTickRate(this.tickRate);
+		red.match = match;
+		green.match = match;
+		this.matches.add(match);
+		for(Connection player : new Connection[] { red, green }){
+			ByteBuffer welcome = ByteBuffer.allocate(6);
+			welcome.put(WELCOME);
+			welcome.putInt(id);
+			welcome.put((byte)(player == red ? NetSession.RED : NetSession.GREEN));
+			welcome.flip();
+			player.send(welcome);
+		}
+		match.started(this.scheduler.scheduleAtFixedRate(match, delay, this.periodNanos, TimeUnit.NANOSECONDS));
+	}
+
+	private void read(Connection connection) {
+		ByteBuffer in = connection.in;
+		try{
+			if(connection.channel.read(in) < 0){
+				this.hangUp(connection);
+				return;
+			}
+		} catch(IOException e){
+			this.hangUp(connection);
+			return;
+		}
+		in.flip();
+		while(in.remaining() >= 2){
+			byte type = in.get();
+			int word = in.get() & 0xFF;
+			if(type != INPUT){
+				this.hangUp(connection);
+				return;
+			}
+			if(connection.match != null){
+				connection.match.input(connection, word);
+			}
+		}
+		in.compact();
+	}
+
+	/**
+	 * A player left (or broke the rules); their match ends
+	 */
+	private void hangUp(Connection connection) {
+		connection.close();
+		if(this.waiting == connection){
+			this.waiting = null;
+		}
+		if(connection.match != null){
+			connection.match.end();
+		}
+	}
+
+	/**
+	 * Called by a match when it ends
+	 */
+	void ended(ServerMatch match) {
+		if(this.matches.remove(match)){
+			synchronized(this.finished){
+				this.finished.add(match.getStats());
+			}
+		}
+	}
+
+	/**
+	 * get methods
+	 */
+	public int getPort(){
+		return this.serverChannel.socket().getLocalPort();
+	}
+
+	public int getMatchCount(){
+		return this.matches.size();
+	}
+
+	public List<ServerMatch> getMatches(){
+		return new ArrayList<ServerMatch>(this.matches);
+	}
+
+	/**
+	 * @return the tick times of every match, running or ended, added up
+	 */
+	public TickStats getTotals(){
+		TickStats totals = new TickStats();
+		synchronized(this.finished){
+			totals.add(this.finished);
+		}
+		for(ServerMatch match : this.matches){
+			totals.add(match.getStats());
+		}
+		return totals;
+	}
+
+	/**
+	 * A few lines on how the server is doing: every match added up, and the matches whose ticks were latest
+	 */
+	public String report() {
+		StringBuilder report = new StringBuilder();
+		report.append(this.getMatchCount()).append(" matches, all: ").append(this.getTotals()).append('\n');
+		List<ServerMatch> latest = this.getMatches();
+		Collections.sort(latest, new Comparator<ServerMatch>() {
+			public int compare(ServerMatch a, ServerMatch b) {
+				return Long.compare(b.getStats().getMaxLatenessMicros(), a.getStats().getMaxLatenessMicros());
+			}
+		});
+		for(int i = 0; i < Math.min(3, latest.size()); i++){
+			report.append("  match ").append(latest.get(i).getId()).append(": ").append(latest.get(i).getStats()).append('\n');
+		}
+		return report.toString();
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int tickRate = args.length > 2 ? Integer.parseInt(args[2]) : GameLoop.DEFAULT_TICK_RATE;
+		GameServer server = new GameServer(new InetSocketAddress(port), threads, tickRate);
+		server.start();
+		System.out.println("listening on port " + server.getPort() + ", ticking on " + threads + " threads at " + tickRate + " Hz");
+		while(true){
+			Thread.sleep(10000);
+			System.out.print(server.report());
+		}
+	}
+
+	/**
+	 * One player's connection
+	 *
+	 * States are written straight from the ticking thread; if the connection can't take all of
+	 * a message, the rest is written later by the network thread, and states that come meanwhile are skipped.
+	 */
+	static class Connection {
+
+		private final GameServer server;
+		final SocketChannel channel;
+		SelectionKey key;
+		ServerMatch match;
+		final ByteBuffer in = ByteBuffer.allocate(256);
+		private final ByteBuffer pending = ByteBuffer.allocate(2 * STATE_MESSAGE_SIZE);
+		private boolean closeWhenWritten;
+		private boolean closed;
+		private long skipped;
+
+		Connection(GameServer server, SocketChannel channel) {
+			this.server = server;
+			this.channel = channel;
+			this.pending.flip(); // nothing pending
+		}
+
+		/**
+		 * Sends a message, or skips it if the last one hasn't gone out yet
+		 */
+		synchronized void send(ByteBuffer message) {
+			if(this.closed || this.closeWhenWritten){
+				return;
+			}
+			if(this.pending.hasRemaining()){
+				this.skipped++;
+				return;
+			}
+			this.pending.clear();
+			this.pending.put(message.duplicate());
+			this.pending.flip();
+			this.write();
+		}
+
+		/**
+		 * Sends a last message after anything still pending, then hangs up
+		 */
+		synchronized void sendFinally(ByteBuffer message) {
+			if(this.closed || this.closeWhenWritten){
+				return;
+			}
+			this.pending.compact();
+			this.pending.put(message.duplicate());
+			this.pending.flip();
+			this.closeWhenWritten = true;
+			this.write();
+		}
+
+		/**
+		 * Writes what's pending, on the network thread once the connection can take more
+		 */
+		synchronized void flush() {
+			this.write();
+			if(!this.pending.hasRemaining() && this.key.isValid()){
+				this.key.interestOps(SelectionKey.OP_READ);
+			}
+		}
+
+		private void write() {
+			try{
+				this.channel.write(this.pending);
+			} catch(IOException e){
+				this.close();
+				return;
+			}
+			if(this.pending.hasRemaining()){
+				this.server.wantWrite.add(this);
+				this.server.selector.wakeup();
+			} else if(this.closeWhenWritten){
+				this.close();
+			}
+		}
+
+		synchronized void close() {
+			if(this.closed){
+				return;
+			}
+			this.closed = true;
+			try{
+				this.channel.close();
+			} catch(IOException e){
+				// closing anyway
+			}
+		}
+
+		synchronized long getSkipped(){
+			return this.skipped;
+		}
+	}
+}
@@ -0,0 +1,707 @@
+/**
+ * Headless game engine for Jousty Bird
+ *
+ * Owns everything in a match that changes from tick to tick
+ *  >> the two birds and the score
+ *  >> the arena's platforms (and their motion if moving platforms are on)
+ *  >> lava death (if the lava pit is on)
+ *  >> platform collisions, bird collisions and scoring
+ *  >> if pixel collisions are on (see setPixelMasks), birds only collide where their pictures really touch
+ *  >> a step can stand for more than one tick (see setTickRate), for running at a lower tick rate;
+ *     birds are then swept along their whole move, so they can't go through platforms or each other in between
+ *
+ * Nothing here needs a window or a display; the game only advances when step() is called,
+ * so matches can be run as fast as the CPU allows. JoustScreen just renders the state exposed here.
+ */
+public class GameSimulation {
+
+	/**
+	 * Input bits for step(), one for each key pressed since the previous tick
+	 */
+	public static final int INPUT_RED_LEFT = 1;     // A
+	public static final int INPUT_RED_RIGHT = 2;    // S
+	public static final int INPUT_GREEN_LEFT = 4;   // K
+	public static final int INPUT_GREEN_RIGHT = 8;  // L
+	public static final int INPUT_PAUSE = 16;       // Enter
+
+	public static final int WINNING_SCORE = 10;
+	public static final int BIRD_SIZE = 80; // width and height of the provided bird images
+	public static final int STATE_SIZE = 17; // longs taken by writeState
+	public static final int TICK_RATE = 50;  // ticks a second, the speed the game is played at however often it is stepped
+
+	/**
+	 * Game play fields
+	 */
+	private Bird birdyBird;
+	private Bird otherBird;
+	private final Arena arena;
+	private final Hitbox[] platforms; // where each of the arena's platforms is now
+	private final Hitbox[] solids;       // the part of each platform birds stand on
+	private final int[] phases;          // how far into its lap each platform is
+	private int motionTicks;             // ticks the platforms have moved for since the match started
+	private boolean motionFromIdle;      // moving from where they wait for the start, rather than where they rest
+	private int leftPlayerScore = 0;
+	private int rightPlayerScore = 0;
+	private Hitbox b1 = new Hitbox();    // the birds' bodies, for bird collisions
+	private Hitbox b2 = new Hitbox();
+	private Hitbox bird1 = new Hitbox(); // the birds' whole pictures, for platform collisions
+	private Hitbox bird2 = new Hitbox();
+	private int gameTime;
+	private CollisionBox boxCheck = new CollisionBox();
+	private final int RIGHT = 1;
+	private final int LEFT = -1;
+	private boolean leftScored;
+	private boolean rightScored;
+	private int gameTimeAtScore;
+	private SpriteMask[] redMasks;       // the solid pixels of each of the birds' frames, or null for box collisions only
+	private SpriteMask[] greenMasks;
+	private Hitbox from = new Hitbox();  // a bird's box at the start of the step, for swept collisions
+	private Hitbox otherFrom = new Hitbox();
+	private Hitbox path = new Hitbox();  // all the way along a bird's move, to only sweep what it might have hit
+	private Hitbox otherPath = new Hitbox();
+
+	/**
+	 * Settings
+	 */
+	private boolean movingPlatformsOn = false;
+	private boolean lavaOn = false;
+	private boolean pauseGame = true;
+	private boolean gameStart = false;
+	private int tickRate = TICK_RATE;  // steps a second
+	private double ticksPerStep = 1;   // TICK_RATE / tickRate, how far the birds move and fall in a step
+	private boolean sweptCollisions = false;
+
+	/**
+	 * The platforms and the game time only move on by whole ticks (see wholeTicks)
+	 */
+	private int tickRemainder = 0;     // how far they are behind the birds, in tickRate-ths of a tick
+	private int stepTicks = 1;         // whole ticks they moved on in the last step
+
+	/**
+	 * Creates a headless match in the original arena; the birds have no images, only the size of the provided ones
+	 */
+	public GameSimulation() {
+		this(Arena.classic());
+	}
+
+	/**
+	 * Creates a headless match in the given arena
+	 */
+	public GameSimulation(Arena arena) {
+		this(arena, new Bird(BIRD_SIZE, BIRD_SIZE, 0, 100), new Bird(BIRD_SIZE, BIRD_SIZE, 0, 700));
+	}
+
+	/**
+	 * Creates a match between the given birds in the original arena
+	 * @param red the left player's bird (A and S keys)
+	 * @param green the right player's bird (K and L keys)
+	 */
+	public GameSimulation(Bird red, Bird green) {
+		this(Arena.classic(), red, green);
+	}
+
+	/**
+	 * Creates a match between the given birds, at the arena's starts
+	 * @param arena where the match is played
+	 * @param red the left player's bird (A and S keys)
+	 * @param green the right player's bird (K and L keys)
+	 */
+	public GameSimulation(Arena arena, Bird red, Bird green) {
+		this.arena = arena;
+		this.birdyBird = red;
+		this.otherBird = green;
+		this.birdyBird.setXPosition(arena.getStartX(true));
+		this.birdyBird.setYPosition(arena.getStartY(true));
+		this.birdyBird.rememberPosition();
+		this.otherBird.setXPosition(arena.getStartX(false));
+		this.otherBird.setYPosition(arena.getStartY(false));
+		this.otherBird.rememberPosition();
+		this.otherBird.setFacing(3);
+		int count = arena.getPlatformCount();
+		this.platforms = new Hitbox[count];
+		this.solids = new Hitbox[count];
+		this.phases = new int[count];
+		for(int p = 0; p < count; p++){
+			this.platforms[p] = new Hitbox().set(0, 0, arena.getWidth(p), arena.getHeight(p));
+			this.solids[p] = new Hitbox().set(0, 0, arena.getSolidWidth(p), arena.getHeight(p));
+		}
+		this.placePlatforms();
+	}
+
+	/**
+	 * Advances the game by one tick
+	 *
+	 * 	>> KEYS PRESSED SINCE THE LAST TICK
+	 *  >> MOMENTUM & DRAG
+	 *  >> MOVING WALLS (if selected in options window)
+	 *  >> LAVA DEATH  (if selected in options window)
+	 *  >> PLATFORM COLLISIONS
+	 *  >> BIRD COLLISIONS & SCORING
+	 *  >> KEEP BIRDS FACING EACHOTHER
+	 *  >> ALLOW GAME TO PAUSE/UNPAUSE
+	 *
+	 * @param inputs the INPUT_ bits of every key pressed since the previous tick
+	 */
+	public void step(int inputs) {
+		this.stepTicks = this.wholeTicks();
+
+		// KEYS
+		this.birdyBird.rememberPosition();
+		this.otherBird.rememberPosition();
+		this.applyInputs(inputs);
+
+		// MOMENTUM, DRAG
+		if(this.gameStart == true){
+			this.birdyBird.changePosition(this.ticksPerStep);
+			this.otherBird.changePosition(this.ticksPerStep);
+		}
+
+		// MOVING WALLS
+		if(this.movingPlatformsOn){
+			this.updatePlatformPosition();
+		}
+
+		// LAVA DEATH
+		if(this.lavaOn){
+			if(this.arena.isInLava(this.birdyBird.getXPosition(), this.birdyBird.getYPosition())){
+				this.lavaRespawn(this.birdyBird);
+				this.rightPlayerScore++;
+			}
+			if(this.arena.isInLava(this.otherBird.getXPosition(), this.otherBird.getYPosition())){
+				this.lavaRespawn(this.otherBird);
+				this.leftPlayerScore++;
+			}
+		}
+
+		// PLATFORM COLLISIONS
+		this.checkBoxCollisions();
+
+		// BIRD COLLISIONS AND SCORING
+		this.checkBirdCollisions();
+
+		// FACING
+		if(this.birdyBird.getXPosition() >= this.otherBird.getXPosition()){
+			this.birdyBird.setFacing(3);
+			this.otherBird.setFacing(0);
+		}else{
+			this.birdyBird.setFacing(0);
+			this.otherBird.setFacing(3);
+		}
+
+		// PAUSE GAME
+		if(this.pauseGame == false){ //pauseGame is changed by pressing enter at any point during the game
+			this.gameStart = true;
+			this.gameTime += this.stepTicks;
+		}
+	}
+
+	/**
+	 * Handles the movement of each character for the keys pressed since the last tick
+	 */
+	private void applyInputs(int inputs) {
+
+		if ((inputs & INPUT_RED_LEFT) != 0 && this.gameStart == true) {
+			this.birdyBird.changeVelocity(this.LEFT);
+			this.birdyBird.setFacing(this.birdyBird.getFacing()+1);
+		}
+		if((inputs & INPUT_RED_RIGHT) != 0 && this.gameStart == true){
+			this.birdyBird.changeVelocity(this.RIGHT);
+		}
+		if((inputs & INPUT_GREEN_LEFT) != 0 && this.gameStart == true){
+			this.otherBird.changeVelocity(this.LEFT);
+		}
+		if((inputs & INPUT_GREEN_RIGHT) != 0 && this.gameStart == true){
+			this.otherBird.changeVelocity(this.RIGHT);
+		}
+		if((inputs & INPUT_PAUSE) != 0){
+			this.pauseGame = !this.pauseGame;
+		}
+	}
+
+	/**
+	 * Check for platform collisions and apply gravity
+	 */
+	void checkBoxCollisions(){
+		//BOX COLLISIONS
+		this.b1.set((int)this.birdyBird.getXPosition(), (int)this.birdyBird.getYPosition(), this.birdyBird.getWidth()/2, this.birdyBird.getHeight()-30);
+		Hitbox bird1 = this.bird1.set((int)this.birdyBird.getXPosition() - this.birdyBird.getWidth()/2, (int)this.birdyBird.getYPosition() - this.birdyBird.getHeight()/2, this.birdyBird.getWidth(), this.birdyBird.getHeight());
+		Hitbox bird2 = this.bird2.set((int)this.otherBird.getXPosition() - this.otherBird.getWidth()/2, (int)this.otherBird.getYPosition() - this.otherBird.getHeight()/2, this.otherBird.getWidth(), this.otherBird.getHeight());
+		this.b2.set((int)this.otherBird.getXPosition(), (int)this.otherBird.getYPosition(), this.otherBird.getWidth()/2, this.otherBird.getHeight()-30);
+		this.checkBoxCollisions(this.birdyBird, bird1);
+		this.checkBoxCollisions(this.otherBird, bird2);
+	}
+
+	/**
+	 * Stands the bird on (or bounces it off the bottom of) the first platform it is in, or lets it fall
+	 */
+	private void checkBoxCollisions(Bird bird, Hitbox box){
+		for(int p = 0; p < this.platforms.length; p++){
+			if(this.boxCheck.checkForBoxCollision(box, this.solids[p], this.arena.getDepth())){
+				this.hitPlatform(bird, p);
+				return;
+			}
+		}
+		if(this.isSweptCollisionsOn() && this.sweepBoxCollisions(bird, box)){
+			return;
+		}
+		//GRAVITY
+		bird.fall(this.ticksPerStep);
+	}
+
+	/**
+	 * Looks for platforms the bird went right through during the step, and if there were any, puts it
+	 * back where it hit the first one and stands it on it (or bounces it off it)
+	 * @return if it hit one
+	 */
+	private boolean sweepBoxCollisions(Bird bird, Hitbox box){
+		Hitbox from = this.from.set((int)bird.getPreviousXPosition() - bird.getWidth()/2, (int)bird.getPreviousYPosition() - bird.getHeight()/2, bird.getWidth(), bird.getHeight());
+		Hitbox path = this.path.cover(from, box.x, box.y);
+		int hit = -1;
+		double first = 1;
+		for(int p = 0; p < this.platforms.length; p++){
+			if(!path.intersects(this.solids[p])){
+				continue;
+			}
+			double t = this.boxCheck.sweepForBoxCollision(from, box.x - from.x, box.y - from.y, this.solids[p], this.arena.getDepth());
+			if(t >= 0 && t < first){
+				first = t;
+				hit = p;
+			}
+		}
+		if(hit < 0){
+			return false;
+		}
+		this.moveBack(bird, first);
+		this.hitPlatform(bird, hit);
+		return true;
+	}
+
+	/**
+	 * Stands the bird on platform p if it is above the middle of it, or bounces it off the bottom
+	 */
+	private void hitPlatform(Bird bird, int p){
+		Hitbox platform = this.platforms[p];
+		if(bird.getYPosition() <= platform.y + platform.height / 2.0){
+
+			bird.setYPosition(platform.y - 1 - bird.getHeight()/(4));
+		}
+		else{
+			bird.setYVelocity(bird.getYVelocity() * -1.25);
+		}
+	}
+
+	/**
+	 * Moves a bird back along its move this step
+	 * @param t how far through the step (0 to 1) to put it
+	 */
+	private void moveBack(Bird bird, double t){
+		bird.setXPosition(bird.getPreviousXPosition() + (bird.getXPosition() - bird.getPreviousXPosition()) * t);
+		bird.setYPosition(bird.getPreviousYPosition() + (bird.getYPosition() - bird.getPreviousYPosition()) * t);
+	}
+
+	/**
+	 * This method will check for two birds colliding.
+	 * Respective player's score is updated if a valid collision occurs
+	 */
+	void checkBirdCollisions(){
+		Collision collision;
+		if(this.redMasks != null){
+			collision = this.boxCheck.checkBirdCollision(this.b1, this.b2,
+					this.redMasks[this.birdyBird.getFacing()], this.bird1.x, this.bird1.y,
+					this.greenMasks[this.otherBird.getFacing()], this.bird2.x, this.bird2.y); // where the pictures are drawn
+		}
+		else{
+			collision = this.boxCheck.checkBirdCollision(this.b1, this.b2);
+		}
+		if(collision == Collision.NONE && this.isSweptCollisionsOn()){
+			collision = this.sweepBirdCollisions();
+		}
+		if(collision == Collision.A_SCORES){ // birdyBird scores
+
+			this.respawn(this.otherBird);
+			this.leftPlayerScore++;
+			this.leftScored = true;
+			this.gameTimeAtScore = this.gameTime;
+		}
+		else if(collision == Collision.B_SCORES){ // otherBird scores
+
+			this.respawn(this.birdyBird);
+			this.rightPlayerScore++;
+			this.rightScored = true;
+			this.gameTimeAtScore = this.gameTime;
+		}
+		else if(collision == Collision.PARTIAL){
+
+			if(this.birdyBird.getXVelocity() <= 0 ){
+				this.birdyBird.bounce(RIGHT);
+			}
+			else if(this.birdyBird.getXVelocity() > 0){
+				this.birdyBird.bounce(LEFT);
+			}
+			if(this.otherBird.getXVelocity() <= 0){
+				this.otherBird.bounce(RIGHT);
+			}
+			else if(this.otherBird.getXVelocity() > 0){
+				this.otherBird.bounce(LEFT);
+			}
+
+		}
+		else if(this.gameTimeAtScore + 100 < this.gameTime){
+			this.rightScored = false;
+			this.leftScored = false;
+		}
+	}
+
+	/**
+	 * Looks for birds that went right through each other during the step, and if they did, puts them back
+	 * where they were furthest into each other
+	 * @return the collision there
+	 */
+	private Collision sweepBirdCollisions(){
+		Bird a = this.birdyBird;
+		Bird b = this.otherBird;
+		Hitbox from = this.from.set((int)a.getPreviousXPosition(), (int)a.getPreviousYPosition(), this.b1.width, this.b1.height);
+		Hitbox otherFrom = this.otherFrom.set((int)b.getPreviousXPosition(), (int)b.getPreviousYPosition(), this.b2.width, this.b2.height);
+		if(!this.path.cover(from, (int)a.getXPosition(), (int)a.getYPosition()).intersects(this.otherPath.cover(otherFrom, (int)b.getXPosition(), (int)b.getYPosition()))){
+			return Collision.NONE;
+		}
+		double t = this.boxCheck.sweepForBirdCollision(from, a.getXPosition() - a.getPreviousXPosition(), a.getYPosition() - a.getPreviousYPosition(),
+				otherFrom, b.getXPosition() - b.getPreviousXPosition(), b.getYPosition() - b.getPreviousYPosition());
+		if(t < 0){
+			return Collision.NONE;
+		}
+		double ax = a.getXPosition(), ay = a.getYPosition(), bx = b.getXPosition(), by = b.getYPosition();
+		this.moveBack(a, t);
+		this.moveBack(b, t);
+		this.b1.set((int)a.getXPosition(), (int)a.getYPosition(), this.b1.width, this.b1.height);
+		this.b2.set((int)b.getXPosition(), (int)b.getYPosition(), this.b2.width, this.b2.height);
+		Collision collision;
+		if(this.redMasks != null){
+			this.bird1.set((int)a.getXPosition() - a.getWidth()/2, (int)a.getYPosition() - a.getHeight()/2, a.getWidth(), a.getHeight());
+			this.bird2.set((int)b.getXPosition() - b.getWidth()/2, (int)b.getYPosition() - b.getHeight()/2, b.getWidth(), b.getHeight());
+			collision = this.boxCheck.checkBirdCollision(this.b1, this.b2,
+					this.redMasks[a.getFacing()], this.bird1.x, this.bird1.y, this.greenMasks[b.getFacing()], this.bird2.x, this.bird2.y);
+		}
+		else{
+			collision = this.boxCheck.checkBirdCollision(this.b1, this.b2);
+		}
+		if(collision == Collision.NONE){ // only the masks' corners crossed, so they carry on as they were
+			a.setXPosition(ax);
+			a.setYPosition(ay);
+			b.setXPosition(bx);
+			b.setYPosition(by);
+		}
+		return collision;
+	}
+
+	/**
+	 * Puts a bird that was landed on at the arena's spawn farthest across from it
+	 */
+	private void respawn(Bird bird){
+		int spawn = this.arena.spawnAcrossFrom(bird.getXPosition());
+		bird.setXPosition(this.arena.getSpawnX(spawn));
+		bird.setYPosition(this.arena.getSpawnY(spawn));
+		bird.rememberPosition();
+	}
+
+	/**
+	 * Throws a bird that fell in the lava back up, from where the arena says (see Arena.getLavaRespawnY)
+	 * or else from a spawn, as if it had been landed on
+	 */
+	private void lavaRespawn(Bird bird){
+		if(this.arena.hasLavaRespawnY()){
+			bird.setYPosition(this.arena.getLavaRespawnY());
+		} else{
+			this.respawn(bird);
+		}
+		bird.setYVelocity(-10);
+		bird.rememberPosition();
+	}
+
+	/**
+	 * This method will move the platforms one step further along their paths if
+	 * moving platforms are selected in the game menu; until the match starts, they wait at their idle places
+	 */
+	void updatePlatformPosition(){
+		if(this.gameStart == true){
+			this.motionTicks += this.stepTicks;
+			for(int m = 0; m < this.arena.getMovingCount(); m++){
+				int p = this.arena.getMovingPlatform(m);
+				this.phases[p] += this.stepTicks;
+				if(this.phases[p] >= this.arena.getLapLength(p)){
+					this.phases[p] %= this.arena.getLapLength(p);
+				}
+				this.place(p);
+			}
+		}
+		else{
+			this.motionTicks = 0;
+			this.motionFromIdle = true;
+			for(int m = 0; m < this.arena.getMovingCount(); m++){
+				int p = this.arena.getMovingPlatform(m);
+				this.phases[p] = this.arena.getIdlePhase(p);
+				this.place(p);
+			}
+		}
+	}
+
+	/**
+	 * Works out where every platform is from how far they have moved, after a readState
+	 */
+	private void placePlatforms(){
+		for(int p = 0; p < this.platforms.length; p++){
+			long from = this.motionFromIdle ? this.arena.getIdlePhase(p) : this.arena.getStartPhase(p);
+			this.phases[p] = (int)((from + this.motionTicks) % this.arena.getLapLength(p));
+			this.place(p);
+		}
+	}
+
+	/**
+	 * Moves a platform, and the part of it birds stand on, to where it is in its lap
+	 */
+	private void place(int p){
+		Hitbox platform = this.platforms[p];
+		Hitbox solid = this.solids[p];
+		platform.x = solid.x = this.arena.getX(p, this.phases[p]);
+		platform.y = solid.y = this.arena.getY(p, this.phases[p]);
+	}
+
+	/**
+	 * How many whole ticks the platforms and the game time move on in this step: TICK_RATE / tickRate
+	 * when that is a whole number, and otherwise the two whole numbers either side of it in turn, so
+	 * they still move on TICK_RATE ticks a second (2, 3, 2, 3 at 20 Hz; 1, 2, 2 at 30 Hz)
+	 */
+	private int wholeTicks(){
+		int owed = this.tickRemainder + TICK_RATE;
+		this.tickRemainder = owed % this.tickRate;
+		return owed / this.tickRate;
+	}
+
+	/**
+	 * A hash of everything that decides how the match goes on from here; two games with the
+	 * same checksum are (almost certainly) in the same state, and play by the same rules
+	 */
+	public long checksum() {
+		long h = 17;
+		h = GameSimulation.hash(h, this.birdyBird);
+		h = GameSimulation.hash(h, this.otherBird);
+		h = h * 31 + this.arena.getFingerprint();
+		h = h * 31 + this.motionTicks;
+		h = h * 31 + this.leftPlayerScore;
+		h = h * 31 + this.rightPlayerScore;
+		h = h * 31 + this.gameTime;
+		h = h * 31 + this.gameTimeAtScore;
+		h = h * 31 + this.tickRemainder;
+		h = h * 31 + (this.leftScored ? 1 : 0) + (this.rightScored ? 2 : 0) + (this.pauseGame ? 4 : 0) + (this.gameStart ? 8 : 0)
+				+ (this.lavaOn ? 16 : 0) + (this.movingPlatformsOn ? 32 : 0) + (this.motionFromIdle ? 64 : 0)
+				+ (this.redMasks != null ? 128 : 0) + (this.isSweptCollisionsOn() ? 256 : 0);
+		return h;
+	}
+
+	/**
+	 * Copies everything that decides how the match goes on from here into STATE_SIZE longs,
+	 * the same things checksum() looks at
+	 * @param into where to copy to
+	 * @param offset where in the array to start
+	 */
+	public void writeState(long[] into, int offset) {
+		GameSimulation.writeBird(into, offset, this.birdyBird);
+		GameSimulation.writeBird(into, offset + 5, this.otherBird);
+		into[offset + 10] = this.motionTicks;
+		into[offset + 11] = this.leftPlayerScore;
+		into[offset + 12] = this.rightPlayerScore;
+		into[offset + 13] = this.gameTime;
+		into[offset + 14] = this.gameTimeAtScore;
+		into[offset + 15] = (this.leftScored ? 1 : 0) | (this.rightScored ? 2 : 0) | (this.pauseGame ? 4 : 0) | (this.gameStart ? 8 : 0)
+				| (this.lavaOn ? 16 : 0) | (this.movingPlatformsOn ? 32 : 0) | (this.motionFromIdle ? 64 : 0);
+		into[offset + 16] = this.tickRemainder;
+	}
+
+	/**
+	 * Puts the match back in a state copied by writeState; the birds are drawn standing still there
+	 * @param from where to copy from
+	 * @param offset where in the array the state starts
+	 */
+	public void readState(long[] from, int offset) {
+		GameSimulation.readBird(from, offset, this.birdyBird);
+		GameSimulation.readBird(from, offset + 5, this.otherBird);
+		this.motionTicks = (int)from[offset + 10];
+		this.leftPlayerScore = (int)from[offset + 11];
+		this.rightPlayerScore = (int)from[offset + 12];
+		this.gameTime = (int)from[offset + 13];
+		this.gameTimeAtScore = (int)from[offset + 14];
+		long flags = from[offset + 15];
+		this.leftScored = (flags & 1) != 0;
+		this.rightScored = (flags & 2) != 0;
+		this.pauseGame = (flags & 4) != 0;
+		this.gameStart = (flags & 8) != 0;
+		this.lavaOn = (flags & 16) != 0;
+		this.movingPlatformsOn = (flags & 32) != 0;
+		this.motionFromIdle = (flags & 64) != 0;
+		this.tickRemainder = (int)from[offset + 16];
+		this.placePlatforms();
+	}
+
+	private static void writeBird(long[] into, int offset, Bird bird) {
+		into[offset] = Double.doubleToRawLongBits(bird.getXPosition());
+		into[offset + 1] = Double.doubleToRawLongBits(bird.getYPosition());
+		into[offset + 2] = Double.doubleToRawLongBits(bird.getXVelocity());
+		into[offset + 3] = Double.doubleToRawLongBits(bird.getYVelocity());
+		into[offset + 4] = bird.getFacing();
+	}
+
+	private static void readBird(long[] from, int offset, Bird bird) {
+		bird.setXPosition(Double.longBitsToDouble(from[offset]));
+		bird.setYPosition(Double.longBitsToDouble(from[offset + 1]));
+		bird.setXVelocity(Double.longBitsToDouble(from[offset + 2]));
+		bird.setYVelocity(Double.longBitsToDouble(from[offset + 3]));
+		bird.setFacing((int)from[offset + 4]);
+		bird.rememberPosition();
+	}
+
+	private static long hash(long h, Bird bird) {
+		h = h * 31 + Double.doubleToLongBits(bird.getXPosition());
+		h = h * 31 + Double.doubleToLongBits(bird.getYPosition());
+		h = h * 31 + Double.doubleToLongBits(bird.getXVelocity());
+		h = h * 31 + Double.doubleToLongBits(bird.getYVelocity());
+		return h * 31 + bird.getFacing();
+	}
+
+	/**
+	 * get methods
+	 */
+	public Bird getRedBird(){
+		return this.birdyBird;
+	}
+
+	public Bird getGreenBird(){
+		return this.otherBird;
+	}
+
+	public Arena getArena(){
+		return this.arena;
+	}
+
+	public int getPlatformCount(){
+		return this.platforms.length;
+	}
+
+	/**
+	 * @return where a platform is now, for drawing it
+	 */
+	public Hitbox getPlatform(int platform){
+		return this.platforms[platform];
+	}
+
+	public int getLeftPlayerScore(){
+		return this.leftPlayerScore;
+	}
+
+	public int getRightPlayerScore(){
+		return this.rightPlayerScore;
+	}
+
+	public boolean hasLeftScored(){
+		return this.leftScored;
+	}
+
+	public boolean hasRightScored(){
+		return this.rightScored;
+	}
+
+	public int getGameTime(){
+		return this.gameTime;
+	}
+
+	public boolean isGameStarted(){
+		return this.gameStart;
+	}
+
+	public boolean isPaused(){
+		return this.pauseGame;
+	}
+
+	public boolean isGameOver(){
+		return this.rightPlayerScore == WINNING_SCORE || this.leftPlayerScore == WINNING_SCORE;
+	}
+
+	public boolean isLavaOn(){
+		return this.lavaOn;
+	}
+
+	public boolean isMovingPlatformsOn(){
+		return this.movingPlatformsOn;
+	}
+
+	public boolean isPixelCollisionsOn(){
+		return this.redMasks != null;
+	}
+
+	public int getTickRate(){
+		return this.tickRate;
+	}
+
+	/**
+	 * @return how many whole ticks the platforms and the game time moved on in the last step
+	 */
+	public int getStepTicks(){
+		return this.stepTicks;
+	}
+
+	/**
+	 * @return if birds are swept along their moves, which they always are when a step is more than one tick
+	 */
+	public boolean isSweptCollisionsOn(){
+		return this.sweptCollisions || this.tickRate < TICK_RATE;
+	}
+
+	/**
+	 * set methods
+	 */
+	public void setLavaOn(boolean on){
+		this.lavaOn = on;
+	}
+
+	public void setMovingPlatformsOn(boolean on){
+		this.movingPlatformsOn = on;
+	}
+
+	/**
+	 * Makes every step stand for TICK_RATE / tickRate ticks, so the game plays at the same speed when stepped
+	 * tickRate times a second: the birds move and fall that many ticks' worth at once (2.5 at 20 Hz), and the
+	 * platforms and the game time move on by whole ticks that add up to it (see wholeTicks). Not part of the
+	 * state, so both ends of a replay or a net game have to use the same. TICK_RATE (the default) is the original
+	 * game, tick for tick; a step can't be less than a tick, so the game can't be stepped faster than that.
+	 */
+	public void setTickRate(int tickRate){
+		if(tickRate < 1 || tickRate > TICK_RATE){
+			throw new IllegalArgumentException("the game can be stepped from 1 to " + TICK_RATE + " times a second, not " + tickRate);
+		}
+		this.tickRate = tickRate;
+		this.ticksPerStep = TICK_RATE / (double)tickRate;
+		this.tickRemainder = 0;
+	}
+
+	/**
+	 * Sweeps birds along their moves even with one tick a step, in case something makes them fast enough to
+	 * go through a platform in one tick; not part of the state either, but checksum() tells it apart
+	 */
+	public void setSweptCollisions(boolean on){
+		this.sweptCollisions = on;
+	}
+
+	/**
+	 * Turns pixel collisions on: birds whose boxes overlap only collide if their pictures touch too.
+	 * Not part of the state, so both ends of a replay or a net game have to set the same masks
+	 * (see Replay.rules); checksum() tells them apart, so a game played without them doesn't match.
+	 * @param red the solid pixels of the red bird's six frames (see SpriteCache.getBirdMasks), or null to turn them off
+	 * @param green the same for the green bird
+	 */
+	public void setPixelMasks(SpriteMask[] red, SpriteMask[] green){
+		if((red == null) != (green == null)){
+			throw new IllegalArgumentException("both birds need masks, or neither");
+		}
+		this.redMasks = red;
+		this.greenMasks = green;
+	}
+}
@@ -0,0 +1,59 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+
+/**
+ * Draws whole frames of the two player game
+ *  >> background & lava pit (erases the previous frame)
+ *  >> both birds
+ *  >> platforms
+ *  >> on screen messages (see Hud)
+ *
+ * It needs no window, so a frame can be drawn into any image, such as an offscreen one
+ * when measuring how long frames take.
+ */
+public class GameView {
+
+	private final BackgroundLayer backgroundLayer;
+	private final Hud hud;
+
+	/**
+	 * @param backgroundLayer everything behind the birds
+	 * @param hud the messages, drawn over everything else
+	 */
+	public GameView(BackgroundLayer backgroundLayer, Hud hud) {
+		this.backgroundLayer = backgroundLayer;
+		this.hud = hud;
+	}
+
+	/**
+	 * Draws a frame of the game as it is
+	 * @param g the paintbrush to use for the drawing
+	 * @param backgroundOn if the cool background is drawn behind the birds
+	 * @param alpha how far to draw the birds between their previous and current positions
+	 */
+	public void draw(Graphics2D g, GameSimulation game, boolean backgroundOn, double alpha) {
+		this.drawScene(g, game, backgroundOn, alpha);
+		this.drawHud(g, game);
+	}
+
+	/**
+	 * Draws everything but the messages: background, birds and platforms
+	 */
+	public void drawScene(Graphics2D g, GameSimulation game, boolean backgroundOn, double alpha) {
+		this.backgroundLayer.draw(g, backgroundOn, game.isLavaOn());
+		game.getRedBird().draw(g, alpha);
+		game.getGreenBird().draw(g, alpha);
+		g.setColor(Color.BLACK);
+		for(int p = 0; p < game.getPlatformCount(); p++){
+			Hitbox platform = game.getPlatform(p);
+			g.fillRect(platform.x, platform.y, platform.width, platform.height);
+		}
+	}
+
+	/**
+	 * Draws the messages, over the scene
+	 */
+	public void drawHud(Graphics2D g, GameSimulation game) {
+		this.hud.draw(g, game);
+	}
+}
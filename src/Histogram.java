@@ -0,0 +1,129 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts of non-negative values (times, sizes), kept in buckets that any thread can add to without locking
+ *
+ * Buckets are log-linear, like an HDR histogram: each power of two is split into SUB_BUCKETS
+ * equal buckets, so every value is counted to within 1/SUB_BUCKETS (12.5%) of itself, from
+ * nanoseconds to hours, in a few hundred counters. Recording is one atomic increment per counter.
+ * A copy of the counts (snapshot) taken now and again gives the counts in between, for showing
+ * only what happened recently.
+ */
+public class Histogram {
+
+	private static final int SUB_BITS = 3;
+	public static final int SUB_BUCKETS = 1 << SUB_BITS;
+	public static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS; // enough for every positive long
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Counts a value; negative values count as 0
+	 */
+	public void record(long value) {
+		value = Math.max(0, value);
+		this.counts.incrementAndGet(Histogram.bucket(value));
+		this.total.addAndGet(value);
+		long highest;
+		while(value > (highest = this.max.get()) && !this.max.compareAndSet(highest, value)){
+			// someone else raised it first, look again
+		}
+	}
+
+	/**
+	 * @return the bucket a value is counted in: values under SUB_BUCKETS have one each, then
+	 * each power of two is split into SUB_BUCKETS
+	 */
+	static int bucket(long value) {
+		if(value < SUB_BUCKETS){
+			return (int)value;
+		}
+		int power = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int)(value >>> (power - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (power - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * @return the largest value counted in a bucket
+	 */
+	static long highestIn(int bucket) {
+		if(bucket < SUB_BUCKETS){
+			return bucket;
+		}
+		if(bucket == BUCKETS - 1){
+			return Long.MAX_VALUE;
+		}
+		return Histogram.lowestIn(bucket + 1) - 1;
+	}
+
+	private static long lowestIn(int bucket) {
+		if(bucket < SUB_BUCKETS){
+			return bucket;
+		}
+		int power = bucket / SUB_BUCKETS + SUB_BITS - 1;
+		return (long)(SUB_BUCKETS + bucket % SUB_BUCKETS) << (power - SUB_BITS);
+	}
+
+	/**
+	 * Copies the counts
+	 * @param into an array of BUCKETS counts
+	 * @return into
+	 */
+	public long[] snapshot(long[] into) {
+		for(int b = 0; b < BUCKETS; b++){
+			into[b] = this.counts.get(b);
+		}
+		return into;
+	}
+
+	/**
+	 * @param counts counts by bucket, such as the difference of two snapshots
+	 * @param fraction such as .99 for the 99th percentile
+	 * @return the value that fraction of the counts were at or under (the top of its bucket), or 0 if there are none
+	 */
+	public static long percentile(long[] counts, double fraction) {
+		long count = 0;
+		for(long c : counts){
+			count += c;
+		}
+		long wanted = Math.max(1, (long)Math.ceil(count * fraction));
+		long seen = 0;
+		for(int b = 0; b < BUCKETS; b++){
+			seen += counts[b];
+			if(seen >= wanted){
+				return Histogram.highestIn(b);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * get methods
+	 */
+	public long getCount(){
+		long count = 0;
+		for(int b = 0; b < BUCKETS; b++){
+			count += this.counts.get(b);
+		}
+		return count;
+	}
+
+	public long getMax(){
+		return this.max.get();
+	}
+
+	public double getMean(){
+		long count = this.getCount();
+		return count == 0 ? 0 : this.total.get() / (double)count;
+	}
+
+	/**
+	 * @return the value that fraction of the counts were at or under, to within a bucket, and never more than the largest
+	 */
+	public long getPercentile(double fraction){
+		return Math.min(this.max.get(), Histogram.percentile(this.snapshot(new long[BUCKETS]), fraction));
+	}
+}
@@ -0,0 +1,66 @@
+/**
+ * A reusable box for collision checks
+ * 
+ * Unlike java.awt.Rectangle, one of these is made once and moved every tick with set(),
+ * so checking collisions creates no objects.
+ */
+public class Hitbox {
+
+	public int x;
+	public int y;
+	public int width;
+	public int height;
+
+	/**
+	 * Moves and resizes the box
+	 * @return this box
+	 */
+	public Hitbox set(int x, int y, int width, int height) {
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+		return this;
+	}
+
+	/**
+	 * Sets this box to cover another one all the way along a move, with a pixel to spare all round
+	 * for the positions in between whole pixels; a quick look before sweeping (see CollisionBox)
+	 * @param box where the move starts
+	 * @param x where the box's left edge ends up
+	 * @param y where its top edge ends up
+	 * @return this box
+	 */
+	public Hitbox cover(Hitbox box, int x, int y) {
+		this.x = Math.min(box.x, x) - 1;
+		this.y = Math.min(box.y, y) - 1;
+		this.width = Math.abs(x - box.x) + box.width + 2;
+		this.height = Math.abs(y - box.y) + box.height + 2;
+		return this;
+	}
+
+	/**
+	 * Same answer as Rectangle.intersects: true if the boxes overlap, boxes with no area never overlap
+	 */
+	public boolean intersects(Hitbox other) {
+		if(this.width <= 0 || this.height <= 0 || other.width <= 0 || other.height <= 0){
+			return false;
+		}
+		return other.x + other.width > this.x && other.y + other.height > this.y
+				&& this.x + this.width > other.x && this.y + this.height > other.y;
+	}
+
+	/**
+	 * @return how wide the overlap with the other box is
+	 */
+	public int intersectionWidth(Hitbox other) {
+		return Math.min(this.x + this.width, other.x + other.width) - Math.max(this.x, other.x);
+	}
+
+	/**
+	 * @return how tall the overlap with the other box is
+	 */
+	public int intersectionHeight(Hitbox other) {
+		return Math.min(this.y + this.height, other.y + other.height) - Math.max(this.y, other.y);
+	}
+}
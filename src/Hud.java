@@ -0,0 +1,251 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+
+/**
+ * On screen messages, drawn from text that is rendered once and then kept as images
+ *  >> game rules and setup help
+ *  >> "3,2,1, go"
+ *  >> player scoring
+ *  >> game over message
+ *
+ * Every message is known ahead of time except the scores, which are only rendered again
+ * when they change, so drawing the HUD is a few image copies and creates no objects.
+ */
+public class Hud {
+
+	/**
+	 * Fonts and colors
+	 */
+	private static final Font BANNER = new Font(Font.SANS_SERIF, Font.BOLD, 90);
+	private static final Font RULES = new Font(Font.SANS_SERIF, Font.PLAIN, 40);
+	private static final Font SMALL_PRINT = new Font(Font.SANS_SERIF, Font.PLAIN, 20);
+	private static final Font SCORE = new Font(Font.SANS_SERIF, Font.BOLD, 20);
+	private static final Color DARK_RED = new Color(127,0,0);
+	private static final Color DARK_GREEN = new Color(0,127,0);
+
+	/**
+	 * Rendered text, keyed by font, color and text
+	 */
+	private HashMap<String, BufferedImage> cache = new HashMap<String, BufferedImage>();
+	private HashMap<Font, FontMetrics> metrics = new HashMap<Font, FontMetrics>();
+
+	/**
+	 * Messages
+	 */
+	private Text[] rules;
+	private Text ready;
+	private Text set;
+	private Text go;
+	private Text redWins;
+	private Text greenWins;
+	private Text redScored;
+	private Text greenScored;
+	private Text leftScore;
+	private Text rightScore;
+	private int leftScoreShown = -1;
+	private int rightScoreShown = -1;
+	private Text[] shown = new Text[8];     // the messages on screen this frame
+	private int shownCount;
+	private Text[] lastShown = new Text[8]; // and when addChangedBounds was last called
+	private int lastShownCount;
+
+	/**
+	 * Renders every message that never changes
+	 */
+	public Hud() {
+		String msg1 = "1. Select options from the Settings Window";
+		String msg2 = "2. Press Enter to Start";
+		String msg3 = "3. Press Enter again to pause/unpause";
+		String msg4 = "4. First to 10 wins";
+		String msg5 = "    Be careful, hitting the lava will kill your bird and gives the other bird a point";
+		int x = 400 - this.metricsFor(RULES).stringWidth(msg1)/2; // every line lines up with the first
+		this.rules = new Text[] {
+			this.text(msg1, RULES, Color.BLACK, x, 300),
+			this.text(msg2, RULES, Color.BLACK, x, 350),
+			this.text(msg3, RULES, Color.BLACK, x, 400),
+			this.text(msg4, RULES, Color.BLACK, x, 450),
+			this.text(msg5, SMALL_PRINT, Color.BLACK, x, 500),
+		};
+		this.ready = this.centered("READY.", BANNER, Color.BLUE, 300);
+		this.set = this.centered("SET.", BANNER, Color.BLUE, 300);
+		this.go = this.centered("GO!.", BANNER, Color.BLUE, 300);
+		this.redWins = this.centered("RED WINS!!!", BANNER, Color.BLUE, 300);
+		this.greenWins = this.centered("GREEN WINS!!!", BANNER, Color.BLUE, 300);
+		this.redScored = this.text("RED SCORED!", SCORE, DARK_RED, 30, 300);
+		this.greenScored = this.text("GREEN SCORED!", SCORE, DARK_GREEN, 600, 300);
+	}
+
+	/**
+	 * Draws the messages for the current state of the game
+	 * @param g the paintbrush to use for the drawing
+	 */
+	public void draw(Graphics g, GameSimulation game) {
+		this.update(game);
+		this.draw(g);
+	}
+
+	/**
+	 * Draws the messages picked by the last update
+	 * @param g the paintbrush to use for the drawing
+	 */
+	public void draw(Graphics g) {
+		for(int i = 0; i < this.shownCount; i++){
+			this.shown[i].draw(g);
+		}
+	}
+
+	/**
+	 * Picks the messages for the current state of the game
+	 */
+	public void update(GameSimulation game) {
+		this.shownCount = 0;
+		if(game.isGameOver()){// END OF GAME MESSAGES
+
+			if(game.getRightPlayerScore() == GameSimulation.WINNING_SCORE){
+				this.show(this.greenWins);
+			}
+			else{
+				this.show(this.redWins);
+			}
+			this.showScores(game);
+
+		} else if(game.isGameStarted() == false && game.getGameTime() ==0){
+
+			for(Text line : this.rules){
+				this.show(line);
+			}
+
+		}
+		else if(game.getGameTime() < 25){//START OF GAME MESSAGES
+			this.show(this.ready);
+		} else if(game.getGameTime() < 50){
+			this.show(this.set);
+		} else if(game.getGameTime() < 100){
+			this.show(this.go);
+		}
+		else{ // SCORING MESSAGES
+
+			this.showScores(game);
+			if(game.hasRightScored() == true){
+				this.show(this.greenScored);
+			}
+			if(game.hasLeftScored() == true){
+				this.show(this.redScored);
+			}
+		}
+	}
+
+	/**
+	 * Marks where messages appeared or disappeared since the last time this was called
+	 */
+	public void addChangedBounds(DirtyRegions dirty) {
+		for(int i = 0; i < this.shownCount; i++){
+			if(!Hud.contains(this.lastShown, this.lastShownCount, this.shown[i])){
+				this.shown[i].addBounds(dirty);
+			}
+		}
+		for(int i = 0; i < this.lastShownCount; i++){
+			if(!Hud.contains(this.shown, this.shownCount, this.lastShown[i])){
+				this.lastShown[i].addBounds(dirty);
+			}
+		}
+		System.arraycopy(this.shown, 0, this.lastShown, 0, this.shownCount);
+		this.lastShownCount = this.shownCount;
+	}
+
+	private void show(Text text) {
+		this.shown[this.shownCount++] = text;
+	}
+
+	private static boolean contains(Text[] texts, int count, Text text) {
+		for(int i = 0; i < count; i++){
+			if(texts[i] == text){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Shows both scores, rendering a score again only if it changed since the last frame
+	 */
+	private void showScores(GameSimulation game) {
+		if(game.getLeftPlayerScore() != this.leftScoreShown){
+			this.leftScoreShown = game.getLeftPlayerScore();
+			this.leftScore = this.text(Integer.toString(this.leftScoreShown), SCORE, DARK_RED, 30, 30);
+		}
+		if(game.getRightPlayerScore() != this.rightScoreShown){
+			this.rightScoreShown = game.getRightPlayerScore();
+			this.rightScore = this.text(Integer.toString(this.rightScoreShown), SCORE, DARK_GREEN, 760, 30);
+		}
+		this.show(this.leftScore);
+		this.show(this.rightScore);
+	}
+
+	/**
+	 * Text centered on x = 400
+	 */
+	private Text centered(String message, Font font, Color color, int baseline) {
+		return this.text(message, font, color, 400 - this.metricsFor(font).stringWidth(message)/2, baseline);
+	}
+
+	/**
+	 * Text drawn as drawString(message, x, baseline) would draw it
+	 */
+	private Text text(String message, Font font, Color color, int x, int baseline) {
+		FontMetrics fm = this.metricsFor(font);
+		int pad = font.getSize() / 10; // room for glyphs that hang past their advance
+		String key = font.getStyle() + " " + font.getSize() + " " + color.getRGB() + " " + message;
+		BufferedImage image = this.cache.get(key);
+		if(image == null){
+			image = new BufferedImage(fm.stringWidth(message) + 2*pad, fm.getAscent() + fm.getDescent(), BufferedImage.TYPE_INT_ARGB);
+			Graphics2D ig = image.createGraphics();
+			ig.setFont(font);
+			ig.setColor(color);
+			ig.drawString(message, pad, fm.getAscent());
+			ig.dispose();
+			image = SpriteCache.toCompatible(image);
+			this.cache.put(key, image);
+		}
+		return new Text(image, x - pad, baseline - fm.getAscent());
+	}
+
+	private FontMetrics metricsFor(Font font) {
+		FontMetrics fm = this.metrics.get(font);
+		if(fm == null){
+			Graphics2D g = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+			fm = g.getFontMetrics(font);
+			g.dispose();
+			this.metrics.put(font, fm);
+		}
+		return fm;
+	}
+
+	/**
+	 * A rendered message and where it goes on the screen
+	 */
+	private static class Text {
+		private final BufferedImage image;
+		private final int x;
+		private final int y;
+
+		Text(BufferedImage image, int x, int y) {
+			this.image = image;
+			this.x = x;
+			this.y = y;
+		}
+
+		void draw(Graphics g) {
+			g.drawImage(this.image, this.x, this.y, null);
+		}
+
+		void addBounds(DirtyRegions dirty) {
+			dirty.add(this.x, this.y, this.image.getWidth(), this.image.getHeight());
+		}
+	}
+}
@@ -0,0 +1,55 @@
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import javax.swing.ImageIcon;
+import javax.swing.JLabel;
+
+/**
+ * Draws frames into a BufferedImage shown in a JLabel, and lets Swing repaint the label
+ * 
+ * This always works, but every frame is copied to the screen in software by the Swing repaint manager.
+ */
+public class ImageRenderer implements Renderer {
+
+	private BufferedImage content; // the current game graphics
+	private Graphics2D paintbrush; // for drawing things in the window
+	private JLabel label;
+
+	public ImageRenderer(int width, int height) {
+		this.content = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		this.paintbrush = (Graphics2D)this.content.getGraphics();
+		this.label = new JLabel(new ImageIcon(this.content));
+	}
+
+	public Component getComponent() {
+		return this.label;
+	}
+
+	public Graphics2D beginFrame() {
+		return this.paintbrush;
+	}
+
+	public boolean endFrame() {
+		this.label.repaint(); // displays the frame to the screen
+		return true;
+	}
+
+	/**
+	 * Puts only part of the frame on the screen, for when only that part was drawn again
+	 */
+	public void endFrame(int x, int y, int width, int height) {
+		this.label.repaint(x, y, width, height);
+	}
+
+	public boolean keepsFrames() {
+		return true;
+	}
+
+	/**
+	 * @return the image the frames are drawn into
+	 */
+	public BufferedImage getContent() {
+		return this.content;
+	}
+}
@@ -0,0 +1,100 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keys on their way from the Swing thread to the game loop thread, each with the time it was pressed
+ *
+ * A ring buffer with exactly one thread adding (the Swing thread, see offer) and one thread taking
+ * (the game loop, see drain), so neither ever waits for the other or takes a lock:
+ *  >> each side only writes its own counter (tail for offer, head for drain)
+ *  >> a slot is filled in before tail moves past it, and read before head moves past it
+ *  >> lazySet is enough to publish the counters, as only the other side reads them
+ *
+ * drain takes the keys pressed up to a time, so when the game loop runs several ticks at once to
+ * catch up, each key still goes to the tick it was pressed in rather than all of them to the first.
+ */
+public class InputQueue {
+
+	private final long[] times;
+	private final int[] inputs;
+	private final int mask;
+	private final int toggles;       // inputs that cancel out when pressed twice in a tick, such as pause
+	private final AtomicLong head = new AtomicLong(); // the next slot to drain, written by the game loop
+	private final AtomicLong tail = new AtomicLong(); // the next slot to fill, written by the Swing thread
+	private long knownHead;          // the Swing thread's last look at head, so it rarely has to look again
+	private long dropped;
+
+	/**
+	 * @param capacity keys that can wait at once, a power of two
+	 * @param toggles the input bits that toggle rather than add up, such as GameSimulation.INPUT_PAUSE
+	 */
+	public InputQueue(int capacity, int toggles) {
+		if(capacity <= 0 || (capacity & (capacity - 1)) != 0){
+			throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+		}
+		this.times = new long[capacity];
+		this.inputs = new int[capacity];
+		this.mask = capacity - 1;
+		this.toggles = toggles;
+	}
+
+	/**
+	 * Adds a key; only ever called by one thread
+	 * @param input the key's input bits, such as GameSimulation.INPUT_RED_LEFT
+	 * @param time when it was pressed, from System.nanoTime()
+	 * @return false if the queue was full and the key was dropped
+	 */
+	public boolean offer(int input, long time) {
+		long tail = this.tail.get();
+		if(tail - this.knownHead == this.times.length){
+			this.knownHead = this.head.get();
+			if(tail - this.knownHead == this.times.length){ // nobody is draining, the game must have stopped
+				this.dropped++;
+				return false;
+			}
+		}
+		int slot = (int)tail & this.mask;
+		this.times[slot] = time;
+		this.inputs[slot] = input;
+		this.tail.lazySet(tail + 1);
+		return true;
+	}
+
+	/**
+	 * Takes every key pressed up to a time, in the order they were pressed; only ever called by one thread
+	 * @param until the time the tick stands for, keys pressed after it are left for a later tick
+	 * @param waits if not null, counts how long each key waited, in nanoseconds
+	 * @return the input bits of the keys taken, toggles included once for each odd press
+	 */
+	public int drain(long until, Histogram waits) {
+		long head = this.head.get();
+		long tail = this.tail.get();
+		int taken = 0;
+		long now = waits != null && head != tail ? System.nanoTime() : 0;
+		while(head != tail){
+			int slot = (int)head & this.mask;
+			long time = this.times[slot];
+			if(time - until > 0){
+				break;
+			}
+			int input = this.inputs[slot];
+			taken = (taken | (input & ~this.toggles)) ^ (input & this.toggles);
+			if(waits != null){
+				waits.record(now - time);
+			}
+			head++;
+		}
+		this.head.lazySet(head);
+		return taken;
+	}
+
+	/**
+	 * get methods
+	 */
+	public long getDropped(){
+		return this.dropped;
+	}
+
+	public int size(){
+		return (int)(this.tail.get() - this.head.get());
+	}
+}
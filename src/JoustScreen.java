@@ -1,11 +1,13 @@
 import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
-import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import javax.imageio.ImageIO;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Brian Schwartz (bjs9yv@virginia.edu)
@@ -16,37 +18,64 @@ import javax.imageio.ImageIO;
  * first to 10 wins
  * add options in the settings window
  */
-public class JoustScreen extends KeyAdapter implements ActionListener, ComponentListener, ItemListener {
+public class JoustScreen extends KeyAdapter implements GameLoop.Game, ComponentListener, ItemListener {
 	
 	/**
 	 * Window setup
 	 */
 	private JFrame window;         // the window itself
-	private BufferedImage content; // the current game graphics
+	private Renderer renderer;     // where the game graphics go
 	private Graphics2D paintbrush; // for drawing things in the window
-	private Timer gameTimer;       // for keeping track of time passing
+	private DirtyRegions dirtyRegions; // the parts of the screen to draw again, if only those are drawn
+	private Rectangle[] drawnPlatforms;                  // where the platforms were when last drawn
+	private boolean redrawEverything = true;
+	private volatile boolean showDirtyRegions = false;   // outline the parts drawn again (F2)
+	private Font debugFont = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+	private GameLoop gameLoop;     // for keeping track of time passing
 	
 	/**
 	 * Game play fields 
 	 */
 	private BufferedImage lavaPit;
 	private BufferedImage background;
-	private Bird birdyBird;
-	private Bird otherBird;
-	private Rectangle wall;
-	private Integer leftPlayerScore = 0;
-	private Integer rightPlayerScore = 0;
-	private Rectangle b1;
-	private Rectangle b2;
-	private int gameTime;
-	private Rectangle bottomWall;
-	private CollisionBox boxCheck = new CollisionBox();
-	private int bottomWalDirection = 1;
-	private final int RIGHT = 1;
-	private final int LEFT = -1;
-	private boolean leftScored;
-	private boolean rightScored;
-	private int gameTimeAtScore;
+	private BackgroundLayer backgroundLayer; // sky, background and lava, put together only when the settings change
+	private GameView view;         // draws whole frames of the two player game
+	private GameSimulation game;   // all of the game logic, JoustScreen only draws it
+	private InputQueue pendingInputs = new InputQueue(256, GameSimulation.INPUT_PAUSE); // keys pressed, waiting for their tick
+	private Hud hud = new Hud();   // scores and other messages
+	private BirdWorld swarm;       // swarm mode, played instead of the two player game
+	private boolean swarmPaused = false;
+	private SpriteFrame[] redFrames;
+	private SpriteFrame[] greenFrames;
+	private Camera camera;         // following bird 0 around a swarm's world, if it's bigger than the screen
+	private TiledBackground tiledBackground; // the picture behind that world
+	private ReplayRecorder recorder; // recording the match, if asked to
+	private ReplayPlayer replay;     // playing a recorded match instead of the keys, if asked to
+	private NetSession net;          // playing against another computer, if asked to
+	private boolean netEnding = false; // the match looks over, waiting for both computers to agree
+	private long netEndingAt;
+	private static final int NET_LINGER_SECONDS = 5;
+	private RewindBuffer rewind;     // the last 30 seconds, for scrubbing back through with the arrow keys
+	private AtomicInteger pendingRewind = new AtomicInteger(); // ticks to scrub back (or forward, if negative)
+	private int rewound = 0;         // how many ticks back the game is being shown, 0 while playing
+	private boolean rewindMoved = false; // the screen has to show another tick of the past
+	private static final int REWIND_SECONDS = 30;
+	private SpectatorFeed spectators; // sending the match to SpectatorViewers, if asked to
+	
+	/**
+	 * Performance probes
+	 */
+	private PerfProbes probes = new PerfProbes(); // how long the parts of ticks and frames take
+	private PerfOverlay perfOverlay = new PerfOverlay(this.probes);
+	private volatile boolean showPerf = false;    // the overlay (F3)
+	private boolean perfOverlayShown = false;     // in the last frame, when only the parts that changed are drawn
+	private long sceneNanos;       // the parts of the frame being drawn
+	private long hudNanos;
+	private long blitNanos;
+	private long lastTickNanos;
+	private AssetLoader assets;    // the images, loading while the windows are built
+	private long constructedAt;    // System.nanoTime when the constructor started
+	private boolean firstFrameShown = false;
 	
 	/**
 	 * JPannel Settings
@@ -59,14 +88,38 @@ public class JoustScreen extends KeyAdapter implements ActionListener, Component
 	private JCheckBox lava;
 	private JCheckBox coolBackground;
 	private JCheckBox movingPlatforms;
-	private boolean movingPlatformsOn = false;
-	private boolean lavaOn = false;
-	private boolean backgroundOn = false;
-	private boolean pauseGame = true;
-	private boolean gameStart = false;
+	private volatile boolean movingPlatformsOn = false; // handed to the game at the start of each tick
+	private volatile boolean lavaOn = false;
+	private volatile boolean backgroundOn = false;
 	
 	/**
 	 * Create a new JousScreen and let the game run 
+	 * 
+	 * The tick and frame rates can be changed with -Djousty.tickRate=50 and -Djousty.frameRate=N,
+	 * where a frame rate of 0 matches the screen's refresh rate and -1 draws as fast as possible.
+	 * Tick rates below 50, such as 25 or 30, play at the usual speed with each tick standing for more
+	 * than one (see GameSimulation.setTickRate), and -Djousty.sweptCollisions=true sweeps at 50 too.
+	 * The game can't tick faster than 50 times a second.
+	 * -Djousty.renderer=canvas draws with accelerated active rendering instead of into an image,
+	 * and -Djousty.buffers=2 or 3 picks how many buffers it flips between.
+	 * -Djousty.dirtyRects=true only draws the parts of the screen that changed (not with the canvas).
+	 * -Djousty.swarm=500 plays swarm mode with that many birds instead of the two player game.
+	 * -Djousty.threads=N ticks the swarm on N threads (all of the processors by default).
+	 * -Djousty.record=match.jbr records the match, and -Djousty.replay=match.jbr plays it back in the window,
+	 * in the arena it was recorded in.
+	 * -Djousty.net=red (or green) -Djousty.netPort=7777 -Djousty.netPeer=host:7777 plays one bird against
+	 * the other computer, with either set of keys; both computers need the same arena and tick rate.
+	 * Otherwise the left and right arrow keys scrub back through the last 30 seconds (a second at a time
+	 * with shift held), and Enter plays on from the tick being shown.
+	 * -Djousty.spectate=7789 sends the match to anyone watching with a SpectatorViewer on that port.
+	 * -Djousty.arena=file plays in the arena in that file instead of the original one (see Arena).
+	 * In swarm mode, a world bigger than the screen is shown a screen at a time, following the first bird
+	 * (the red keys), and -Djousty.tileCacheMB=32 is how much memory its background may take (see TiledBackground).
+	 * -Djousty.pixelCollisions=true only lets the birds collide where their pictures really touch (see SpriteMask);
+	 * a replay is played with them if it was recorded with them, and both computers of a net game need the same.
+	 * F3 shows how long ticks and frames are taking, and -Djousty.perf=perf.txt writes it all down on exit.
+	 * -Djousty.assetCache=jousty.cache keeps the images' pixels in that file, so the next start needn't
+	 * decode the PNGs (see AssetLoader); how long the first frame took to show is printed either way.
 	 */
 	public static void main(String[] args) {
 		new JoustScreen();
@@ -74,6 +127,7 @@ public class JoustScreen extends KeyAdapter implements ActionListener, Component
 
 	/**
 	 * Constructor 
+	 *  >> starts loading the images (see AssetLoader)
 	 *  >> creates the main game window
 	 *  >> creates the settings window
 	 *  >> load optional background and features 
@@ -81,11 +135,26 @@ public class JoustScreen extends KeyAdapter implements ActionListener, Component
 	 */
 	public JoustScreen() {
 		
+		// IMAGES, loaded on other threads while the windows are built
+		this.constructedAt = System.nanoTime();
+		String cache = System.getProperty("jousty.assetCache");
+		this.assets = new AssetLoader(AssetLoader.GAME_IMAGES, cache == null ? null : Paths.get(cache), Runtime.getRuntime().availableProcessors());
+		SpriteCache.setLoader(this.assets);
+		new LoadingSplash(this.assets).start();
+		
 		// MAIN WINDOW
 		this.window = new JFrame("Jousty Bird");
-		this.content = new BufferedImage(800, 600, BufferedImage.TYPE_INT_ARGB);
-		this.paintbrush = (Graphics2D)this.content.getGraphics();
-		this.window.setContentPane(new JLabel(new ImageIcon(this.content)));
+		if("canvas".equals(System.getProperty("jousty.renderer"))){
+			this.renderer = new CanvasRenderer(800, 600, Integer.getInteger("jousty.buffers", 2));
+		} else{
+			this.renderer = new ImageRenderer(800, 600);
+		}
+		this.window.getContentPane().add(this.renderer.getComponent());
+		int swarmSize = Integer.getInteger("jousty.swarm", 0);
+		if(Boolean.getBoolean("jousty.dirtyRects") && this.renderer instanceof ImageRenderer // the canvas forgets its frames
+				&& swarmSize == 0){ // and a swarm changes most of the screen anyway
+			this.dirtyRegions = new DirtyRegions(800, 600);
+		}
 		this.window.pack();
 		this.window.setVisible(true);
 		this.window.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE); //changed to EXIT so that the game being exited will also close the settings, but closing the settings will not close the game 
@@ -118,416 +187,549 @@ public class JoustScreen extends KeyAdapter implements ActionListener, Component
         this.frame.setVisible(true);
         
 		//BACKGROUND & LAVA PIT
+		this.lavaPit = SpriteCache.getImage("lava");
+		this.background = SpriteCache.getImage("landscape");
+		this.backgroundLayer = new BackgroundLayer(800, 600, this.background, this.lavaPit);
+		this.view = new GameView(this.backgroundLayer, this.hud);
+		
+		// BIRDS AND PLATFORMS
+		int tickRate = Integer.getInteger("jousty.tickRate", GameLoop.DEFAULT_TICK_RATE); // tick 50 times a second
+		ReplayReader recording = null;
 		try {
-			this.lavaPit = ImageIO.read(new File("lava.png"));
-			this.background = ImageIO.read(new File("landscape.png"));
+			Arena arena = Arena.fromSettings();
+			if(swarmSize == 0 && System.getProperty("jousty.replay") != null){ // as it was played
+				recording = new ReplayReader(Paths.get(System.getProperty("jousty.replay")));
+				arena = ReplayPlayer.findArena(recording, arena);
+				tickRate = recording.getTickRate();
+			}
+			this.game = new GameSimulation(arena, new Bird("birdr", 0, 100), new Bird("birdg", 0, 700));
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
+		if(recording != null){
+			ReplayPlayer.setUp(recording, this.game);
+		} else{
+			if(Boolean.getBoolean("jousty.pixelCollisions")){
+				this.game.setPixelMasks(SpriteCache.getBirdMasks("birdr"), SpriteCache.getBirdMasks("birdg"));
+			}
+			this.game.setTickRate(tickRate);
+			this.game.setSweptCollisions(Boolean.getBoolean("jousty.sweptCollisions"));
+		}
+		this.drawnPlatforms = new Rectangle[this.game.getPlatformCount()];
+		for(int p = 0; p < this.drawnPlatforms.length; p++){
+			this.drawnPlatforms[p] = new Rectangle();
+		}
+		if(swarmSize > 0){
+			int threads = Integer.getInteger("jousty.threads", Runtime.getRuntime().availableProcessors());
+			this.swarm = new BirdWorld(this.game.getArena(), swarmSize, GameSimulation.BIRD_SIZE, GameSimulation.BIRD_SIZE, System.nanoTime(), threads);
+			this.redFrames = SpriteCache.getBirdFrames("birdr");
+			this.greenFrames = SpriteCache.getBirdFrames("birdg");
+			Arena arena = this.game.getArena();
+			if(arena.isLargeWorld()){
+				this.camera = new Camera(arena.getWorldWidth(), arena.getWorldHeight(), 800, 600);
+				this.camera.lookAt(this.swarm.getXPosition(0), this.swarm.getYPosition(0));
+				try {
+					this.tiledBackground = new TiledBackground(new File(arena.getBackground() != null ? arena.getBackground() : "landscape.png"), BackgroundLayer.SKY,
+							Integer.getInteger("jousty.tileCacheMB", 32) * 1024L * 1024L, 800, 600);
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		}
 		
-		// BIRDS AND PLATFORMS
-		this.birdyBird = new Bird("birdr", 0, 100);
-		this.otherBird = new Bird("birdg", 0, 700);
-		this.otherBird.setFacing(3);
-		this.wall = new Rectangle(0, 200, 300, 20);	
-		this.bottomWall = new Rectangle (0, 525, 450, 20);
-		this.bottomWall.setLocation(this.bottomWall.x, this.bottomWall.y);
+		// REPLAYS
+		try {
+			if(recording != null){
+				this.replay = new ReplayPlayer(recording, this.game);
+			} else if(swarmSize == 0 && System.getProperty("jousty.net") != null){
+				String peer = System.getProperty("jousty.netPeer", "127.0.0.1:7777");
+				int colon = peer.lastIndexOf(':');
+				this.net = new NetSession(this.game, tickRate, "green".equals(System.getProperty("jousty.net")) ? NetSession.GREEN : NetSession.RED,
+						new InetSocketAddress(Integer.getInteger("jousty.netPort", 7777)),
+						new InetSocketAddress(peer.substring(0, colon), Integer.parseInt(peer.substring(colon + 1))));
+			} else if(swarmSize == 0 && System.getProperty("jousty.record") != null){
+				this.recorder = new ReplayRecorder(Paths.get(System.getProperty("jousty.record")), tickRate, Replay.DEFAULT_CHECKSUM_INTERVAL, this.game);
+				Runtime.getRuntime().addShutdownHook(new Thread(){ // closing the window exits straight away
+					public void run() {
+						JoustScreen.this.stopRecording();
+					}
+				});
+			}
+			if(swarmSize == 0 && Integer.getInteger("jousty.spectate") != null){
+				this.spectators = new SpectatorFeed(new InetSocketAddress(Integer.getInteger("jousty.spectate")));
+				this.spectators.start();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		if(swarmSize == 0 && this.replay == null && this.recorder == null && this.net == null){ // a recording couldn't follow a rewind
+			this.rewind = new RewindBuffer(REWIND_SECONDS * tickRate);
+		}
+		
+		// PERFORMANCE PROBES
+		this.probes.watchGarbageCollection();
+		if(System.getProperty("jousty.perf") != null){
+			Runtime.getRuntime().addShutdownHook(new Thread(){
+				public void run() {
+					try {
+						JoustScreen.this.probes.dump(Paths.get(System.getProperty("jousty.perf")));
+					} catch (IOException e) {
+						System.err.println("could not write the performance probes: " + e.getMessage());
+					}
+				}
+			});
+		}
 		
-		this.gameTimer = new Timer(20, this); // tick at 1000/20 fps
-		this.gameTimer.start();               // and start ticking now
+		this.gameLoop = new GameLoop(this, tickRate,
+				Integer.getInteger("jousty.frameRate", GameLoop.DISPLAY_RATE)); // draw as often as the screen refreshes
+		this.gameLoop.start(); // and start ticking now
+	}
+
+	/**
+	 * Ticks the game, timing the whole tick (see PerfProbes)
+	 */
+	public void tick() {
+		long start = System.nanoTime();
+		this.tickGame();
+		this.lastTickNanos = System.nanoTime() - start;
+		this.probes.record(PerfProbes.TICK, this.lastTickNanos);
 	}
 
 	/**
 	 * Main Game Loop
 	 * 
-	 * Controls all aspects of the game that change
-	 * 	>> GAME OVER LOGIC
-	 *  >> MOMENTUM & DRAG
-	 *  >> MOVING WALLS (if selected in options window)
-	 *  >> LAVA DEATH  (if selected in options window)
-	 *  >> PLATFORM COLLISIONS
-	 *  >> BIRD COLLISIONS & SCORING 
-	 *  >> KEEP BIRDS FACING EACHOTHER
+	 * Hands the keys pressed during this tick to the GameSimulation, which controls
+	 * all aspects of the game that change (see GameSimulation.step)
+	 *  >> GAME OVER LOGIC
 	 *  >> ALLOW GAME TO PAUSE/UNPAUSE
 	 *  
-	 * After performing these functions the screen is redrawn via the refreshScreen method.
-	 * This method is called every time the gameTimer ticks (50 times a second).
+	 * The screen is redrawn separately, via the render method.
+	 * This method is called every time the gameLoop ticks (50 times a second).
 	 */
-	public void actionPerformed(ActionEvent event) {
+	private void tickGame() {
 		// WINDOW CLOSED
 		if (! this.window.isValid()) { 
-			this.gameTimer.stop();    
+			this.gameLoop.stop();    
 			return;                    
 		}                              
 		
-		// GAME OVER LOGIC
-		if(this.rightPlayerScore == 10 || this.leftPlayerScore == 10){//first to 10 points
-			this.gameTimer.stop();//ends game
+		// SWARM MODE
+		if(this.swarm != null){
+			int inputs = this.takeInputs();
+			if((inputs & GameSimulation.INPUT_PAUSE) != 0){
+				this.swarmPaused = !this.swarmPaused;
+			}
+			if(this.swarmPaused == false){
+				this.swarm.step(inputs);
+				if(this.camera != null){
+					this.camera.follow(this.swarm.getXPosition(0), this.swarm.getYPosition(0));
+				}
+			}
+			return;
 		}
 		
-		// MOMENTUM, DRAG 
-		if(this.gameStart == true){
-			this.birdyBird.changePosition();
-			this.otherBird.changePosition();
+		// GAME OVER LOGIC
+		if(this.game.isGameOver() && this.net == null){//first to 10 points
+			this.stopRecording();
+			if(this.rewind == null){
+				this.gameLoop.stop();//ends game
+			}
 		}
 		
-		// MOVING WALLS
-		if(this.movingPlatformsOn){
-			this.updatePlatformPosition();
+		// REPLAY (keys and settings from the recording)
+		if(this.replay != null){
+			this.takeInputs();
+			if(!this.replay.step()){
+				this.gameLoop.stop();
+				if(this.replay.getDivergedAt() >= 0){
+					System.err.println("the replay went differently from the recording after tick " + this.replay.getDivergedAt());
+				}
+			}
+			this.publish();
+			return;
 		}
 		
-		// LAVA DEATH
-		if(this.lavaOn){
-			if(this.birdyBird.getYPosition() > 550){
-				this.birdyBird.setYPosition(100);
-				this.birdyBird.setYVelocity(-10);
-				this.rightPlayerScore++;
+		// NETWORK PLAY (keys from this computer now, from the other one when they arrive)
+		if(this.net != null){
+			try {
+				if(this.game.isGameOver()){ // first to 10 points, once both computers agree it is
+					this.finishNetMatch();
+				} else if(this.net.poll()){ // or wait for the other computer, keeping the keys for later
+					this.netEnding = false;
+					this.net.tick(this.takeInputs(), this.lavaOn, this.movingPlatformsOn);
+					this.publish();
+				}
+			} catch (IOException e) {
+				System.err.println("lost the connection: " + e.getMessage());
+				this.gameLoop.stop();
 			}
-			if(this.otherBird.getYPosition() > 550){
-				this.otherBird.setYPosition(100);
-				this.otherBird.setYVelocity(-10);
-				this.leftPlayerScore++;
+			return;
+		}
+		
+		// REWIND (showing the past instead of playing)
+		int scrub = this.pendingRewind.getAndSet(0);
+		if(this.rewind != null && (scrub > 0 || this.rewound > 0) && this.rewind.size() > 0){ // can't scrub forward past now
+			if(this.rewound > 0 && (this.takeInputs() & GameSimulation.INPUT_PAUSE) != 0){
+				this.rewind.discardNewest(this.rewound); // play on from the tick being shown
+				this.rewound = 0;
+			} else{
+				this.rewound = Math.max(0, Math.min(this.rewind.size() - 1, this.rewound + scrub));
+				this.rewind.restore(this.rewound, this.game);
+				this.rewindMoved = true;
 			}
+			return;
 		}
 		
-		// PLATFORM COLLISIONS
-		this.checkBoxCollisions();
+		// GAME OVER, but still ticking so the match can be rewound
+		if(this.rewind != null && this.game.isGameOver()){
+			this.takeInputs();
+			return;
+		}
 		
-		// BIRD COLLISIONS AND SCORING
-		this.checkBirdCollisions();
+		// SETTINGS
+		this.game.setLavaOn(this.lavaOn);
+		this.game.setMovingPlatformsOn(this.movingPlatformsOn);
 		
-		// FACING
-		if(this.birdyBird.getXPosition() >= this.otherBird.getXPosition()){
-			this.birdyBird.setFacing(3);
-			this.otherBird.setFacing(0);
-		}else{
-			this.birdyBird.setFacing(0);
-			this.otherBird.setFacing(3);
-		}
+		// EVERYTHING THAT MOVES
+		int inputs = this.takeInputs();
+		long start = System.nanoTime();
+		this.game.step(inputs);
+		long stepped = System.nanoTime();
+		this.probes.record(PerfProbes.PHYSICS, stepped - start);
+		if(this.recorder != null){
+			this.recorder.tick(inputs, this.game);
+		}
+		if(this.rewind != null){
+			this.rewind.record(this.game);
+		}
+		this.publish();
+		this.probes.record(PerfProbes.RECORD, System.nanoTime() - stepped);
+	}
 
-		// PAUSE GAME
-		if(this.gameStart == false){
-			this.refreshScreen();
-		}
-		
-		// REDRAW SCREEN
-		if(this.pauseGame == false){ //pauseGame is changed by pressing enter at any point during the game
-			this.gameStart = true;
-			this.gameTime++;
-			this.refreshScreen(); // redraws the screen after things move
+	/**
+	 * Ends a network match that looks over, once it is over for sure on both computers
+	 *  >> every tick has to have been played with the other computer's real keys, since a late key could
+	 *     still take the last point back (a roll back then carries the match on)
+	 *  >> the other computer has to have all of this one's keys, or it would wait for them forever; they
+	 *     are sent again every tick until it says it has them, for NET_LINGER_SECONDS at most
+	 */
+	private void finishNetMatch() throws IOException {
+		long now = System.nanoTime();
+		if(!this.netEnding){
+			this.netEnding = true;
+			this.netEndingAt = now;
+		}
+		this.takeInputs(); // nobody's keys count now
+		this.net.poll();   // the other computer's keys, and what it has of ours
+		if(!this.game.isGameOver()){ // rolled back, it wasn't over after all
+			this.publish();
+			return;
+		}
+		this.net.resend();
+		if(this.net.isSettled() && this.net.isAcknowledged()){
+			this.gameLoop.stop();
+		} else if(now - this.netEndingAt > NET_LINGER_SECONDS * 1000000000L){
+			System.err.println("the other computer never confirmed the end of the match");
+			this.gameLoop.stop();
 		}
 	}
 
 	/**
-	 * Re-draw the screen
+	 * @return the input bits of the keys pressed up to the time this tick stands for, in the order
+	 * they were pressed; keys pressed after it wait for the next tick (see InputQueue)
 	 */
-	public void refreshScreen() {
-		this.paintbrush.setColor(new Color(150, 210, 255)); // pale blue
-		this.paintbrush.fillRect(0, 0, this.content.getWidth(), this.content.getHeight()); // erases the previous frame
-		
-		//DRAW BIRDS, WALLS, BACKGROUND, LAVA PIT
-		if(this.backgroundOn == true){
-			this.paintbrush.drawImage(this.background, null, 0, 0);
-		}
-		if(this.lavaOn == true){
-			this.paintbrush.drawImage(this.lavaPit, null, 0, 540);
-		}
-		this.birdyBird.draw(this.paintbrush);
-		this.otherBird.draw(this.paintbrush);
-		this.paintbrush.setColor(Color.BLACK);
-		this.paintbrush.fill(this.bottomWall);
-		this.paintbrush.fill(this.wall);
-		
-		this.drawMessages();
-		
-		this.window.repaint();  // displays the frame to the screen
+	private int takeInputs() {
+		return this.pendingInputs.drain(this.gameLoop.getTickTime(), this.probes.getHistogram(PerfProbes.INPUT));
 	}
-	
+
 	/**
-	 * This method gets called whenever a key is pressed
-	 * and handles the movement of each character
+	 * Sends the game to the spectators, if there are any
 	 */
-	public void keyPressed(KeyEvent event) {
-
-		if (event.getKeyCode() == KeyEvent.VK_A && this.gameStart == true) {
-			this.birdyBird.changeVelocity(this.LEFT);
-			this.birdyBird.setFacing(this.birdyBird.getFacing()+1);
-		} 
-		if(event.getKeyCode() == KeyEvent.VK_S && this.gameStart == true){
-			this.birdyBird.changeVelocity(this.RIGHT);
-		}
-		if(event.getKeyCode() == KeyEvent.VK_K && this.gameStart == true){
-			this.otherBird.changeVelocity(this.LEFT);
-		}
-		if(event.getKeyCode() == KeyEvent.VK_L && this.gameStart == true){
-			this.otherBird.changeVelocity(this.RIGHT);
+	private void publish() {
+		if(this.spectators != null){
+			this.spectators.publish(this.game);
 		}
-		if(event.getKeyCode() == KeyEvent.VK_ENTER){
-			this.pauseGame = !this.pauseGame;
+	}
+	
+	/**
+	 * Writes out the rest of the recording, if there is one
+	 */
+	private void stopRecording() {
+		if(this.recorder != null){
+			try {
+				this.recorder.close();
+			} catch (IOException e) {
+				System.err.println("could not save the replay: " + e.getMessage());
+			}
 		}
 	}
 	
 	/**
-	 * This method is called whenever a component in the settings window is clicked
-	 * Controls the optional background and lava pit
+	 * Redraws the screen whenever the gameLoop draws a frame
+	 * @param alpha how far the frame is between the last tick and the next one
 	 */
-	public void itemStateChanged(ItemEvent e) {
-
-		Object source = e.getItemSelectable();
-		if (source == this.lava) {
-
-			this.lavaOn = !this.lavaOn;
+	public void render(double alpha) {
+		if (! this.window.isValid()) { // closed
+			return;
 		}
-		if (source == this.coolBackground) {
-
-			this.backgroundOn = !this.backgroundOn;
+		if(this.swarm != null){
+			if(this.swarmPaused == false || this.renderer.keepsFrames() == false || this.showPerf){
+				this.refreshScreen(alpha);
+			}
+			return;
 		}
-		if(source == this.movingPlatforms){
-			
-			this.movingPlatformsOn = !this.movingPlatformsOn;
+		if(this.game.isGameStarted() == false || this.game.isPaused() == false //the start screen, or the game is running
+				|| this.renderer.keepsFrames() == false || this.rewindMoved //or the paused frame has to be drawn again
+				|| this.showPerf){ //or the overlay keeps changing
+			this.rewindMoved = false;
+			this.refreshScreen(alpha); // redraws the screen after things move
+		}
+	}
+
+	/**
+	 * Re-draw the screen, timing the frame and its parts (see PerfProbes), and marking it if it was slow (see SlowFrameEvent)
+	 * @param alpha how far to draw the birds between their previous and current positions
+	 */
+	public void refreshScreen(double alpha) {
+		SlowFrameEvent slow = new SlowFrameEvent();
+		slow.begin();
+		long start = System.nanoTime();
+		this.sceneNanos = 0;
+		this.hudNanos = 0;
+		this.blitNanos = 0;
+		if(this.dirtyRegions != null){
+			this.refreshDirtyRegions(alpha);
+		} else{
+			boolean shown;
+			do {
+				this.paintbrush = this.renderer.beginFrame();
+				this.drawFrame(alpha);
+				long drawn = System.nanoTime();
+				shown = this.renderer.endFrame(); // displays the frame to the screen, or draws it again if it was lost
+				this.blitNanos += System.nanoTime() - drawn;
+			} while(!shown);
+		}
+		this.probes.recordFrame(System.nanoTime() - start, this.sceneNanos, this.hudNanos, this.blitNanos);
+		if(this.firstFrameShown == false){
+			this.firstFrameShown = true;
+			this.reportFirstFrame();
+		}
+		slow.end();
+		if(slow.shouldCommit()){
+			slow.sceneNanos = this.sceneNanos;
+			slow.hudNanos = this.hudNanos;
+			slow.blitNanos = this.blitNanos;
+			slow.tickNanos = this.lastTickNanos;
+			slow.commit();
 		}
 	}
-	
 	
 	/**
-	 * Check for platform collisions and apply gravity 
+	 * Prints how long the game took to show its first frame, from the JVM starting and from the constructor
+	 * starting, and how long the images took to load
 	 */
-	void checkBoxCollisions(){
-		//BOX COLLISIONS
-		Rectangle mWall = new Rectangle((int)this.wall.getX(), (int)this.wall.getY(), this.wall.width - 30, this.wall.height); //top platform
-		Rectangle bWall = new Rectangle((int)this.bottomWall.getX(), (int) this.bottomWall.getY(), this.bottomWall.width - 30, this.bottomWall.height); //bottom platform
-		this.b1 = new Rectangle((int)this.birdyBird.getXPosition(), (int)this.birdyBird.getYPosition(), this.birdyBird.getWidth()/2, this.birdyBird.getHeight()-30);
-		Rectangle bird1 = new Rectangle((int)this.birdyBird.getXPosition() - this.birdyBird.getWidth()/2, (int)this.birdyBird.getYPosition() - this.birdyBird.getHeight()/2, this.birdyBird.getWidth(), this.birdyBird.getHeight());
-		Rectangle bird2 = new Rectangle((int)this.otherBird.getXPosition() - this.otherBird.getWidth()/2, (int)this.otherBird.getYPosition() - this.otherBird.getHeight()/2, this.otherBird.getWidth(), this.otherBird.getHeight());
-		this.b2 = new Rectangle((int)this.otherBird.getXPosition(), (int)this.otherBird.getYPosition(), this.otherBird.getWidth()/2, this.otherBird.getHeight()-30);
-		if(this.boxCheck.checkForBoxCollision(bird1, mWall)){
-
-			if(this.birdyBird.getYPosition() <= this.wall.getCenterY()){
-
-				this.birdyBird.setYPosition(this.wall.getY()- 1  - this.birdyBird.getHeight()/(4));
-			}
-			else{
-				this.birdyBird.setYVelocity(this.birdyBird.getYVelocity() * -1.25);
-			}
-
-		} else if(this.boxCheck.checkForBoxCollision(bird1, bWall)){
-
-			if(this.birdyBird.getYPosition() <= this.bottomWall.getCenterY()){
-
-				this.birdyBird.setYPosition(this.bottomWall.getY()- 1  - this.birdyBird.getHeight()/(4));
-			}
-			else{
-				this.birdyBird.setYVelocity(this.birdyBird.getYVelocity() * -1.25);
-			}
-		} else{ //GRAVITY
-			this.birdyBird.fall();
+	private void reportFirstFrame() {
+		long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+		System.out.println(String.format("first frame %d ms after starting (%.0f ms after JoustScreen), images loaded in %.0f ms, %d of %d from %s",
+				uptime, (System.nanoTime() - this.constructedAt) / 1e6, this.assets.getLoadMillis(),
+				this.assets.getFromCache(), this.assets.getTotal(), System.getProperty("jousty.assetCache", "no cache")));
+		if(this.assets.getCacheProblem() != null){
+			System.err.println(this.assets.getCacheProblem());
 		}
-		if(this.boxCheck.checkForBoxCollision(bird2, mWall)){
-
-			if(this.otherBird.getYPosition() <= this.wall.getCenterY()){
-
-				this.otherBird.setYPosition(this.wall.getY()- 1  - this.otherBird.getHeight()/(4));
-			}	
-			else{
-				this.otherBird.setYVelocity(this.otherBird.getYVelocity() * -1.25);
-			}
-		} else if(this.boxCheck.checkForBoxCollision(bird2, bWall)){
-
-			if(this.otherBird.getYPosition() <= this.bottomWall.getCenterY()){
-
-				this.otherBird.setYPosition(this.bottomWall.getY()- 1  - this.otherBird.getHeight()/(4));
-			}
-			else{
-				this.otherBird.setYVelocity(this.otherBird.getYVelocity() * -1.25);
+	}
+	
+	/**
+	 * Draws everything on the screen with the current paintbrush
+	 */
+	private void drawFrame(double alpha) {
+		//DRAW BACKGROUND & LAVA PIT (erases the previous frame), BIRDS, WALLS
+		long start = System.nanoTime();
+		if(this.swarm != null && this.camera != null){ // only what the camera shows
+			this.camera.view(alpha);
+			int left = this.camera.getLeft(), top = this.camera.getTop();
+			this.paintbrush.setColor(BackgroundLayer.SKY);
+			this.paintbrush.fillRect(0, 0, 800, 600);
+			if(this.backgroundOn){
+				this.tiledBackground.draw(this.paintbrush, left, top, 800, 600);
 			}
-		} else{ //GRAVITY
-			this.otherBird.fall();
+			this.swarm.draw(this.paintbrush, this.redFrames, this.greenFrames, alpha, left, top, 800, 600);
+			this.sceneNanos += System.nanoTime() - start;
+		} else if(this.swarm != null){ // no lava in swarm mode
+			this.backgroundLayer.draw(this.paintbrush, this.backgroundOn, false);
+			this.swarm.draw(this.paintbrush, this.redFrames, this.greenFrames, alpha);
+			this.sceneNanos += System.nanoTime() - start;
+		} else{
+			this.view.drawScene(this.paintbrush, this.game, this.backgroundOn, alpha);
+			long drawn = System.nanoTime();
+			this.sceneNanos += drawn - start;
+			this.view.drawHud(this.paintbrush, this.game);
+			this.hudNanos += System.nanoTime() - drawn;
+		}
+		this.drawPerfOverlay();
+	}
+	
+	/**
+	 * Draws the performance overlay, if it's on (F3)
+	 */
+	private void drawPerfOverlay() {
+		if(this.showPerf){
+			this.perfOverlay.draw(this.paintbrush, this.gameLoop.getTickRate(), this.gameLoop.getFrameRate());
 		}
 	}
 	
 	/**
-	 * This method will check for two birds colliding.
-	 * Respective player's score is updated if a valid collision occurs 
+	 * Re-draw only the parts of the screen that changed
+	 *  >> where the birds are and where they were in the last frame
+	 *  >> where the platforms are and were, if they moved
+	 *  >> messages that appeared or disappeared
+	 *  >> everything, when the background changes
+	 * Each part is covered with the background layer and everything in it is drawn again,
+	 * then only those parts of the window are repainted.
 	 */
-	void checkBirdCollisions(){
-		if(this.boxCheck.checkBirdCollision(this.b1, this.b2).equals("birdyBird scores")){
-
-			if(this.otherBird.getXPosition() >= 400){
-				this.otherBird.setXPosition(100);
-				this.otherBird.setYPosition(40);
-			} else{
-				this.otherBird.setXPosition(700);
-				this.otherBird.setYPosition(40);
-			} 
-			this.leftPlayerScore++;
-			this.leftScored = true;
-			this.gameTimeAtScore = this.gameTime;
-		}
-		else if(this.boxCheck.checkBirdCollision(this.b1, this.b2).equals("otherBird scores")){
-
-			if(this.birdyBird.getXPosition() >= 400){
-				this.birdyBird.setXPosition(100);
-				this.birdyBird.setYPosition(40);
-			} else{
-				this.birdyBird.setXPosition(700);
-				this.birdyBird.setYPosition(40);
+	private void refreshDirtyRegions(double alpha) {
+		ImageRenderer image = (ImageRenderer)this.renderer;
+		DirtyRegions dirty = this.dirtyRegions;
+		Bird red = this.game.getRedBird();
+		Bird green = this.game.getGreenBird();
+
+		// WHAT CHANGED
+		if(this.backgroundLayer.update(this.backgroundOn, this.game.isLavaOn()) || this.redrawEverything){
+			dirty.addEverything();
+			this.redrawEverything = false;
+		}
+		dirty.add(red.getDrawnX(alpha), red.getDrawnY(alpha), red.getWidth(), red.getHeight());
+		dirty.add(green.getDrawnX(alpha), green.getDrawnY(alpha), green.getWidth(), green.getHeight());
+		for(int p = 0; p < this.drawnPlatforms.length; p++){
+			this.addIfMoved(this.game.getPlatform(p), this.drawnPlatforms[p]);
+		}
+		this.hud.update(this.game);
+		this.hud.addChangedBounds(dirty);
+		if(this.showDirtyRegions){
+			dirty.add(0, 580, 300, 20); // room for the counters
+		}
+		if(this.showPerf || this.perfOverlayShown){ // the overlay changes every frame, or was just hidden
+			dirty.add(PerfOverlay.X, PerfOverlay.Y, PerfOverlay.WIDTH, PerfOverlay.HEIGHT);
+			this.perfOverlayShown = this.showPerf;
+		}
+
+		// DRAW ONLY THOSE PARTS
+		long start = System.nanoTime();
+		this.paintbrush = image.beginFrame();
+		int regions = dirty.merge();
+		for(int i = 0; i < regions; i++){
+			int x = dirty.getX(i), y = dirty.getY(i), w = dirty.getWidth(i), h = dirty.getHeight(i);
+			this.paintbrush.setClip(x, y, w, h);
+			this.backgroundLayer.draw(this.paintbrush, x, y, w, h);
+			red.draw(this.paintbrush, alpha);
+			green.draw(this.paintbrush, alpha);
+			this.paintbrush.setColor(Color.BLACK);
+			for(int p = 0; p < this.game.getPlatformCount(); p++){
+				Hitbox platform = this.game.getPlatform(p);
+				this.paintbrush.fillRect(platform.x, platform.y, platform.width, platform.height);
 			}
-			this.rightPlayerScore++;
-			this.rightScored = true;
-			this.gameTimeAtScore = this.gameTime;
+			this.hud.draw(this.paintbrush);
 		}
-		else if(this.boxCheck.checkBirdCollision(this.b1, this.b2).equals("partial collision")){
+		this.paintbrush.setClip(null);
+		this.sceneNanos = System.nanoTime() - start; // the messages are drawn with everything else here
+		this.drawPerfOverlay();
 
-			if(this.birdyBird.getXVelocity() <= 0 ){
-				this.birdyBird.bounce(RIGHT);
-			}
-			else if(this.birdyBird.getXVelocity() > 0){
-				this.birdyBird.bounce(LEFT);
-			}
-			if(this.otherBird.getXVelocity() <= 0){
-				this.otherBird.bounce(RIGHT);
-			}
-			else if(this.otherBird.getXVelocity() > 0){
-				this.otherBird.bounce(LEFT);
+		// DEBUG OVERLAY
+		if(this.showDirtyRegions){
+			this.paintbrush.setColor(Color.MAGENTA);
+			for(int i = 0; i < dirty.getChangedCount(); i++){
+				this.paintbrush.drawRect(dirty.getX(i), dirty.getY(i), dirty.getWidth(i) - 1, dirty.getHeight(i) - 1);
 			}
+			this.paintbrush.setFont(this.debugFont);
+			this.paintbrush.drawString(regions + " regions, " + dirty.getPixelsTouched() + " pixels", 5, 595);
+		}
 
+		long drawn = System.nanoTime();
+		for(int i = 0; i < regions; i++){
+			image.endFrame(dirty.getX(i), dirty.getY(i), dirty.getWidth(i), dirty.getHeight(i));
 		}
-		else if(this.gameTimeAtScore + 100 < this.gameTime){
-			this.rightScored = false;
-			this.leftScored = false;
+		this.blitNanos = System.nanoTime() - drawn;
+		if(this.showDirtyRegions){
+			dirty.outlined(); // so the outlines get drawn over next frame
+		}
+		dirty.endFrame();
+	}
+
+	/**
+	 * Marks where a platform was and is, if it moved since it was last drawn
+	 */
+	private void addIfMoved(Hitbox platform, Rectangle drawn) {
+		if(platform.x != drawn.x || platform.y != drawn.y || platform.width != drawn.width || platform.height != drawn.height){
+			this.dirtyRegions.add(drawn);
+			this.dirtyRegions.add(platform.x, platform.y, platform.width, platform.height);
+			drawn.setBounds(platform.x, platform.y, platform.width, platform.height);
 		}
 	}
-	
 	
 	/**
-	 * This method will change the x and y position of the two in-game platforms if
-	 * moving platforms are selected in the game menu
+	 * This method gets called whenever a key is pressed
+	 * and queues the key for the tick of the game it was pressed in
 	 */
-	void updatePlatformPosition(){
-		if(this.wall.getX() > 0 && this.gameStart == true){
-			this.wall.setLocation(this.wall.x - 1, this.wall.y);
+	public void keyPressed(KeyEvent event) {
+
+		if (event.getKeyCode() == KeyEvent.VK_A) {
+			this.queueInput(GameSimulation.INPUT_RED_LEFT);
+		} 
+		if(event.getKeyCode() == KeyEvent.VK_S){
+			this.queueInput(GameSimulation.INPUT_RED_RIGHT);
 		}
-		else if(this.wall.getY() > 400 && this.gameStart == true){
-			this.wall.setLocation(this.wall.x, 0);
+		if(event.getKeyCode() == KeyEvent.VK_K){
+			this.queueInput(GameSimulation.INPUT_GREEN_LEFT);
 		}
-		else if(this.gameStart == true){
-			this.wall.setLocation(this.wall.x + 700, this.wall.y + 50);
+		if(event.getKeyCode() == KeyEvent.VK_L){
+			this.queueInput(GameSimulation.INPUT_GREEN_RIGHT);
 		}
-		else{
-			this.wall.x = 650;
+		if(event.getKeyCode() == KeyEvent.VK_ENTER){
+			this.queueInput(GameSimulation.INPUT_PAUSE); // pressing enter twice in a tick cancels out
 		}
-	
-		if(this.bottomWall.getX() >= 0 && this.bottomWall.getX() < 800 - this.bottomWall.width  && this.gameStart == true){
-			this.bottomWall.setLocation(this.bottomWall.x + 2 * bottomWalDirection, this.bottomWall.y);
+		if(event.getKeyCode() == KeyEvent.VK_LEFT){
+			this.pendingRewind.addAndGet(event.isShiftDown() ? this.gameLoop.getTargetTickRate() : 1);
 		}
-		else if(this.gameStart == true){
-			this.bottomWalDirection *= -1;
-			this.bottomWall.setLocation(this.bottomWall.x + 2 * bottomWalDirection, this.bottomWall.y);
+		if(event.getKeyCode() == KeyEvent.VK_RIGHT){
+			this.pendingRewind.addAndGet(event.isShiftDown() ? -this.gameLoop.getTargetTickRate() : -1);
 		}
-		else{
-			this.bottomWall.x = 0;
+		if(event.getKeyCode() == KeyEvent.VK_F2){
+			this.showDirtyRegions = !this.showDirtyRegions;
+		}
+		if(event.getKeyCode() == KeyEvent.VK_F3){
+			this.showPerf = !this.showPerf;
 		}
 	}
 	
+	/**
+	 * Queues a key, with the time it was pressed, for the tick that time falls in; keys arrive
+	 * on the Swing thread while the game ticks on its own thread
+	 */
+	private void queueInput(int input) {
+		this.pendingInputs.offer(input, System.nanoTime());
+	}
 	
 	/**
-	 * This method manages on screen messages
-	 *  >> game rules and setup help
-	 *  >> "3,2,1, go"
-	 *  >> player scoring 
-	 *  >> game over message
+	 * This method is called whenever a component in the settings window is clicked
+	 * Controls the optional background and lava pit
 	 */
-	void drawMessages(){
-		// text drawing, for scores and other messages
-		String endMessage = "";
-		Font f = new Font(Font.SANS_SERIF, Font.BOLD, 90);
-		if(this.rightPlayerScore == 10 || this.leftPlayerScore == 10){// END OF GAME MESSAGES
-
-			if(this.rightPlayerScore == 10){
-				endMessage = "GREEN WINS!!!";
-			}
-			else if(this.leftPlayerScore == 10){
-				endMessage = "RED WINS!!!";
-			}
-			Font ff = new Font(Font.SANS_SERIF, Font.BOLD, 90);
-			this.paintbrush.setFont(ff);
-			Rectangle2D rr = ff.getStringBounds(endMessage, this.paintbrush.getFontRenderContext());
-			this.paintbrush.setFont(ff);
-			this.paintbrush.setColor(Color.BLUE);
-			this.paintbrush.drawString(endMessage, 400-(int)rr.getWidth()/2, 300);
-			f = new Font(Font.SANS_SERIF, Font.BOLD, 20);
-			this.paintbrush.setFont(f);
-			this.paintbrush.setColor(new Color(127,0,0)); // dark red
-			this.paintbrush.drawString(this.leftPlayerScore.toString(), 30, 30);
-			this.paintbrush.setColor(new Color(0,127,0)); // dark green
-			this.paintbrush.drawString(this.rightPlayerScore.toString(), 760, 30);
-
-		} else if(this.gameStart == false && this.gameTime ==0){
+	public void itemStateChanged(ItemEvent e) {
 
-			String msg1 = "1. Select options from the Settings Window";
-			String msg2 = "2. Press Enter to Start";
-			String msg3 = "3. Press Enter again to pause/unpause";
-			String msg4 = "4. First to 10 wins";
-			String msg5 = "    Be careful, hitting the lava will kill your bird and gives the other bird a point";
-			f = new Font(Font.SANS_SERIF, Font.PLAIN, 40);
-			Rectangle2D r = f.getStringBounds(msg1, this.paintbrush.getFontRenderContext());
-			this.paintbrush.setFont(f);
-			this.paintbrush.setColor(Color.BLACK);
-			this.paintbrush.drawString(msg1, 400 - (int)r.getWidth()/2, 300);
-			this.paintbrush.drawString(msg2, 400 - (int)r.getWidth()/2, 350);
-			this.paintbrush.drawString(msg3, 400 - (int)r.getWidth()/2, 400);
-			this.paintbrush.drawString(msg4, 400 - (int)r.getWidth()/2, 450);
-			f = new Font(Font.SANS_SERIF, Font.PLAIN, 20);
-			this.paintbrush.setFont(f);
-			this.paintbrush.drawString(msg5, 400 - (int)r.getWidth()/2, 500);
+		Object source = e.getItemSelectable();
+		if (source == this.lava) {
 
+			this.lavaOn = !this.lavaOn;
 		}
-		else if(this.gameTime < 25){//START OF GAME MESSAGES
-
-			String msg = "READY.";
-			f = new Font(Font.SANS_SERIF, Font.BOLD, 90);
-			Rectangle2D r = f.getStringBounds(msg, this.paintbrush.getFontRenderContext());
-			this.paintbrush.setFont(f);
-			this.paintbrush.setColor(Color.BLUE);
-			this.paintbrush.drawString(msg, 400-(int)r.getWidth()/2, 300);
-
-		} else if(this.gameTime >= 25 && this.gameTime < 50){
-
-			String msg = "SET.";
-			f = new Font(Font.SANS_SERIF, Font.BOLD, 90);
-			Rectangle2D r = f.getStringBounds(msg, this.paintbrush.getFontRenderContext());
-			this.paintbrush.setFont(f);
-			this.paintbrush.setColor(Color.BLUE);
-			this.paintbrush.drawString(msg, 400-(int)r.getWidth()/2, 300);
-
-		} else if(this.gameTime >= 50 && this.gameTime < 100){
-
-			String msg = "GO!.";
-			Rectangle2D r = f.getStringBounds(msg, this.paintbrush.getFontRenderContext());
-			this.paintbrush.setFont(f);
-			this.paintbrush.setColor(Color.BLUE);
-			this.paintbrush.drawString(msg, 400-(int)r.getWidth()/2, 300);
+		if (source == this.coolBackground) {
 
+			this.backgroundOn = !this.backgroundOn;
 		}
-		else{ // SCORING MESSAGES
-
-			f = new Font(Font.SANS_SERIF, Font.BOLD, 20);
-			this.paintbrush.setFont(f);
-			this.paintbrush.setColor(new Color(127,0,0)); // dark red
-			this.paintbrush.drawString(this.leftPlayerScore.toString(), 30, 30);
-			this.paintbrush.setColor(new Color(0,127,0)); // dark green
-			this.paintbrush.drawString(this.rightPlayerScore.toString(), 760, 30);
-			if(this.rightScored == true){
-				this.paintbrush.setColor(new Color(0,127,0)); // dark green
-				this.paintbrush.drawString("GREEN SCORED!", 600, 300);
-			}
-			if(this.leftScored == true){
-				this.paintbrush.setColor(new Color(127,0,0)); // dark red
-				this.paintbrush.drawString("RED SCORED!", 30, 300);
-			}
+		if(source == this.movingPlatforms){
+			
+			this.movingPlatformsOn = !this.movingPlatformsOn;
 		}
 	}
-
+	
+	
 	@Override
 	public void componentHidden(ComponentEvent arg0) {
 		// TODO Auto-generated method stub, 
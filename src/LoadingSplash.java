@@ -0,0 +1,65 @@
+import java.awt.BorderLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.BorderFactory;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.JWindow;
+import javax.swing.Timer;
+
+/**
+ * A small window showing how many of the game's images an AssetLoader has loaded
+ *
+ *  >> only shows up if loading takes longer than DELAY, so a start from the cache doesn't flash it
+ *  >> checks the loader every DELAY on the event dispatch thread, so it keeps moving while the
+ *     constructing thread waits for an image
+ *  >> goes away by itself once everything is loaded
+ */
+public class LoadingSplash implements ActionListener {
+
+	private static final int DELAY = 100; // milliseconds
+
+	private final AssetLoader loader;
+	private final JWindow window = new JWindow();
+	private final JProgressBar progress;
+	private final Timer timer = new Timer(DELAY, this);
+
+	public LoadingSplash(AssetLoader loader) {
+		this.loader = loader;
+		this.progress = new JProgressBar(0, loader.getTotal());
+		this.progress.setStringPainted(true);
+		JPanel panel = new JPanel(new BorderLayout(0, 6));
+		panel.setBorder(BorderFactory.createEmptyBorder(12, 16, 12, 16));
+		panel.add(new JLabel("Jousty Bird"), BorderLayout.NORTH);
+		panel.add(this.progress, BorderLayout.CENTER);
+		this.window.getContentPane().add(panel);
+		this.window.setSize(260, 70);
+		this.window.setLocationRelativeTo(null); // the middle of the screen
+	}
+
+	/**
+	 * Starts checking the loader
+	 */
+	public void start() {
+		this.timer.start();
+	}
+
+	/**
+	 * Updates the progress bar, showing the window the first time, or closes it once everything is loaded
+	 */
+	public void actionPerformed(ActionEvent e) {
+		int loaded = this.loader.getLoaded();
+		if(loaded == this.loader.getTotal()){
+			this.timer.stop();
+			this.window.dispose();
+			return;
+		}
+		this.progress.setValue(loaded);
+		this.progress.setString("loading " + loaded + " of " + this.loader.getTotal() + " images");
+		if(!this.window.isVisible()){
+			this.window.setVisible(true);
+		}
+	}
+}
@@ -0,0 +1,323 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Two player game over the network, one player on each computer, with rollback
+ *
+ * Each computer runs the whole GameSimulation. Every tick
+ *  >> the local player's keys are used straight away, so they never lag
+ *  >> the other player's keys for that tick are used if they already arrived; if not, they are
+ *     guessed (no keys pressed, settings unchanged) and the tick goes ahead anyway
+ *  >> when the real keys arrive and differ from the guess, the game is put back the way it was
+ *     before that tick (from a RewindBuffer) and played forward again to the present
+ *  >> the keys of the last few ticks are sent to the other computer in a UDP packet
+ *
+ * Every packet carries all the ticks the other side hasn't acknowledged yet, so a lost packet
+ * is made up for by the next one and nothing is ever sent again on purpose. If the other side
+ * falls more than WINDOW ticks behind, this side waits for it (poll() returns false).
+ *
+ * The red player's settings (lava, moving platforms) are sent along with its keys and used by
+ * both sides; the green player's settings are ignored. Either player can pause with Enter.
+ *
+ * Both computers have to be playing the same match: every packet says which arena (its fingerprint),
+ * tick rate and rules (see Replay.rules) the sender is playing with, and poll() refuses packets that don't
+ * match this side's.
+ *
+ * Packets: the magic number "JBNT", the arena's fingerprint, the tick rate, the rules, the sender's latest tick
+ * of the receiver's it has all of the keys up to, the first tick in the packet, how many ticks, then one tick
+ * word (see Replay.tickWord) per tick.
+ */
+public class NetSession {
+
+	public static final int RED = 0;
+	public static final int GREEN = 1;
+	public static final int WINDOW = 64;  // most ticks to be ahead of the other side, and to roll back
+
+	private static final int MAGIC = 0x4A424E54; // "JBNT"
+	private static final int HEADER = 4 + 8 + 4 + 1 + 4 + 4 + 1;
+	private static final int HISTORY = 2 * WINDOW; // keys kept, from WINDOW ago to WINDOW ahead
+	private static final int RED_KEYS = GameSimulation.INPUT_RED_LEFT | GameSimulation.INPUT_RED_RIGHT | GameSimulation.INPUT_PAUSE;
+	private static final int GREEN_KEYS = GameSimulation.INPUT_GREEN_LEFT | GameSimulation.INPUT_GREEN_RIGHT | GameSimulation.INPUT_PAUSE;
+	private static final int SETTINGS = Replay.LAVA_ON | Replay.MOVING_PLATFORMS_ON;
+
+	private final GameSimulation game;
+	private final int tickRate;
+	private final int rules;
+	private final int side;
+	private final DatagramChannel channel;
+	private final SocketAddress peer;
+	private final ByteBuffer outgoing = ByteBuffer.allocate(HEADER + WINDOW);
+	private final ByteBuffer incoming = ByteBuffer.allocate(1500);
+	private final RewindBuffer states = new RewindBuffer(WINDOW + 1); // the game before each of the last ticks
+
+	/**
+	 * Ticks, and the keys for them by tick % HISTORY
+	 */
+	private int tick;                 // the next tick to play
+	private int[] localWords = new int[HISTORY];
+	private int[] remoteWords = new int[HISTORY];
+	private int[] usedRemoteWords = new int[HISTORY]; // what the tick was played with, real or guessed
+	private int remoteConfirmed = -1; // every tick of the other side's keys up to here has arrived
+	private int peerConfirmed = -1;   // the other side has every tick of ours up to here
+	private int lastRemoteWord;
+
+	/**
+	 * Counters
+	 */
+	private long rollbacks;
+	private long replayedTicks;
+	private int deepestRollback;
+	private long stalls;
+	private long packetsSent;
+	private long packetsReceived;
+
+	/**
+	 * @param game a new game, to be played only through this session, with its rules set
+	 * @param tickRate ticks a second, which the other computer has to play at too
+	 * @param side RED or GREEN, the bird played on this computer
+	 * @param local the address to receive packets on
+	 * @param peer the address of the other computer
+	 */
+	public NetSession(GameSimulation game, int tickRate, int side, InetSocketAddress local, InetSocketAddress peer) throws IOException {
+		if(side != RED && side != GREEN){
+			throw new IllegalArgumentException("side must be RED or GREEN: " + side);
+		}
+		this.game = game;
+		this.tickRate = tickRate;
+		this.rules = Replay.rules(game);
+		this.side = side;
+		this.peer = peer;
+		this.channel = DatagramChannel.open();
+		this.channel.configureBlocking(false);
+		this.channel.bind(local);
+		this.states.record(game); // the game before the first tick
+	}
+
+	/**
+	 * Takes in the other side's keys that have arrived, rolling back if a guess was wrong;
+	 * call before every tick()
+	 * @return false if the other side is too far behind, and this side has to wait for it
+	 * @throws IOException if the other side is playing a different match, or the connection failed
+	 */
+	public boolean poll() throws IOException {
+		int from = this.receive();
+		if(from < this.tick){
+			this.rollBack(from);
+		}
+		if(this.tick - this.remoteConfirmed >= WINDOW){
+			this.stalls++;
+			this.send(); // in case it is waiting for us too
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Plays the next tick with the local player's keys, after poll() said to
+	 * @param inputs INPUT_ bits; either player's keys move the local bird
+	 * @param lavaOn the local settings, used if this is the red player
+	 * @param movingPlatformsOn
+	 */
+	public void tick(int inputs, boolean lavaOn, boolean movingPlatformsOn) throws IOException {
+		this.localWords[this.tick % HISTORY] = this.localWord(inputs, lavaOn, movingPlatformsOn);
+		this.play(this.tick);
+		this.tick++;
+		this.send();
+	}
+
+	/**
+	 * Plays a tick with the keys known (or guessed) for it, and keeps the game from before the next one
+	 */
+	private void play(int t) {
+		int remote = t <= this.remoteConfirmed ? this.remoteWords[t % HISTORY] : this.guess();
+		this.usedRemoteWords[t % HISTORY] = remote;
+		int red = this.side == RED ? this.localWords[t % HISTORY] : remote;
+		int green = this.side == RED ? remote : this.localWords[t % HISTORY];
+		this.game.setLavaOn(Replay.isLavaOn(red));
+		this.game.setMovingPlatformsOn(Replay.isMovingPlatformsOn(red));
+		this.game.step((Replay.inputs(red) & RED_KEYS) | (Replay.inputs(green) & GREEN_KEYS));
+		this.states.record(this.game);
+	}
+
+	/**
+	 * The other side's keys for a tick that hasn't arrived: nothing pressed, settings as they were
+	 */
+	private int guess() {
+		return this.lastRemoteWord & SETTINGS;
+	}
+
+	/**
+	 * Puts the game back the way it was before a tick, and plays forward again to the present
+	 */
+	private void rollBack(int from) {
+		int ticks = this.tick - from;
+		this.states.restore(ticks, this.game);
+		this.states.discardNewest(ticks);
+		for(int t = from; t < this.tick; t++){
+			this.play(t);
+		}
+		this.rollbacks++;
+		this.replayedTicks += ticks;
+		this.deepestRollback = Math.max(this.deepestRollback, ticks);
+	}
+
+	/**
+	 * This player's keys as the bits of their own bird
+	 */
+	private int localWord(int inputs, boolean lavaOn, boolean movingPlatformsOn) {
+		boolean left = (inputs & (GameSimulation.INPUT_RED_LEFT | GameSimulation.INPUT_GREEN_LEFT)) != 0;
+		boolean right = (inputs & (GameSimulation.INPUT_RED_RIGHT | GameSimulation.INPUT_GREEN_RIGHT)) != 0;
+		int keys = inputs & GameSimulation.INPUT_PAUSE;
+		if(this.side == RED){
+			keys |= (left ? GameSimulation.INPUT_RED_LEFT : 0) | (right ? GameSimulation.INPUT_RED_RIGHT : 0);
+			return Replay.tickWord(keys, lavaOn, movingPlatformsOn);
+		}
+		keys |= (left ? GameSimulation.INPUT_GREEN_LEFT : 0) | (right ? GameSimulation.INPUT_GREEN_RIGHT : 0);
+		return Replay.tickWord(keys, false, false);
+	}
+
+	/**
+	 * Reads every packet that has arrived
+	 * @return the first tick that was played with a wrong guess, or the current tick if none was
+	 * @throws IOException if the other side is playing in another arena, at another tick rate or by other rules
+	 */
+	private int receive() throws IOException {
+		int wrongFrom = this.tick;
+		while(true){
+			this.incoming.clear();
+			SocketAddress sender = this.channel.receive(this.incoming);
+			if(sender == null){
+				return wrongFrom;
+			}
+			this.incoming.flip();
+			if(!sender.equals(this.peer) || this.incoming.remaining() < HEADER || this.incoming.getInt() != MAGIC){
+				continue;
+			}
+			if(this.incoming.getLong() != this.game.getArena().getFingerprint()){
+				throw new IOException("the other computer is playing in a different arena, not " + this.game.getArena().getName());
+			}
+			int peerTickRate = this.incoming.getInt();
+			if(peerTickRate != this.tickRate){
+				throw new IOException("the other computer plays " + peerTickRate + " ticks a second, not " + this.tickRate);
+			}
+			int peerRules = this.incoming.get();
+			if(peerRules != this.rules){
+				throw new IOException("the other computer plays with " + Replay.describeRules(peerRules) + ", not " + Replay.describeRules(this.rules));
+			}
+			this.packetsReceived++;
+			this.peerConfirmed = Math.max(this.peerConfirmed, this.incoming.getInt());
+			int first = this.incoming.getInt();
+			int count = this.incoming.get() & 0xFF;
+			for(int i = 0; i < count && this.incoming.hasRemaining(); i++){
+				int t = first + i;
+				int word = this.incoming.get();
+				if(t != this.remoteConfirmed + 1){ // already have it, or one before it is missing
+					continue;
+				}
+				this.remoteWords[t % HISTORY] = word;
+				this.remoteConfirmed = t;
+				this.lastRemoteWord = word;
+				if(t < this.tick && word != this.usedRemoteWords[t % HISTORY]){
+					wrongFrom = Math.min(wrongFrom, t);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sends every tick of keys the other side doesn't have yet
+	 */
+	private void send() throws IOException {
+		int first = Math.max(this.peerConfirmed + 1, this.tick - WINDOW);
+		int count = this.tick - first;
+		this.outgoing.clear();
+		this.outgoing.putInt(MAGIC);
+		this.outgoing.putLong(this.game.getArena().getFingerprint());
+		this.outgoing.putInt(this.tickRate);
+		this.outgoing.put((byte)this.rules);
+		this.outgoing.putInt(this.remoteConfirmed);
+		this.outgoing.putInt(first);
+		this.outgoing.put((byte)count);
+		for(int t = first; t < this.tick; t++){
+			this.outgoing.put((byte)this.localWords[t % HISTORY]);
+		}
+		this.outgoing.flip();
+		this.channel.send(this.outgoing, this.peer);
+		this.packetsSent++;
+	}
+
+	/**
+	 * Sends the keys the other side doesn't have yet; for while this side isn't ticking, such as after a match
+	 */
+	public void resend() throws IOException {
+		this.send();
+	}
+
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+	/**
+	 * get methods
+	 */
+	public GameSimulation getGame(){
+		return this.game;
+	}
+
+	public int getTickRate(){
+		return this.tickRate;
+	}
+
+	public int getSide(){
+		return this.side;
+	}
+
+	/**
+	 * @return how many ticks have been played
+	 */
+	public int getTick(){
+		return this.tick;
+	}
+
+	/**
+	 * @return true if every tick played so far was played with the other side's real keys,
+	 * so the game can't change any more
+	 */
+	public boolean isSettled(){
+		return this.remoteConfirmed >= this.tick - 1;
+	}
+
+	/**
+	 * @return true if the other side has said it has every tick of ours played so far, so it can settle too
+	 */
+	public boolean isAcknowledged(){
+		return this.peerConfirmed >= this.tick - 1;
+	}
+
+	public long getRollbacks(){
+		return this.rollbacks;
+	}
+
+	public long getReplayedTicks(){
+		return this.replayedTicks;
+	}
+
+	public int getDeepestRollback(){
+		return this.deepestRollback;
+	}
+
+	public long getStalls(){
+		return this.stalls;
+	}
+
+	public long getPacketsSent(){
+		return this.packetsSent;
+	}
+
+	public long getPacketsReceived(){
+		return this.packetsReceived;
+	}
+}
@@ -0,0 +1,87 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+
+/**
+ * Shows the PerfProbes over the game (F3)
+ *  >> ticks and frames per second
+ *  >> p50, p99 and max of every probe over the last half second, times in microseconds
+ *  >> garbage collections in the last half second, and the longest
+ *
+ * The lines are only worked out again twice a second, from the difference between the probes'
+ * counts now and last time, so the overlay shows how the game is doing now rather than since it started.
+ */
+public class PerfOverlay {
+
+	public static final int X = 210;   // where it is drawn, clear of the scores
+	public static final int Y = 5;
+	public static final int WIDTH = 380;
+	public static final int HEIGHT = 16 + 14 * (PerfProbes.COUNT + 1);
+	private static final long UPDATE_NANOS = 500000000L;
+	private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+	private static final Color SHADE = new Color(0, 0, 0, 160);
+
+	private final PerfProbes probes;
+	private final long[][] last = new long[PerfProbes.COUNT][Histogram.BUCKETS]; // counts when the lines were last worked out
+	private final long[] now = new long[Histogram.BUCKETS];
+	private final String[] lines = new String[PerfProbes.COUNT + 2];
+	private long updatedAt;
+
+	public PerfOverlay(PerfProbes probes) {
+		this.probes = probes;
+		for(int i = 0; i < this.lines.length; i++){
+			this.lines[i] = "";
+		}
+	}
+
+	/**
+	 * Draws the overlay, working out the lines again if it's time
+	 * @param g the paintbrush to use for the drawing
+	 * @param ticksPerSecond as measured by the GameLoop
+	 * @param framesPerSecond
+	 */
+	public void draw(Graphics2D g, double ticksPerSecond, double framesPerSecond) {
+		long time = System.nanoTime();
+		if(time - this.updatedAt >= UPDATE_NANOS){
+			this.update(ticksPerSecond, framesPerSecond);
+			this.updatedAt = time;
+		}
+		g.setColor(SHADE);
+		g.fillRect(X, Y, WIDTH, HEIGHT);
+		g.setColor(Color.WHITE);
+		g.setFont(FONT);
+		for(int i = 0; i < this.lines.length; i++){
+			g.drawString(this.lines[i], X + 6, Y + 14 + 14 * i);
+		}
+	}
+
+	private void update(double ticksPerSecond, double framesPerSecond) {
+		this.lines[0] = String.format("%.0f ticks/s %.0f frames/s %13s %7s %7s", ticksPerSecond, framesPerSecond, "p50", "p99", "max");
+		for(int p = 0; p < PerfProbes.COUNT; p++){
+			this.probes.getHistogram(p).snapshot(this.now);
+			long count = 0;
+			int highest = -1;
+			for(int b = 0; b < Histogram.BUCKETS; b++){
+				long recent = this.now[b] - this.last[p][b];
+				this.last[p][b] = this.now[b];
+				this.now[b] = recent;
+				count += recent;
+				if(recent > 0){
+					highest = b;
+				}
+			}
+			long max = highest < 0 ? 0 : Histogram.highestIn(highest);
+			if(p == PerfProbes.GC_PAUSE){
+				this.lines[p + 1] = String.format("%-11s %d in the last half second, longest %d ms", "gc", count, max / 1000000);
+			} else if(p == PerfProbes.ALLOCATION){
+				this.lines[p + 1] = !this.probes.countsAllocations() ? "alloc/frame not counted on this JVM"
+						: String.format("%-11s %7d %7d %7d bytes", PerfProbes.getName(p), Histogram.percentile(this.now, .5),
+								Histogram.percentile(this.now, .99), max);
+			} else{
+				this.lines[p + 1] = String.format("%-11s %7d %7d %7d us", PerfProbes.getName(p), Histogram.percentile(this.now, .5) / 1000,
+						Histogram.percentile(this.now, .99) / 1000, max / 1000);
+			}
+		}
+		this.lines[this.lines.length - 1] = "F3 hides this";
+	}
+}
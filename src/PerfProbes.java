@@ -0,0 +1,137 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Where the time goes, tick by tick and frame by frame
+ *
+ * One Histogram per probe:
+ *  >> TICK: a whole tick, with PHYSICS (GameSimulation.step) and RECORD (replay, rewind, spectators) inside it
+ *  >> FRAME: a whole frame, with SCENE (background, birds, platforms), HUD and BLIT (putting it on the screen) inside it
+ *  >> ALLOCATION: bytes allocated by the game loop thread between one frame and the next, ticks included
+ *  >> GC_PAUSE: every garbage collection, as told by the JVM
+ *  >> INPUT: from a key being pressed to the tick that handles it (see InputQueue)
+ * Times are in nanoseconds. Probes are recorded on the game loop thread and GC pauses on a JVM thread,
+ * and can be read from any thread while that goes on (see PerfOverlay and dump).
+ */
+public class PerfProbes {
+
+	public static final int TICK = 0;
+	public static final int PHYSICS = 1;
+	public static final int RECORD = 2;
+	public static final int FRAME = 3;
+	public static final int SCENE = 4;
+	public static final int HUD = 5;
+	public static final int BLIT = 6;
+	public static final int ALLOCATION = 7;
+	public static final int GC_PAUSE = 8;
+	public static final int INPUT = 9;
+	public static final int COUNT = 10;
+	private static final String[] NAMES = { "tick", "  physics", "  record", "frame", "  scene", "  hud", "  blit", "alloc/frame", "gc pause", "input wait" };
+
+	private final Histogram[] histograms = new Histogram[COUNT];
+	private final com.sun.management.ThreadMXBean threads; // null if allocations can't be counted
+	private long allocatedAtLastFrame = -1;
+
+	public PerfProbes() {
+		for(int p = 0; p < COUNT; p++){
+			this.histograms[p] = new Histogram();
+		}
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		this.threads = threads instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean)threads : null;
+	}
+
+	/**
+	 * Counts every garbage collection from now on into GC_PAUSE
+	 */
+	public void watchGarbageCollection() {
+		NotificationListener listener = new NotificationListener() {
+			public void handleNotification(Notification notification, Object handback) {
+				if(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())){
+					GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData)notification.getUserData());
+					PerfProbes.this.histograms[GC_PAUSE].record(info.getGcInfo().getDuration() * 1000000);
+				}
+			}
+		};
+		for(GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()){
+			if(collector instanceof NotificationEmitter){
+				((NotificationEmitter)collector).addNotificationListener(listener, null, null);
+			}
+		}
+	}
+
+	/**
+	 * @param probe one of the probes, such as TICK
+	 * @param value nanoseconds, or bytes for ALLOCATION
+	 */
+	public void record(int probe, long value) {
+		this.histograms[probe].record(value);
+	}
+
+	/**
+	 * Records a whole frame and its parts, and what was allocated since the last frame; call on the game loop thread
+	 */
+	public void recordFrame(long frameNanos, long sceneNanos, long hudNanos, long blitNanos) {
+		this.histograms[FRAME].record(frameNanos);
+		this.histograms[SCENE].record(sceneNanos);
+		this.histograms[HUD].record(hudNanos);
+		this.histograms[BLIT].record(blitNanos);
+		if(this.threads != null){
+			long allocated = this.threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+			if(this.allocatedAtLastFrame >= 0){
+				this.histograms[ALLOCATION].record(allocated - this.allocatedAtLastFrame);
+			}
+			this.allocatedAtLastFrame = allocated;
+		}
+	}
+
+	/**
+	 * Writes every probe since the game started: how many, p50, p90, p99, p99.9, max and mean
+	 * (times in microseconds, allocations in bytes)
+	 */
+	public void dump(Path file) throws IOException {
+		PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+		try{
+			out.println(String.format("%-12s %10s %10s %10s %10s %10s %10s %12s", "probe", "count", "p50", "p90", "p99", "p99.9", "max", "mean"));
+			for(int p = 0; p < COUNT; p++){
+				Histogram h = this.histograms[p];
+				double scale = p == ALLOCATION ? 1 : 1000;
+				out.println(String.format("%-12s %10d %10.0f %10.0f %10.0f %10.0f %10.0f %12.1f", NAMES[p], h.getCount(),
+						h.getPercentile(.5) / scale, h.getPercentile(.9) / scale, h.getPercentile(.99) / scale,
+						h.getPercentile(.999) / scale, h.getMax() / scale, h.getMean() / scale));
+			}
+		} finally{
+			out.close();
+		}
+	}
+
+	/**
+	 * get methods
+	 */
+	public Histogram getHistogram(int probe){
+		return this.histograms[probe];
+	}
+
+	public static String getName(int probe){
+		return NAMES[probe];
+	}
+
+	/**
+	 * @return true if ALLOCATION is recorded on this JVM
+	 */
+	public boolean countsAllocations(){
+		return this.threads != null;
+	}
+}
@@ -0,0 +1,35 @@
+import java.awt.Component;
+import java.awt.Graphics2D;
+
+/**
+ * Where the game window's frames are drawn
+ *
+ * A frame is drawn like this, and is drawn again whenever endFrame says it was lost
+ *   do {
+ *       Graphics2D g = renderer.beginFrame();
+ *       ... draw ...
+ *   } while(!renderer.endFrame());
+ */
+public interface Renderer {
+
+	/**
+	 * @return the component to put in the game window
+	 */
+	Component getComponent();
+
+	/**
+	 * @return the paintbrush for drawing the next frame
+	 */
+	Graphics2D beginFrame();
+
+	/**
+	 * Puts the frame on the screen
+	 * @return false if the frame was lost before it could be shown and has to be drawn again
+	 */
+	boolean endFrame();
+
+	/**
+	 * @return true if the last frame stays on screen without being drawn again
+	 */
+	boolean keepsFrames();
+}
@@ -0,0 +1,98 @@
+import java.nio.ByteBuffer;
+
+/**
+ * The replay file format, shared by ReplayRecorder and ReplayReader
+ *
+ * A replay holds everything that decides how a match plays out: the arena and the rules, and for every
+ * tick, the keys handed to GameSimulation.step and the settings that were on. Everything else follows from those.
+ *
+ *  >> HEADER: the magic number "JBRP", a version byte, then the tick rate and checksum interval as varints,
+ *     then the arena's fingerprint (8 bytes) and name (a varint length, then UTF-8), then the RULE_ bits as a varint
+ *  >> RUNS: a varint (tick word << 1) and a varint count, for that many ticks in a row with the same tick word
+ *  >> CHECKSUMS: a varint 1 and then 8 bytes of GameSimulation.checksum() after the ticks so far
+ *
+ * A tick word is the INPUT_ bits with the lava and moving platform settings above them, so a match
+ * where nobody presses anything for a while takes a few bytes per checksum interval.
+ * Varints are 7 bits per byte, lowest first, with the top bit set on every byte but the last.
+ */
+public class Replay {
+
+	public static final int MAGIC = 0x4A425250; // "JBRP"
+	public static final int VERSION = 1;
+	public static final int DEFAULT_CHECKSUM_INTERVAL = 50; // once a second at the default tick rate
+
+	static final int TAG_CHECKSUM = 1;   // any even tag is a run
+	static final int LAVA_ON = 1 << 5;
+	static final int MOVING_PLATFORMS_ON = 1 << 6;
+	static final int INPUTS = 0x1F;
+
+	/**
+	 * Rules that stay the same for a whole match, and that both ends of a replay or a net game have to play by
+	 */
+	public static final int RULE_PIXEL_COLLISIONS = 1;
+	public static final int RULE_SWEPT_COLLISIONS = 2;  // at one tick a step; with more, birds are always swept
+
+	private Replay() {
+	}
+
+	/**
+	 * @return the tick word for the keys and settings of one tick
+	 */
+	public static int tickWord(int inputs, boolean lavaOn, boolean movingPlatformsOn) {
+		return (inputs & INPUTS) | (lavaOn ? LAVA_ON : 0) | (movingPlatformsOn ? MOVING_PLATFORMS_ON : 0);
+	}
+
+	public static int inputs(int tickWord) {
+		return tickWord & INPUTS;
+	}
+
+	public static boolean isLavaOn(int tickWord) {
+		return (tickWord & LAVA_ON) != 0;
+	}
+
+	public static boolean isMovingPlatformsOn(int tickWord) {
+		return (tickWord & MOVING_PLATFORMS_ON) != 0;
+	}
+
+	/**
+	 * @return the RULE_ bits of the rules a game plays by
+	 */
+	public static int rules(GameSimulation game) {
+		return (game.isPixelCollisionsOn() ? RULE_PIXEL_COLLISIONS : 0) | (game.isSweptCollisionsOn() ? RULE_SWEPT_COLLISIONS : 0);
+	}
+
+	/**
+	 * @return the rules a game plays by, in words, for saying why two games can't be played together
+	 */
+	public static String describeRules(int rules) {
+		return "pixel collisions " + ((rules & RULE_PIXEL_COLLISIONS) != 0 ? "on" : "off")
+				+ " and swept collisions " + ((rules & RULE_SWEPT_COLLISIONS) != 0 ? "on" : "off");
+	}
+
+	/**
+	 * Writes a varint of 1 to 5 bytes
+	 */
+	static void putVarint(ByteBuffer buffer, int value) {
+		while((value & ~0x7F) != 0){
+			buffer.put((byte)((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte)value);
+	}
+
+	/**
+	 * Reads a varint written by putVarint
+	 * @throws java.nio.BufferUnderflowException if the buffer ends in the middle of it
+	 */
+	static int getVarint(ByteBuffer buffer) {
+		int value = 0;
+		for(int shift = 0; shift < 35; shift += 7){
+			byte b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			if(b >= 0){
+				return value;
+			}
+		}
+		throw new IllegalStateException("varint longer than 5 bytes");
+	}
+}
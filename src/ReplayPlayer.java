@@ -0,0 +1,153 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Plays a replay without a window, as fast as the CPU allows
+ *
+ * Every tick of the recording is handed to a headless GameSimulation, and the game is checked
+ * against every checksum in the recording. Prints how the match ended and how fast it played,
+ * and exits with status 1 if the game ever differed from the recording.
+ *
+ *   java ReplayPlayer [-arena file] match.jbr
+ *
+ * The match is played in the arena it was recorded in (see findArena), at its tick rate and by its
+ * rules (see setUp); -arena says where that arena's file is, if it has moved since.
+ *
+ * To watch a replay in the window at normal speed instead, run JoustScreen with -Djousty.replay=match.jbr
+ */
+public class ReplayPlayer {
+
+	private final ReplayReader replay;
+	private final GameSimulation game;
+	private long checksumsMatched;
+	private long divergedAt = -1;
+
+	/**
+	 * @param replay the recording to play
+	 * @param game the game to play it on, which should be a new one
+	 */
+	public ReplayPlayer(ReplayReader replay, GameSimulation game) {
+		this.replay = replay;
+		this.game = game;
+	}
+
+	/**
+	 * Plays the next tick of the recording
+	 * @return false if the recording has ended
+	 */
+	public boolean step() {
+		int word = this.replay.next();
+		if(word == ReplayReader.END){
+			return false;
+		}
+		this.game.setLavaOn(Replay.isLavaOn(word));
+		this.game.setMovingPlatformsOn(Replay.isMovingPlatformsOn(word));
+		this.game.step(Replay.inputs(word));
+		if(this.replay.hasChecksum()){
+			if(this.replay.getChecksum() == this.game.checksum()){
+				this.checksumsMatched++;
+			} else if(this.divergedAt < 0){
+				this.divergedAt = this.replay.getTicksRead();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * get methods
+	 */
+	public GameSimulation getGame(){
+		return this.game;
+	}
+
+	public long getChecksumsMatched(){
+		return this.checksumsMatched;
+	}
+
+	/**
+	 * @return the first tick after which the game differed from the recording, or -1 if it never did
+	 */
+	public long getDivergedAt(){
+		return this.divergedAt;
+	}
+
+	/**
+	 * Opens a replay to play headless, in the arena it was recorded in and set up the way it was played
+	 * @param arena the arena to try first (see findArena), or null
+	 */
+	public static ReplayPlayer open(ReplayReader replay, Arena arena) throws IOException {
+		GameSimulation game = new GameSimulation(ReplayPlayer.findArena(replay, arena));
+		ReplayPlayer.setUp(replay, game);
+		return new ReplayPlayer(replay, game);
+	}
+
+	/**
+	 * Sets a game up the way a replay was played, whatever it was set to before
+	 *  >> as many ticks a step as its tick rate needs (see GameSimulation.setTickRate)
+	 *  >> pixel collisions, with the masks of the game's bird pictures (see SpriteCache.getBirdMasks)
+	 *  >> swept collisions
+	 */
+	public static void setUp(ReplayReader replay, GameSimulation game) {
+		game.setTickRate(replay.getTickRate());
+		if((replay.getRules() & Replay.RULE_PIXEL_COLLISIONS) != 0){
+			game.setPixelMasks(SpriteCache.getBirdMasks("birdr"), SpriteCache.getBirdMasks("birdg"));
+		} else{
+			game.setPixelMasks(null, null);
+		}
+		game.setSweptCollisions((replay.getRules() & Replay.RULE_SWEPT_COLLISIONS) != 0);
+	}
+
+	/**
+	 * Finds the arena a replay was recorded in, since it can't be played anywhere else
+	 * @param arena the arena to try first, such as the one the game was told to use
+	 * @return that arena if the replay was recorded in it, or else the one of the name in the replay:
+	 * the original arena, or the file it was read from
+	 * @throws IOException if neither is the arena the replay was recorded in
+	 */
+	public static Arena findArena(ReplayReader replay, Arena arena) throws IOException {
+		if(arena != null && arena.getFingerprint() == replay.getArenaFingerprint()){
+			return arena;
+		}
+		String name = replay.getArenaName();
+		Arena named;
+		try {
+			named = name.equals(Arena.classic().getName()) ? Arena.classic() : Arena.load(Paths.get(name));
+		} catch (IOException e) {
+			throw new IOException("the replay was recorded in " + name + ", which can't be read (" + e + ")");
+		}
+		if(named.getFingerprint() != replay.getArenaFingerprint()){
+			throw new IOException("the replay was recorded in " + name + ", which has changed since");
+		}
+		return named;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if(args.length != 1 && !(args.length == 3 && args[0].equals("-arena"))){
+			System.err.println("usage: java ReplayPlayer [-arena file] <replay file>");
+			System.exit(2);
+		}
+		ReplayReader replay = new ReplayReader(Paths.get(args[args.length - 1]));
+		ReplayPlayer player;
+		try {
+			player = ReplayPlayer.open(replay, args.length == 3 ? Arena.load(Paths.get(args[1])) : null);
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			System.exit(2);
+			return;
+		}
+		GameSimulation game = player.getGame();
+		long start = System.nanoTime();
+		while(player.step()){
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		long ticks = replay.getTicksRead();
+		System.out.println(String.format("%d ticks (%.1f s of play at %d ticks/s) in %.3f s, %.0f ticks/s",
+				ticks, (double)ticks / replay.getTickRate(), replay.getTickRate(), seconds, ticks / seconds));
+		System.out.println("score " + game.getLeftPlayerScore() + " - " + game.getRightPlayerScore() + (game.isGameOver() ? ", game over" : ""));
+		if(player.getDivergedAt() >= 0){
+			System.out.println("DIVERGED from the recording after tick " + player.getDivergedAt());
+			System.exit(1);
+		}
+		System.out.println(player.getChecksumsMatched() + " checksums matched");
+	}
+}
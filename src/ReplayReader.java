@@ -0,0 +1,171 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads back a replay file written by ReplayRecorder, one tick at a time
+ *
+ * The file is mapped into memory, so reading a tick is a few byte reads. A file cut short
+ * (the game was killed while recording) plays up to the last tick that was written whole.
+ */
+public class ReplayReader {
+
+	public static final int END = -1; // returned by next() after the last tick
+
+	private final ByteBuffer data;
+	private final int tickRate;
+	private final int checksumInterval;
+	private final long arenaFingerprint;
+	private final String arenaName;
+	private final int rules;
+
+	/**
+	 * The run being read
+	 */
+	private int runWord;
+	private int runLeft;
+	private long ticksRead;
+
+	/**
+	 * The last checksum read, and how many ticks into the match it was taken
+	 */
+	private long checksum;
+	private long checksumTick = -1;
+
+	/**
+	 * @param file a replay file
+	 * @throws IOException if the file cannot be read or is not a replay
+	 */
+	public ReplayReader(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try{
+			this.data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally{
+			channel.close(); // the mapping stays valid
+		}
+		try{
+			if(this.data.getInt() != Replay.MAGIC){
+				throw new IOException(file + " is not a replay");
+			}
+			int version = this.data.get();
+			if(version != Replay.VERSION){
+				throw new IOException(file + " is replay version " + version + ", only " + Replay.VERSION + " can be played");
+			}
+			this.tickRate = Replay.getVarint(this.data);
+			if(this.tickRate < 1 || this.tickRate > GameSimulation.TICK_RATE){
+				throw new IOException(file + " was played at " + this.tickRate + " ticks a second, which can't be played back");
+			}
+			this.checksumInterval = Replay.getVarint(this.data);
+			this.arenaFingerprint = this.data.getLong();
+			int length = Replay.getVarint(this.data);
+			if(length < 0 || length > this.data.remaining()){
+				throw new BufferUnderflowException();
+			}
+			byte[] name = new byte[length];
+			this.data.get(name);
+			this.arenaName = new String(name, StandardCharsets.UTF_8);
+			this.rules = Replay.getVarint(this.data);
+		} catch(BufferUnderflowException e){
+			throw new IOException(file + " is too short to be a replay");
+		}
+		this.readRecords();
+	}
+
+	/**
+	 * @return the tick word of the next tick (see Replay.tickWord), or END
+	 */
+	public int next() {
+		if(this.runLeft == 0){
+			return END;
+		}
+		int word = this.runWord;
+		this.runLeft--;
+		this.ticksRead++;
+		if(this.runLeft == 0){ // look ahead, so a checksum of the game after this tick is ready
+			this.readRecords();
+		}
+		return word;
+	}
+
+	/**
+	 * Reads checksums up to the start of the next run
+	 */
+	private void readRecords() {
+		int start = this.data.position();
+		try{
+			while(this.data.hasRemaining()){
+				start = this.data.position();
+				int tag = Replay.getVarint(this.data);
+				if(tag == Replay.TAG_CHECKSUM){
+					this.checksum = this.data.getLong();
+					this.checksumTick = this.ticksRead;
+				} else if((tag & 1) == 0){
+					int length = Replay.getVarint(this.data);
+					if(length > 0){
+						this.runWord = tag >>> 1;
+						this.runLeft = length;
+						return;
+					}
+				} else{
+					throw new IllegalStateException("unknown record " + tag + " at byte " + start);
+				}
+			}
+		} catch(BufferUnderflowException e){ // cut short while recording
+			this.data.position(start);
+		}
+	}
+
+	/**
+	 * get methods
+	 */
+	public int getTickRate(){
+		return this.tickRate;
+	}
+
+	public int getChecksumInterval(){
+		return this.checksumInterval;
+	}
+
+	/**
+	 * @return the fingerprint of the arena the match was played in (see Arena.getFingerprint)
+	 */
+	public long getArenaFingerprint(){
+		return this.arenaFingerprint;
+	}
+
+	/**
+	 * @return the name of that arena: "classic", or the file it was read from
+	 */
+	public String getArenaName(){
+		return this.arenaName;
+	}
+
+	/**
+	 * @return the RULE_ bits of the rules the match was played by (see Replay.rules)
+	 */
+	public int getRules(){
+		return this.rules;
+	}
+
+	/**
+	 * @return how many ticks next() has returned
+	 */
+	public long getTicksRead(){
+		return this.ticksRead;
+	}
+
+	/**
+	 * @return true if the recording has a checksum of the game right after the last tick returned by next()
+	 */
+	public boolean hasChecksum(){
+		return this.checksumTick == this.ticksRead;
+	}
+
+	public long getChecksum(){
+		return this.checksum;
+	}
+}
@@ -0,0 +1,177 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Records a match into a replay file (see Replay for the format)
+ *
+ * tick() is called on the game loop thread after every GameSimulation.step, and only ever
+ * writes a few bytes into a buffer in memory. Full buffers are handed to a writer thread that
+ * puts them in the file, and come back to be filled again, so the tick never waits on the disk.
+ */
+public class ReplayRecorder {
+
+	private static final int BUFFER_SIZE = 4096;
+	private static final ByteBuffer END = ByteBuffer.allocate(0); // tells the writer thread to finish
+
+	private final FileChannel channel;
+	private final int checksumInterval;
+	private final BlockingQueue<ByteBuffer> full = new LinkedBlockingQueue<ByteBuffer>();
+	private final ConcurrentLinkedQueue<ByteBuffer> empty = new ConcurrentLinkedQueue<ByteBuffer>();
+	private final Thread writer;
+	private volatile IOException failure;
+	private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private boolean closed;
+
+	/**
+	 * The run of identical ticks not written yet
+	 */
+	private int runWord = -1;
+	private int runLength;
+	private long ticks;
+
+	/**
+	 * Starts a new replay file, replacing any file already there
+	 * @param file where to record
+	 * @param tickRate ticks per second of the match, so it can be played back at the same speed
+	 * @param checksumInterval how many ticks between checksums of the game, or 0 for none
+	 * @param game the game to be recorded, before its first tick, for its arena and rules
+	 */
+	public ReplayRecorder(Path file, int tickRate, int checksumInterval, GameSimulation game) throws IOException {
+		byte[] arenaName = game.getArena().getName().getBytes(StandardCharsets.UTF_8);
+		if(arenaName.length > BUFFER_SIZE / 2){
+			throw new IOException("the arena's name is too long for a replay: " + game.getArena().getName());
+		}
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		this.checksumInterval = checksumInterval;
+		this.buffer.putInt(Replay.MAGIC);
+		this.buffer.put((byte)Replay.VERSION);
+		Replay.putVarint(this.buffer, tickRate);
+		Replay.putVarint(this.buffer, checksumInterval);
+		this.buffer.putLong(game.getArena().getFingerprint());
+		Replay.putVarint(this.buffer, arenaName.length);
+		this.buffer.put(arenaName);
+		Replay.putVarint(this.buffer, Replay.rules(game));
+		this.writer = new Thread(new Runnable() {
+			public void run() {
+				ReplayRecorder.this.write();
+			}
+		}, "Jousty Bird replay writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Records a tick, after the game has been stepped
+	 * @param inputs the keys the tick was stepped with
+	 * @param game the game, with the settings it was stepped with
+	 */
+	public synchronized void tick(int inputs, GameSimulation game) {
+		if(this.closed){
+			return;
+		}
+		int word = Replay.tickWord(inputs, game.isLavaOn(), game.isMovingPlatformsOn());
+		if(word != this.runWord){
+			this.endRun();
+			this.runWord = word;
+		}
+		this.runLength++;
+		this.ticks++;
+		if(this.checksumInterval > 0 && this.ticks % this.checksumInterval == 0){
+			this.endRun();
+			this.makeRoom(5 + 8);
+			Replay.putVarint(this.buffer, Replay.TAG_CHECKSUM);
+			this.buffer.putLong(game.checksum());
+		}
+	}
+
+	/**
+	 * Writes out everything recorded so far and closes the file; safe to call more than once
+	 * @throws IOException if anything could not be written
+	 */
+	public synchronized void close() throws IOException {
+		if(this.closed){
+			return;
+		}
+		this.closed = true;
+		this.endRun();
+		this.handOff();
+		this.full.add(END);
+		try{
+			this.writer.join();
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+		this.channel.close();
+		if(this.failure != null){
+			throw this.failure;
+		}
+	}
+
+	/**
+	 * get methods
+	 */
+	public synchronized long getTicks(){
+		return this.ticks;
+	}
+
+	private void endRun() {
+		if(this.runLength > 0){
+			this.makeRoom(5 + 5);
+			Replay.putVarint(this.buffer, this.runWord << 1);
+			Replay.putVarint(this.buffer, this.runLength);
+		}
+		this.runWord = -1;
+		this.runLength = 0;
+	}
+
+	private void makeRoom(int bytes) {
+		if(this.buffer.remaining() < bytes){
+			this.handOff();
+		}
+	}
+
+	/**
+	 * Gives the filled buffer to the writer thread and carries on in an empty one
+	 */
+	private void handOff() {
+		this.buffer.flip();
+		this.full.add(this.buffer);
+		this.buffer = this.empty.poll();
+		if(this.buffer == null){ // the writer is behind, never wait for it
+			this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		}
+	}
+
+	/**
+	 * The writer thread: puts buffers in the file in the order they were filled
+	 */
+	private void write() {
+		while(true){
+			ByteBuffer next;
+			try{
+				next = this.full.take();
+			} catch(InterruptedException e){
+				return;
+			}
+			if(next == END){
+				return;
+			}
+			try{
+				while(next.hasRemaining() && this.failure == null){
+					this.channel.write(next);
+				}
+			} catch(IOException e){
+				this.failure = e;
+			}
+			next.clear();
+			this.empty.add(next);
+		}
+	}
+}
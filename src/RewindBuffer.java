@@ -0,0 +1,77 @@
+/**
+ * The last few seconds of a match, one snapshot of the game per tick, for scrubbing back through
+ *
+ * Snapshots (GameSimulation.writeState) go into one long[] made up front and used as a ring, so
+ * recording a tick is STATE_SIZE (seventeen) array stores and creates no objects. Once the buffer is
+ * full, each new snapshot replaces the oldest one.
+ */
+public class RewindBuffer {
+
+	private final long[] states;
+	private final int capacity;
+	private int newest = -1; // slot of the latest snapshot
+	private int size;
+
+	/**
+	 * @param capacity how many ticks to keep
+	 */
+	public RewindBuffer(int capacity) {
+		if(capacity <= 0){
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+		this.states = new long[capacity * GameSimulation.STATE_SIZE];
+	}
+
+	/**
+	 * Snapshots the game, after a tick
+	 */
+	public void record(GameSimulation game) {
+		this.newest = this.newest + 1 == this.capacity ? 0 : this.newest + 1;
+		game.writeState(this.states, this.newest * GameSimulation.STATE_SIZE);
+		if(this.size < this.capacity){
+			this.size++;
+		}
+	}
+
+	/**
+	 * Puts the game back the way it was
+	 * @param ticksAgo 0 for the latest snapshot, up to size() - 1 for the oldest
+	 */
+	public void restore(int ticksAgo, GameSimulation game) {
+		game.readState(this.states, this.slot(ticksAgo) * GameSimulation.STATE_SIZE);
+	}
+
+	/**
+	 * Forgets the latest snapshots, so the match can carry on from an older one
+	 * @param ticks how many to forget
+	 */
+	public void discardNewest(int ticks) {
+		ticks = Math.min(ticks, this.size);
+		this.newest = Math.floorMod(this.newest - ticks, this.capacity);
+		this.size -= ticks;
+	}
+
+	public void clear() {
+		this.newest = -1;
+		this.size = 0;
+	}
+
+	private int slot(int ticksAgo) {
+		if(ticksAgo < 0 || ticksAgo >= this.size){
+			throw new IndexOutOfBoundsException(ticksAgo + " ticks ago, " + this.size + " kept");
+		}
+		return Math.floorMod(this.newest - ticksAgo, this.capacity);
+	}
+
+	/**
+	 * get methods
+	 */
+	public int size(){
+		return this.size;
+	}
+
+	public int getCapacity(){
+		return this.capacity;
+	}
+}
@@ -0,0 +1,452 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays bots against each other (see BotPolicy), as many matches at once as there are processors, with no window
+ *
+ *  >> every match is a GameSimulation with the usual rules: lava on, first to 10 wins, started with Enter
+ *     on the first tick; a match that goes on for maxTicks is stopped with no winner
+ *  >> match n is played with its own seed, worked out from the run's seed and n, so any match can be
+ *     played again on its own and comes out the same however many threads played the run
+ *  >> each thread takes matches a batch at a time and plays them one after another on the same
+ *     GameSimulation (put back to the start between matches), so a match allocates almost nothing
+ *  >> results go to a file as they come, in whatever order the matches finish
+ *  >> -pixel plays with pixel collisions (see SpriteMask), reading the bird pictures from the current directory
+ *  >> -tickRate 25 steps every match half as often, each step standing for two ticks (see GameSimulation.setTickRate);
+ *     ticks, maxTicks and the timeline still count ticks at 50 Hz, but the bots choose their keys once a step
+ *
+ * Results, in a .csv file: match,seed,winner,ticks,red,green,timeline where winner is red, green or none
+ * and the timeline is every point scored as tick:R or tick:G. Any other file is binary, big-endian:
+ * the magic number "JBSP" and a version (ints), then for each match its number and seed (longs),
+ * winner (byte, 0 none, 1 red, 2 green), ticks (int), both scores and how many points there were (bytes),
+ * then each point as an int (tick * 2, plus 1 if green scored it).
+ *
+ *   java SelfPlay [-matches 100000] [-red hunter] [-green flailer] [-seed 1] [-threads N] [-maxTicks 30000] [-moving] [-arena file] [-pixel] [-tickRate 25] [-out results.csv]
+ */
+public class SelfPlay {
+
+	public static final int DEFAULT_MAX_TICKS = 30000;   // ten minutes at 50 ticks a second
+	private static final int BINARY_MAGIC = 0x4A425350;  // "JBSP"
+	private static final int BINARY_VERSION = 1;
+	private static final int BATCH = 64;                 // matches a thread takes at a time
+	private static final int CHUNK_SIZE = 1 << 16;       // bytes of results handed to the writer at a time
+	private static final byte[] NO_MORE = new byte[0];
+
+	private final BotPolicy red;
+	private final BotPolicy green;
+	private final long seed;
+	private final int maxTicks;
+	private final boolean movingPlatformsOn;
+	private final Arena arena;
+	private final long[] start = new long[GameSimulation.STATE_SIZE]; // a new match, before the first tick
+	private SpriteMask[] redMasks;   // null for box collisions only
+	private SpriteMask[] greenMasks;
+	private int tickRate = GameSimulation.TICK_RATE;
+
+	/**
+	 * Totals, added to by every thread as it finishes
+	 */
+	private final AtomicLong played = new AtomicLong();
+	private final AtomicLong redWins = new AtomicLong();
+	private final AtomicLong greenWins = new AtomicLong();
+	private final AtomicLong ticks = new AtomicLong();
+
+	/**
+	 * @param red the policy playing the red bird in every match
+	 * @param green the policy playing the green bird
+	 * @param seed decides every match's seed
+	 * @param maxTicks how long a match can go on before it is stopped with no winner
+	 * @param movingPlatformsOn if the platforms move
+	 */
+	public SelfPlay(BotPolicy red, BotPolicy green, long seed, int maxTicks, boolean movingPlatformsOn) {
+		this(red, green, seed, maxTicks, movingPlatformsOn, Arena.classic());
+	}
+
+	/**
+	 * @param red the policy playing the red bird in every match
+	 * @param green the policy playing the green bird
+	 * @param seed decides every match's seed
+	 * @param maxTicks how long a match can go on before it is stopped with no winner
+	 * @param movingPlatformsOn if the platforms move
+	 * @param arena where every match is played
+	 */
+	public SelfPlay(BotPolicy red, BotPolicy green, long seed, int maxTicks, boolean movingPlatformsOn, Arena arena) {
+		this.red = red;
+		this.green = green;
+		this.seed = seed;
+		this.maxTicks = maxTicks;
+		this.movingPlatformsOn = movingPlatformsOn;
+		this.arena = arena;
+		new GameSimulation(arena).writeState(this.start, 0);
+	}
+
+	/**
+	 * Plays matches 0 to count - 1 and waits for them all
+	 * @param threads how many matches to play at once
+	 * @param out where to write the results (.csv or binary), or null to only count them
+	 */
+	public void run(final long count, int threads, Path out) throws IOException, InterruptedException {
+		final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<byte[]>(4 * threads); // the threads wait for the file if it falls behind
+		final boolean csv = out != null && out.toString().endsWith(".csv");
+		final AtomicLong next = new AtomicLong();
+		Writer writer = null;
+		if(out != null){
+			writer = new Writer(Files.newOutputStream(out), chunks);
+			writer.start();
+			if(csv){
+				chunks.put("match,seed,winner,ticks,red,green,timeline\n".getBytes(StandardCharsets.US_ASCII));
+			} else{
+				chunks.put(ByteBuffer.allocate(8).putInt(BINARY_MAGIC).putInt(BINARY_VERSION).array());
+			}
+		}
+		final boolean writing = out != null;
+		Thread[] players = new Thread[threads];
+		for(int t = 0; t < threads; t++){
+			players[t] = new Thread("Jousty Bird self play " + (t + 1)) {
+				public void run() {
+					Match match = new Match(SelfPlay.this, csv);
+					long first;
+					try{
+						while((first = next.getAndAdd(BATCH)) < count){
+							for(long m = first; m < Math.min(count, first + BATCH); m++){
+								match.play(m);
+								if(writing){
+									match.write(chunks, false);
+								}
+							}
+						}
+						if(writing){
+							match.write(chunks, true);
+						}
+					} catch(InterruptedException e){
+						return;
+					}
+					match.addTotals();
+				}
+			};
+			players[t].start();
+		}
+		for(Thread player : players){
+			player.join();
+		}
+		if(writer != null){
+			chunks.put(NO_MORE);
+			writer.join();
+			if(writer.failure != null){
+				throw writer.failure;
+			}
+		}
+	}
+
+	/**
+	 * The seed of one match, from the run's seed and the match's number (SplitMix64, so nearby numbers get unrelated seeds)
+	 */
+	public static long matchSeed(long seed, long match) {
+		long z = seed + (match + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Picks a policy by one of the names in BotPolicy, or by class name
+	 */
+	public static BotPolicy policy(String name) {
+		if(name.equals("idle")){
+			return new BotPolicy.Idle();
+		}
+		if(name.equals("flailer")){
+			return new BotPolicy.Flailer();
+		}
+		if(name.equals("hunter")){
+			return new BotPolicy.Hunter();
+		}
+		try{
+			return (BotPolicy)Class.forName(name).getDeclaredConstructor().newInstance();
+		} catch(ReflectiveOperationException e){
+			throw new IllegalArgumentException("no such bot: " + name, e);
+		}
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		long matches = 100000;
+		String red = "hunter";
+		String green = "flailer";
+		long seed = 1;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int maxTicks = DEFAULT_MAX_TICKS;
+		boolean moving = false;
+		boolean pixel = false;
+		int tickRate = GameLoop.DEFAULT_TICK_RATE;
+		Arena arena = Arena.classic();
+		Path out = null;
+		for(int i = 0; i < args.length; i++){
+			if(args[i].equals("-matches")){
+				matches = Long.parseLong(args[++i]);
+			} else if(args[i].equals("-red")){
+				red = args[++i];
+			} else if(args[i].equals("-green")){
+				green = args[++i];
+			} else if(args[i].equals("-seed")){
+				seed = Long.parseLong(args[++i]);
+			} else if(args[i].equals("-threads")){
+				threads = Integer.parseInt(args[++i]);
+			} else if(args[i].equals("-maxTicks")){
+				maxTicks = Integer.parseInt(args[++i]);
+			} else if(args[i].equals("-moving")){
+				moving = true;
+			} else if(args[i].equals("-arena")){
+				arena = Arena.load(Paths.get(args[++i]));
+			} else if(args[i].equals("-pixel")){
+				pixel = true;
+			} else if(args[i].equals("-tickRate")){
+				tickRate = Integer.parseInt(args[++i]);
+			} else if(args[i].equals("-out")){
+				out = Paths.get(args[++i]);
+			} else{
+				throw new IllegalArgumentException("unknown argument: " + args[i]);
+			}
+		}
+		SelfPlay selfPlay = new SelfPlay(SelfPlay.policy(red), SelfPlay.policy(green), seed, maxTicks, moving, arena);
+		if(pixel){
+			selfPlay.setPixelMasks(SpriteCache.getBirdMasks("birdr"), SpriteCache.getBirdMasks("birdg"));
+		}
+		selfPlay.setTickRate(tickRate);
+		long started = System.nanoTime();
+		selfPlay.run(matches, threads, out);
+		double seconds = (System.nanoTime() - started) / 1e9;
+		long played = selfPlay.getPlayed();
+		System.out.println(String.format("%d matches in %.1f s on %d threads, %.0f matches a minute", played, seconds, threads, played / seconds * 60));
+		System.out.println(String.format("red (%s) won %.1f%%, green (%s) won %.1f%%, %.1f%% stopped at %d ticks; %.0f ticks a match",
+				red, 100.0 * selfPlay.getRedWins() / played, green, 100.0 * selfPlay.getGreenWins() / played,
+				100.0 * (played - selfPlay.getRedWins() - selfPlay.getGreenWins()) / played, maxTicks, selfPlay.getTicks() / (double)played));
+	}
+
+	/**
+	 * get methods
+	 */
+	public long getPlayed(){
+		return this.played.get();
+	}
+
+	public long getRedWins(){
+		return this.redWins.get();
+	}
+
+	public long getGreenWins(){
+		return this.greenWins.get();
+	}
+
+	/**
+	 * @return ticks played, over every match
+	 */
+	public long getTicks(){
+		return this.ticks.get();
+	}
+
+	/**
+	 * set methods
+	 *
+	 * Plays every match from now on with pixel collisions (see GameSimulation.setPixelMasks), or without them if null
+	 */
+	public void setPixelMasks(SpriteMask[] red, SpriteMask[] green){
+		this.redMasks = red;
+		this.greenMasks = green;
+	}
+
+	/**
+	 * Steps every match from now on this many times a second of play (see GameSimulation.setTickRate)
+	 */
+	public void setTickRate(int tickRate){
+		if(tickRate < 1 || tickRate > GameSimulation.TICK_RATE){
+			throw new IllegalArgumentException("matches can be stepped from 1 to " + GameSimulation.TICK_RATE + " times a second, not " + tickRate);
+		}
+		this.tickRate = tickRate;
+	}
+
+	/**
+	 * One thread's match, played again and again, and the results it hasn't handed to the writer yet
+	 */
+	private static class Match {
+
+		private final SelfPlay run;
+		private final boolean csv;
+		private final GameSimulation game;
+		private final Random random = new Random();
+		private final int[] points = new int[2 * GameSimulation.WINNING_SCORE]; // tick * 2, plus 1 if green scored
+		private int pointCount;
+		private long number;
+		private long seed;
+		private int ticks;
+		private final StringBuilder text = new StringBuilder(CHUNK_SIZE + 256);
+		private final ByteBuffer binary = ByteBuffer.allocate(CHUNK_SIZE);
+
+		/**
+		 * This thread's totals
+		 */
+		private long played;
+		private long redWins;
+		private long greenWins;
+		private long ticksPlayed;
+
+		Match(SelfPlay run, boolean csv) {
+			this.run = run;
+			this.csv = csv;
+			this.game = new GameSimulation(run.arena);
+			this.game.setPixelMasks(run.redMasks, run.greenMasks);
+			this.game.setTickRate(run.tickRate);
+		}
+
+		/**
+		 * Plays one match from the start
+		 */
+		void play(long number) {
+			this.number = number;
+			this.seed = SelfPlay.matchSeed(this.run.seed, number);
+			this.random.setSeed(this.seed);
+			this.game.readState(this.run.start, 0);
+			this.game.setLavaOn(true);
+			this.game.setMovingPlatformsOn(this.run.movingPlatformsOn);
+			this.pointCount = 0;
+			int inputs = GameSimulation.INPUT_PAUSE; // Enter, to start
+			int t = 0;
+			while(!this.game.isGameOver() && t < this.run.maxTicks){
+				int left = this.game.getLeftPlayerScore();
+				int right = this.game.getRightPlayerScore();
+				this.game.step(inputs);
+				for(int p = left; p < this.game.getLeftPlayerScore() && this.pointCount < this.points.length; p++){
+					this.points[this.pointCount++] = t * 2;
+				}
+				for(int p = right; p < this.game.getRightPlayerScore() && this.pointCount < this.points.length; p++){
+					this.points[this.pointCount++] = t * 2 + 1;
+				}
+				t += this.game.getStepTicks();
+				int redKeys = this.run.red.keys(this.game, true, this.random);
+				int greenKeys = this.run.green.keys(this.game, false, this.random);
+				inputs = ((redKeys & BotPolicy.FLAP_LEFT) != 0 ? GameSimulation.INPUT_RED_LEFT : 0)
+						| ((redKeys & BotPolicy.FLAP_RIGHT) != 0 ? GameSimulation.INPUT_RED_RIGHT : 0)
+						| ((greenKeys & BotPolicy.FLAP_LEFT) != 0 ? GameSimulation.INPUT_GREEN_LEFT : 0)
+						| ((greenKeys & BotPolicy.FLAP_RIGHT) != 0 ? GameSimulation.INPUT_GREEN_RIGHT : 0);
+			}
+			this.ticks = t;
+			this.played++;
+			this.ticksPlayed += t;
+			if(this.winner() == 1){
+				this.redWins++;
+			} else if(this.winner() == 2){
+				this.greenWins++;
+			}
+		}
+
+		/**
+		 * @return 0 for none, 1 for red, 2 for green
+		 */
+		private int winner() {
+			if(!this.game.isGameOver()){
+				return 0;
+			}
+			return this.game.getLeftPlayerScore() >= GameSimulation.WINNING_SCORE ? 1 : 2;
+		}
+
+		/**
+		 * Adds the last match to the results, and hands them to the writer once there are enough
+		 * @param last hand over whatever there is, as no more matches are coming
+		 */
+		void write(BlockingQueue<byte[]> chunks, boolean last) throws InterruptedException {
+			if(this.csv){
+				if(!last){
+					StringBuilder line = this.text;
+					line.append(this.number).append(',').append(this.seed).append(',').append(this.winner() == 1 ? "red" : this.winner() == 2 ? "green" : "none")
+							.append(',').append(this.ticks).append(',').append(this.game.getLeftPlayerScore()).append(',').append(this.game.getRightPlayerScore()).append(',');
+					for(int p = 0; p < this.pointCount; p++){
+						line.append(p == 0 ? "" : " ").append(this.points[p] >> 1).append((this.points[p] & 1) == 0 ? ":R" : ":G");
+					}
+					line.append('\n');
+				}
+				if(this.text.length() >= CHUNK_SIZE || (last && this.text.length() > 0)){
+					chunks.put(this.text.toString().getBytes(StandardCharsets.US_ASCII));
+					this.text.setLength(0);
+				}
+				return;
+			}
+			if(!last){
+				ByteBuffer out = this.binary;
+				if(out.remaining() < 8 + 8 + 1 + 4 + 3 + 4 * this.points.length){
+					this.hand(chunks);
+				}
+				out.putLong(this.number).putLong(this.seed).put((byte)this.winner()).putInt(this.ticks);
+				out.put((byte)this.game.getLeftPlayerScore()).put((byte)this.game.getRightPlayerScore()).put((byte)this.pointCount);
+				for(int p = 0; p < this.pointCount; p++){
+					out.putInt(this.points[p]);
+				}
+			} else if(this.binary.position() > 0){
+				this.hand(chunks);
+			}
+		}
+
+		private void hand(BlockingQueue<byte[]> chunks) throws InterruptedException {
+			byte[] chunk = new byte[this.binary.position()];
+			this.binary.flip();
+			this.binary.get(chunk);
+			this.binary.clear();
+			chunks.put(chunk);
+		}
+
+		void addTotals() {
+			this.run.played.addAndGet(this.played);
+			this.run.redWins.addAndGet(this.redWins);
+			this.run.greenWins.addAndGet(this.greenWins);
+			this.run.ticks.addAndGet(this.ticksPlayed);
+		}
+	}
+
+	/**
+	 * Writes the results to the file on its own thread, as the matches hand them over
+	 */
+	private static class Writer extends Thread {
+
+		private final OutputStream out;
+		private final BlockingQueue<byte[]> chunks;
+		private volatile IOException failure;
+
+		Writer(OutputStream out, BlockingQueue<byte[]> chunks) {
+			super("Jousty Bird self play writer");
+			this.out = new BufferedOutputStream(out, CHUNK_SIZE);
+			this.chunks = chunks;
+		}
+
+		public void run() {
+			try{
+				byte[] chunk;
+				while((chunk = this.chunks.take()) != NO_MORE){
+					if(this.failure == null){ // keep taking them after a failure, so the matches don't wait forever
+						try{
+							this.out.write(chunk);
+						} catch(IOException e){
+							this.failure = e;
+						}
+					}
+				}
+			} catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+			}
+			try{
+				this.out.close();
+			} catch(IOException e){
+				if(this.failure == null){
+					this.failure = e;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,158 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One match hosted by a GameServer: a headless GameSimulation and its two players
+ *
+ * The match is ticked by the server's scheduler, on whichever of its threads is free, and never
+ * on two threads at once. Keys arrive on the server's network thread and are kept until the next
+ * tick, the same way JoustScreen keeps them between ticks. After every tick both players are sent the
+ * whole state of the game.
+ */
+public class ServerMatch implements Runnable {
+
+	private static final int RED_KEYS = GameSimulation.INPUT_RED_LEFT | GameSimulation.INPUT_RED_RIGHT | GameSimulation.INPUT_PAUSE;
+	private static final int GREEN_KEYS = GameSimulation.INPUT_GREEN_LEFT | GameSimulation.INPUT_GREEN_RIGHT | GameSimulation.INPUT_PAUSE;
+	private static final int SETTINGS = Replay.LAVA_ON | Replay.MOVING_PLATFORMS_ON;
+
+	private final int id;
+	private final GameServer server;
+	private final GameServer.Connection red;
+	private final GameServer.Connection green;
+	private final GameSimulation game = new GameSimulation();
+	private final AtomicInteger redWords = new AtomicInteger();   // keys (and settings) since the last tick
+	private final AtomicInteger greenWords = new AtomicInteger();
+	private final AtomicBoolean over = new AtomicBoolean();
+	private volatile ScheduledFuture<?> future;
+
+	/**
+	 * Ticking
+	 */
+	private final long periodNanos;
+	private final long startNanos;
+	private int ticks;
+	private final long[] state = new long[GameSimulation.STATE_SIZE];
+	private final ByteBuffer message = ByteBuffer.allocate(GameServer.STATE_MESSAGE_SIZE);
+	private final TickStats stats = new TickStats();
+
+	/**
+	 * @param startNanos when the first tick is due (System.nanoTime)
+	 * @param periodNanos how often ticks are due after that
+	 */
+	ServerMatch(int id, GameServer server, GameServer.Connection red, GameServer.Connection green, long startNanos, long periodNanos) {
+		this.id = id;
+		this.server = server;
+		this.red = red;
+		this.green = green;
+		this.startNanos = startNanos;
+		this.periodNanos = periodNanos;
+		this.redWords.set(GameSimulation.INPUT_PAUSE); // start straight away
+	}
+
+	/**
+	 * @param future the ticks scheduled on the server's scheduler, cancelled when the match ends
+	 */
+	void started(ScheduledFuture<?> future) {
+		this.future = future;
+		if(this.over.get()){ // a player left before the first tick
+			future.cancel(false);
+		}
+	}
+
+	/**
+	 * Takes a player's keys, on the network thread
+	 * @param connection the player
+	 * @param word a tick word (see Replay.tickWord); settings only count from the red player
+	 */
+	void input(GameServer.Connection connection, int word) {
+		AtomicInteger words = connection == this.red ? this.redWords : this.greenWords;
+		int mask = connection == this.red ? RED_KEYS | SETTINGS : GREEN_KEYS;
+		int old;
+		do {
+			old = words.get();
+			// keys since the last tick add up, Enter twice cancels out, settings are the latest
+		} while(!words.compareAndSet(old, (((old | word) & ~GameSimulation.INPUT_PAUSE & ~SETTINGS) | ((old ^ word) & GameSimulation.INPUT_PAUSE)
+				| (word & SETTINGS)) & mask));
+	}
+
+	/**
+	 * One tick, on a scheduler thread; holds the match's lock, so end() can't read the game halfway through it
+	 */
+	public synchronized void run() {
+		if(this.over.get()){
+			return;
+		}
+		long now = System.nanoTime();
+		long lateness = now - (this.startNanos + this.ticks * this.periodNanos);
+
+		// KEYS AND SETTINGS
+		int red;
+		do {
+			red = this.redWords.get();
+		} while(!this.redWords.compareAndSet(red, red & SETTINGS)); // the settings stay until red changes them
+		int green = this.greenWords.getAndSet(0);
+		this.game.setLavaOn(Replay.isLavaOn(red));
+		this.game.setMovingPlatformsOn(Replay.isMovingPlatformsOn(red));
+		this.game.step((Replay.inputs(red) & RED_KEYS) | (Replay.inputs(green) & GREEN_KEYS));
+		this.ticks++;
+
+		// STATE TO BOTH PLAYERS
+		this.game.writeState(this.state, 0);
+		this.message.clear();
+		this.message.put(GameServer.STATE);
+		this.message.putInt(this.ticks);
+		for(long value : this.state){
+			this.message.putLong(value);
+		}
+		this.message.flip();
+		this.red.send(this.message);
+		this.green.send(this.message);
+
+		this.stats.record(lateness, System.nanoTime() - now);
+		if(this.game.isGameOver()){
+			this.end(); // after recording the tick, so it is in the stats the server adds up
+		}
+	}
+
+	/**
+	 * Stops ticking and tells both players the final score; safe to call from any thread, more than once.
+	 * Waits for a tick that is under way, so the score sent is the one the last tick left
+	 */
+	synchronized void end() {
+		if(!this.over.compareAndSet(false, true)){
+			return;
+		}
+		if(this.future != null){
+			this.future.cancel(false);
+		}
+		ByteBuffer end = ByteBuffer.allocate(3);
+		end.put(GameServer.END);
+		end.put((byte)this.game.getLeftPlayerScore());
+		end.put((byte)this.game.getRightPlayerScore());
+		end.flip();
+		this.red.sendFinally(end);
+		this.green.sendFinally(end);
+		this.server.ended(this);
+	}
+
+	/**
+	 * get methods
+	 */
+	public int getId(){
+		return this.id;
+	}
+
+	public boolean isOver(){
+		return this.over.get();
+	}
+
+	public TickStats getStats(){
+		return this.stats;
+	}
+
+	public GameSimulation getGame(){
+		return this.game;
+	}
+}
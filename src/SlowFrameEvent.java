@@ -0,0 +1,43 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * A frame that took too long, for Java Flight Recorder
+ *
+ * Every frame starts one of these and only the slow ones are recorded: by default those over
+ * 20 ms (one tick at 50 ticks a second), which can be changed in the recording's settings with
+ * jousty.SlowFrame#threshold. Each one says how long the parts of the frame took, and the tick
+ * before it, so a stutter in a recording can be put down to drawing, putting the frame on screen
+ * or the game itself.
+ */
+@Name("jousty.SlowFrame")
+@Label("Slow Frame")
+@Category("Jousty Bird")
+@Description("A frame that took longer than the threshold to draw and show")
+@Threshold("20 ms")
+public class SlowFrameEvent extends jdk.jfr.Event {
+
+	@Label("Scene")
+	@Description("Drawing the background, birds and platforms")
+	@Timespan(Timespan.NANOSECONDS)
+	long sceneNanos;
+
+	@Label("HUD")
+	@Description("Drawing the messages")
+	@Timespan(Timespan.NANOSECONDS)
+	long hudNanos;
+
+	@Label("Blit")
+	@Description("Putting the frame on the screen")
+	@Timespan(Timespan.NANOSECONDS)
+	long blitNanos;
+
+	@Label("Last Tick")
+	@Description("How long the tick before the frame took")
+	@Timespan(Timespan.NANOSECONDS)
+	long tickNanos;
+}
@@ -0,0 +1,318 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A live match sent to any number of spectators over TCP, for watching in a SpectatorViewer
+ *
+ *  >> publish() is called after every tick; it writes one message (see SpectatorState) with what
+ *     changed since the tick before, and hands it to the feed's own thread
+ *  >> that thread sends the same message to every spectator, so the match only pays for one
+ *     message a tick however many are watching, and nothing is drawn for them; if it falls behind,
+ *     every message waiting goes to each spectator in one write
+ *  >> a spectator who joins late is sent a keyframe of the latest tick first, then the same
+ *     messages as everyone else
+ *  >> a spectator whose connection can't keep up skips messages, then waits for the next
+ *     keyframe (one every KEYFRAME_INTERVAL ticks) to catch up from
+ *
+ * Spectators send nothing; they are only listened to for hanging up.
+ */
+public class SpectatorFeed implements Runnable {
+
+	public static final int DEFAULT_PORT = 7789;
+	public static final int KEYFRAME_INTERVAL = 100; // ticks, two seconds at 50 ticks a second
+	private static final int PENDING_SIZE = 4096;     // bytes waiting for each spectator, before messages are skipped
+
+	private final Selector selector;
+	private final ServerSocketChannel serverChannel;
+	private final ConcurrentLinkedQueue<ByteBuffer> full = new ConcurrentLinkedQueue<ByteBuffer>();  // published, not sent yet
+	private final ConcurrentLinkedQueue<ByteBuffer> empty = new ConcurrentLinkedQueue<ByteBuffer>(); // sent, for publishing again
+	private final List<Spectator> spectators = new ArrayList<Spectator>(); // only used on the feed's thread
+	private volatile boolean running;
+	private Thread thread;
+
+	/**
+	 * The ticking thread's side
+	 */
+	private final SpectatorState current = new SpectatorState();
+	private final SpectatorState previous = new SpectatorState();
+	private int published;
+
+	/**
+	 * The feed thread's side: the state as of the last message sent, for late joiners' keyframes
+	 */
+	private final SpectatorState sent = new SpectatorState();
+	private final ByteBuffer keyframe = ByteBuffer.allocate(SpectatorState.MAX_MESSAGE_SIZE);
+	private final ByteBuffer ignored = ByteBuffer.allocate(64); // whatever spectators send
+
+	/**
+	 * Counters
+	 */
+	private volatile long bytesPublished;
+	private volatile long messagesSkipped;
+	private volatile int spectatorCount;
+
+	/**
+	 * @param address where to listen for spectators
+	 */
+	public SpectatorFeed(InetSocketAddress address) throws IOException {
+		this.selector = Selector.open();
+		this.serverChannel = ServerSocketChannel.open();
+		this.serverChannel.configureBlocking(false);
+		this.serverChannel.bind(address, 1024);
+		this.serverChannel.register(this.selector, SelectionKey.OP_ACCEPT);
+	}
+
+	/**
+	 * Starts taking spectators on a new thread
+	 */
+	public synchronized void start() {
+		if(this.thread != null){
+			return;
+		}
+		this.running = true;
+		this.thread = new Thread(this, "Jousty Bird spectator feed");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Hangs up on every spectator and stops
+	 */
+	public void stop() throws IOException {
+		this.running = false;
+		this.selector.wakeup();
+		try{
+			if(this.thread != null){
+				this.thread.join();
+			}
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+		for(Spectator spectator : this.spectators){
+			spectator.close();
+		}
+		this.serverChannel.close();
+		this.selector.close();
+	}
+
+	/**
+	 * Sends the game after a tick to every spectator; call from the thread that ticks the game, after every tick
+	 */
+	public void publish(GameSimulation game) {
+		this.current.capture(game, this.published);
+		ByteBuffer message = this.empty.poll();
+		if(message == null){
+			message = ByteBuffer.allocate(SpectatorState.MAX_MESSAGE_SIZE);
+		}
+		message.clear();
+		if(this.published % KEYFRAME_INTERVAL == 0){
+			this.current.writeKeyframe(message);
+		} else{
+			this.current.writeDelta(message, this.previous);
+		}
+		message.flip();
+		this.previous.copy(this.current);
+		this.published++;
+		this.bytesPublished += message.remaining();
+		this.full.add(message);
+		this.selector.wakeup();
+	}
+
+	/**
+	 * The feed thread
+	 */
+	public void run() {
+		try{
+			while(this.running){
+				this.selector.select(100);
+				Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+				while(keys.hasNext()){
+					SelectionKey key = keys.next();
+					keys.remove();
+					if(!key.isValid()){
+						continue;
+					}
+					if(key.isAcceptable()){
+						this.accept();
+						continue;
+					}
+					Spectator spectator = (Spectator)key.attachment();
+					if(key.isReadable()){
+						spectator.read();
+					}
+					if(key.isValid() && key.isWritable()){
+						spectator.flush();
+					}
+				}
+				ByteBuffer message;
+				while((message = this.full.poll()) != null){
+					this.fanOut(message);
+					this.empty.add(message);
+				}
+				for(Iterator<Spectator> s = this.spectators.iterator(); s.hasNext();){
+					Spectator spectator = s.next();
+					if(spectator.pending.position() > 0){ // one write for every message since the last round
+						spectator.flush();
+					}
+					if(spectator.closed){
+						s.remove();
+					}
+				}
+				this.spectatorCount = this.spectators.size();
+			}
+		} catch(IOException e){
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while((channel = this.serverChannel.accept()) != null){
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			Spectator spectator = new Spectator(channel);
+			spectator.key = channel.register(this.selector, SelectionKey.OP_READ, spectator);
+			this.spectators.add(spectator);
+			if(this.sent.isKeyframed()){ // start them off from the latest tick
+				this.keyframe.clear();
+				this.sent.writeKeyframe(this.keyframe);
+				this.keyframe.flip();
+				spectator.offer(this.keyframe, true);
+			}
+		}
+	}
+
+	/**
+	 * Sends one published message to every spectator
+	 */
+	private void fanOut(ByteBuffer message) {
+		boolean isKeyframe = message.get(1) == SpectatorState.KEYFRAME;
+		this.sent.readMessages(message.duplicate()); // keep up, for the next late joiner
+		for(int i = 0; i < this.spectators.size(); i++){
+			this.spectators.get(i).offer(message, isKeyframe);
+		}
+	}
+
+	/**
+	 * get methods
+	 */
+	public int getPort(){
+		return this.serverChannel.socket().getLocalPort();
+	}
+
+	public int getSpectatorCount(){
+		return this.spectatorCount;
+	}
+
+	/**
+	 * @return how many ticks have been published
+	 */
+	public int getPublished(){
+		return this.published;
+	}
+
+	/**
+	 * @return the size of every message published, added up (each is sent to every spectator)
+	 */
+	public long getBytesPublished(){
+		return this.bytesPublished;
+	}
+
+	/**
+	 * @return messages not sent to a spectator because their connection was behind, over all spectators
+	 */
+	public long getMessagesSkipped(){
+		return this.messagesSkipped;
+	}
+
+	/**
+	 * One spectator's connection, only used on the feed's thread
+	 */
+	private class Spectator {
+
+		private final SocketChannel channel;
+		private SelectionKey key;
+		private final ByteBuffer pending = ByteBuffer.allocate(PENDING_SIZE); // messages not written yet
+		private boolean waitingForKeyframe;
+		private boolean closed;
+
+		Spectator(SocketChannel channel) {
+			this.channel = channel;
+			this.waitingForKeyframe = true;
+		}
+
+		/**
+		 * Queues a message to be written, or skips it if the connection is too far behind (and then skips until a keyframe)
+		 */
+		void offer(ByteBuffer message, boolean isKeyframe) {
+			if(this.closed){
+				return;
+			}
+			if(this.pending.remaining() < message.remaining()){
+				this.flush(); // make room, if the connection can take more
+			}
+			if(isKeyframe && this.pending.remaining() >= message.remaining()){
+				this.waitingForKeyframe = false;
+			}
+			if(this.waitingForKeyframe || this.pending.remaining() < message.remaining()){
+				this.waitingForKeyframe = true;
+				SpectatorFeed.this.messagesSkipped++;
+				return;
+			}
+			this.pending.put(message.duplicate());
+		}
+
+		/**
+		 * Writes what's pending, and waits to write the rest if the connection can't take it all
+		 */
+		void flush() {
+			this.pending.flip();
+			try{
+				this.channel.write(this.pending);
+			} catch(IOException e){
+				this.pending.clear();
+				this.close();
+				return;
+			}
+			this.pending.compact();
+			if(this.key.isValid()){
+				this.key.interestOps(this.pending.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+			}
+		}
+
+		/**
+		 * Spectators don't send anything, so this only finds out when they hang up
+		 */
+		void read() {
+			SpectatorFeed.this.ignored.clear();
+			try{
+				if(this.channel.read(SpectatorFeed.this.ignored) < 0){
+					this.close();
+				}
+			} catch(IOException e){
+				this.close();
+			}
+		}
+
+		void close() {
+			if(this.closed){
+				return;
+			}
+			this.closed = true;
+			try{
+				this.channel.close();
+			} catch(IOException e){
+				// closing anyway
+			}
+		}
+	}
+}
@@ -0,0 +1,199 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * What a spectator needs to see of a match, and how it is sent to them
+ *
+ * Only what is drawn is kept, as whole numbers: the birds' positions (in eighths of a pixel) and
+ * facing, how far the platforms have moved (the arena, which the spectator has too, says where that
+ * puts them), the scores, the game time and the flags that pick the messages on the screen.
+ * Velocities are left out, since spectators only watch.
+ *
+ * Messages, each one preceded by its length (one byte), with numbers as varints (see Replay)
+ *  >> KEYFRAME: the tick, then every field; enough to start watching from
+ *  >> DELTA: the tick, then a varint with one bit per field that changed since the message before,
+ *     then how much each of those fields changed (zigzag varints, so small changes either way are one byte)
+ * A tick where only the birds moved is about a dozen bytes.
+ */
+public class SpectatorState {
+
+	public static final byte KEYFRAME = 1;
+	public static final byte DELTA = 2;
+	public static final int MAX_MESSAGE_SIZE = 1 + 1 + 5 + 2 + 11 * 5; // length, type, tick, changed fields, fields
+
+	/**
+	 * Fields
+	 */
+	static final int RED_X = 0;
+	static final int RED_Y = 1;
+	static final int GREEN_X = 2;
+	static final int GREEN_Y = 3;
+	static final int RED_FACING = 4;
+	static final int GREEN_FACING = 5;
+	static final int MOTION_TICKS = 6;
+	static final int LEFT_SCORE = 7;
+	static final int RIGHT_SCORE = 8;
+	static final int GAME_TIME = 9;
+	static final int FLAGS = 10;     // as in GameSimulation.writeState
+	static final int FIELD_COUNT = 11;
+	private static final int SUBPIXELS = 8;
+
+	private final int[] fields = new int[FIELD_COUNT];
+	private final long[] state = new long[GameSimulation.STATE_SIZE];
+	private int tick;
+	private boolean keyframed; // read a keyframe, so the fields mean something
+
+	/**
+	 * Takes what a spectator sees from the game
+	 */
+	public void capture(GameSimulation game, int tick) {
+		game.writeState(this.state, 0);
+		this.fields[RED_X] = SpectatorState.quantize(this.state[0]);
+		this.fields[RED_Y] = SpectatorState.quantize(this.state[1]);
+		this.fields[RED_FACING] = (int)this.state[4];
+		this.fields[GREEN_X] = SpectatorState.quantize(this.state[5]);
+		this.fields[GREEN_Y] = SpectatorState.quantize(this.state[6]);
+		this.fields[GREEN_FACING] = (int)this.state[9];
+		this.fields[MOTION_TICKS] = (int)this.state[10];
+		this.fields[LEFT_SCORE] = (int)this.state[11];
+		this.fields[RIGHT_SCORE] = (int)this.state[12];
+		this.fields[GAME_TIME] = (int)this.state[13];
+		this.fields[FLAGS] = (int)this.state[15];
+		this.tick = tick;
+		this.keyframed = true;
+	}
+
+	/**
+	 * Puts what was seen into a game, for drawing it; the birds are shown standing still
+	 */
+	public void applyTo(GameSimulation game) {
+		this.state[0] = Double.doubleToRawLongBits(this.fields[RED_X] / (double)SUBPIXELS);
+		this.state[1] = Double.doubleToRawLongBits(this.fields[RED_Y] / (double)SUBPIXELS);
+		this.state[2] = Double.doubleToRawLongBits(0);
+		this.state[3] = Double.doubleToRawLongBits(0);
+		this.state[4] = this.fields[RED_FACING];
+		this.state[5] = Double.doubleToRawLongBits(this.fields[GREEN_X] / (double)SUBPIXELS);
+		this.state[6] = Double.doubleToRawLongBits(this.fields[GREEN_Y] / (double)SUBPIXELS);
+		this.state[7] = Double.doubleToRawLongBits(0);
+		this.state[8] = Double.doubleToRawLongBits(0);
+		this.state[9] = this.fields[GREEN_FACING];
+		this.state[10] = this.fields[MOTION_TICKS];
+		this.state[11] = this.fields[LEFT_SCORE];
+		this.state[12] = this.fields[RIGHT_SCORE];
+		this.state[13] = this.fields[GAME_TIME];
+		this.state[14] = 0;
+		this.state[15] = this.fields[FLAGS];
+		this.state[16] = 0;
+		game.readState(this.state, 0);
+	}
+
+	private static int quantize(long position) {
+		return (int)Math.round(Double.longBitsToDouble(position) * SUBPIXELS);
+	}
+
+	/**
+	 * Writes a message with every field
+	 */
+	public void writeKeyframe(ByteBuffer out) {
+		this.write(out, KEYFRAME, null);
+	}
+
+	/**
+	 * Writes a message with the fields that changed since another state
+	 * @param previous what the spectators already have
+	 */
+	public void writeDelta(ByteBuffer out, SpectatorState previous) {
+		this.write(out, DELTA, previous);
+	}
+
+	private void write(ByteBuffer out, byte type, SpectatorState previous) {
+		int lengthAt = out.position();
+		out.put((byte)0); // the length goes here, it is always under 128
+		out.put(type);
+		Replay.putVarint(out, this.tick);
+		int mask = 0;
+		for(int f = 0; f < FIELD_COUNT; f++){
+			if(previous == null || this.fields[f] != previous.fields[f]){
+				mask |= 1 << f;
+			}
+		}
+		if(type == DELTA){
+			Replay.putVarint(out, mask);
+		}
+		for(int f = 0; f < FIELD_COUNT; f++){
+			if((mask & (1 << f)) != 0){
+				int change = this.fields[f] - (previous == null ? 0 : previous.fields[f]);
+				Replay.putVarint(out, (change << 1) ^ (change >> 31)); // zigzag
+			}
+		}
+		out.put(lengthAt, (byte)(out.position() - lengthAt - 1));
+	}
+
+	/**
+	 * Reads one message (after its length) and brings this state up to date with it
+	 * @return false if it was a delta that came before any keyframe, and so was ignored
+	 */
+	public boolean read(ByteBuffer in) {
+		byte type = in.get();
+		int tick = Replay.getVarint(in);
+		int mask = type == KEYFRAME ? (1 << FIELD_COUNT) - 1 : Replay.getVarint(in);
+		if(type == KEYFRAME){
+			Arrays.fill(this.fields, 0);
+			this.keyframed = true;
+		} else if(!this.keyframed){
+			return false;
+		}
+		for(int f = 0; f < FIELD_COUNT; f++){
+			if((mask & (1 << f)) != 0){
+				int zigzag = Replay.getVarint(in);
+				this.fields[f] += (zigzag >>> 1) ^ -(zigzag & 1);
+			}
+		}
+		this.tick = tick;
+		return true;
+	}
+
+	/**
+	 * Reads every whole message in a buffer (as received), leaving any part of a message that hasn't all arrived
+	 * @return how many messages brought this state up to date
+	 */
+	public int readMessages(ByteBuffer in) {
+		int read = 0;
+		while(in.remaining() > 0 && in.remaining() > in.get(in.position())){
+			int end = in.position() + 1 + in.get(in.position());
+			in.position(in.position() + 1);
+			if(this.read(in)){
+				read++;
+			}
+			in.position(end);
+		}
+		return read;
+	}
+
+	/**
+	 * Makes this the same as another state
+	 */
+	public void copy(SpectatorState other) {
+		System.arraycopy(other.fields, 0, this.fields, 0, FIELD_COUNT);
+		this.tick = other.tick;
+		this.keyframed = other.keyframed;
+	}
+
+	/**
+	 * get methods
+	 */
+	public int getTick(){
+		return this.tick;
+	}
+
+	/**
+	 * @return true once there is something to show: a state was captured, or a keyframe was read
+	 */
+	public boolean isKeyframed(){
+		return this.keyframed;
+	}
+
+	public boolean sameAs(SpectatorState other){
+		return Arrays.equals(this.fields, other.fields) && this.tick == other.tick;
+	}
+}
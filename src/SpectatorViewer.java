@@ -0,0 +1,77 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import javax.swing.JFrame;
+
+/**
+ * Watches a match sent by a SpectatorFeed
+ *
+ * Every message that arrives brings a SpectatorState up to date; the state is put into a GameSimulation
+ * that is never ticked, and drawn with the same GameView as JoustScreen (background, Bird.draw, platforms, Hud).
+ * Nothing is drawn until the first keyframe arrives.
+ *
+ *   java SpectatorViewer [host[:port]]
+ * with -Djousty.arena=file if the match is played in an arena other than the original one.
+ */
+public class SpectatorViewer implements Runnable {
+
+	private final SocketChannel channel;
+	private final ByteBuffer in = ByteBuffer.allocate(8192);
+	private final SpectatorState state = new SpectatorState();
+
+	/**
+	 * Drawing
+	 */
+	private final JFrame window;
+	private final Renderer renderer;
+	private final GameView view;
+	private final GameSimulation game;   // only holds what is drawn
+
+	public SpectatorViewer(InetSocketAddress feed) throws IOException {
+		this.channel = SocketChannel.open(feed);
+		this.window = new JFrame("Jousty Bird - watching " + feed.getHostString());
+		this.renderer = new ImageRenderer(800, 600);
+		this.window.getContentPane().add(this.renderer.getComponent());
+		this.window.pack();
+		this.window.setVisible(true);
+		this.window.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		this.view = new GameView(new BackgroundLayer(800, 600, SpriteCache.getImage("landscape"), SpriteCache.getImage("lava")), new Hud());
+		this.game = new GameSimulation(Arena.fromSettings(), new Bird("birdr", 0, 100), new Bird("birdg", 0, 700)); // the host's arena
+	}
+
+	public static void main(String[] args) throws IOException {
+		String feed = args.length > 0 ? args[0] : "127.0.0.1";
+		int colon = feed.lastIndexOf(':');
+		InetSocketAddress address = colon < 0 ? new InetSocketAddress(feed, SpectatorFeed.DEFAULT_PORT)
+				: new InetSocketAddress(feed.substring(0, colon), Integer.parseInt(feed.substring(colon + 1)));
+		new Thread(new SpectatorViewer(address), "Jousty Bird spectator").start();
+	}
+
+	/**
+	 * Reads messages as they arrive, and draws the latest tick after each read
+	 */
+	public void run() {
+		try{
+			while(this.channel.read(this.in) >= 0){
+				this.in.flip();
+				int read = this.state.readMessages(this.in);
+				this.in.compact();
+				if(read > 0){
+					this.state.applyTo(this.game);
+					this.refreshScreen();
+				}
+			}
+			System.out.println("the match is over");
+		} catch(IOException e){
+			System.err.println("lost the feed: " + e.getMessage());
+		}
+	}
+
+	private void refreshScreen() {
+		do {
+			this.view.draw(this.renderer.beginFrame(), this.game, false, 1);
+		} while(!this.renderer.endFrame());
+	}
+}
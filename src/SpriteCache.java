@@ -0,0 +1,159 @@
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Process-wide cache of the game's images
+ * 
+ * Each PNG is read once, and converted to the screen's own pixel format so drawing it
+ * doesn't convert it again every frame. Every Bird with the same basename shares the same frames,
+ * so new birds and new matches cost no file reads and no extra image memory.
+ * With a loader set (see setLoader), the PNGs are read by it, ahead of time and on threads of its own.
+ */
+public final class SpriteCache {
+
+	private static final ConcurrentHashMap<String, SpriteFrame[]> birds = new ConcurrentHashMap<String, SpriteFrame[]>();
+	private static final ConcurrentHashMap<String, BufferedImage> images = new ConcurrentHashMap<String, BufferedImage>();
+	private static volatile AssetLoader loader;
+
+	private SpriteCache() {
+	}
+
+	/**
+	 * The six frames of a bird
+	 *  0-2: right-facing (folded, back, and forward wings)
+	 *  3-5: left-facing (folded, back, and forward wings)
+	 * 
+	 * @param basename should be "birdg" or "birdr" (assuming you use the provided images)
+	 * @return a copy of the shared frame array, the frames themselves are shared
+	 */
+	public static SpriteFrame[] getBirdFrames(String basename) {
+		SpriteFrame[] frames = birds.get(basename);
+		if(frames == null){
+			frames = SpriteCache.loadBirdFrames(basename);
+			SpriteFrame[] loaded = birds.putIfAbsent(basename, frames);
+			if(loaded != null){ // someone else loaded it first
+				frames = loaded;
+			}
+		}
+		return frames.clone();
+	}
+
+	/**
+	 * The solid pixels of the six frames of a bird, in the same order as getBirdFrames
+	 * @param basename should be "birdg" or "birdr" (assuming you use the provided images)
+	 */
+	public static SpriteMask[] getBirdMasks(String basename) {
+		SpriteFrame[] frames = SpriteCache.getBirdFrames(basename);
+		SpriteMask[] masks = new SpriteMask[frames.length];
+		for(int i = 0; i < masks.length; i++){
+			masks[i] = frames[i].getMask();
+		}
+		return masks;
+	}
+
+	/**
+	 * A whole image, such as "lava" or "landscape"; callers must not draw on it
+	 */
+	public static BufferedImage getImage(String basename) {
+		BufferedImage image = images.get(basename);
+		if(image == null){
+			image = SpriteCache.toCompatible(SpriteCache.read(basename));
+			BufferedImage loaded = images.putIfAbsent(basename, image);
+			if(loaded != null){
+				image = loaded;
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * Reads images from now on from the loader, when it is loading them, rather than from their PNGs
+	 * @param assets the loader, or null to read every PNG here again
+	 */
+	public static void setLoader(AssetLoader assets) {
+		SpriteCache.loader = assets;
+	}
+
+	private static SpriteFrame[] loadBirdFrames(String basename) {
+		BufferedImage[] imgs = new BufferedImage[6];
+		imgs[0] = SpriteCache.read(basename);
+		imgs[1] = SpriteCache.read(basename+"f");
+		imgs[2] = SpriteCache.read(basename+"b");
+		imgs[3] = SpriteCache.makeFlipped(imgs[0]);
+		imgs[4] = SpriteCache.makeFlipped(imgs[1]);
+		imgs[5] = SpriteCache.makeFlipped(imgs[2]);
+		SpriteFrame[] frames = new SpriteFrame[6];
+		for(int i = 0; i < frames.length; i++){
+			frames[i] = new SpriteFrame(SpriteCache.toCompatible(imgs[i]));
+		}
+		return frames;
+	}
+
+	private static BufferedImage read(String basename) {
+		AssetLoader assets = SpriteCache.loader;
+		if(assets != null && assets.has(basename)){
+			return assets.get(basename);
+		}
+		try {
+			return ImageIO.read(new File(basename+".png"));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * A helper method for flipping in image left-to-right into a mirror image.
+	 * 
+	 * @param original The image to flip
+	 * @return A left-right mirrored copy of the original image
+	 */
+	static BufferedImage makeFlipped(BufferedImage original) {
+		AffineTransform af = AffineTransform.getScaleInstance(-1, 1);
+		af.translate(-original.getWidth(), 0);
+		BufferedImage ans = new BufferedImage(original.getWidth(), original.getHeight(), original.getType());
+		Graphics2D g = (Graphics2D)ans.getGraphics();
+		g.drawImage(original, af, null);
+		g.dispose();
+		return ans;
+	}
+
+	/**
+	 * A new blank image in the pixel format of the screen
+	 * @param transparency one of the Transparency constants
+	 */
+	static BufferedImage createCompatibleImage(int width, int height, int transparency) {
+		if(GraphicsEnvironment.isHeadless()){
+			return new BufferedImage(width, height, transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+		}
+		GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+		return config.createCompatibleImage(width, height, transparency);
+	}
+
+	/**
+	 * Copies an image into the pixel format of the screen, unless it already is in it
+	 * (or there is no screen, when running headless)
+	 */
+	static BufferedImage toCompatible(BufferedImage image) {
+		if(GraphicsEnvironment.isHeadless()){
+			return image;
+		}
+		GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+		if(image.getColorModel().equals(config.getColorModel(image.getTransparency()))){
+			return image;
+		}
+		BufferedImage compatible = config.createCompatibleImage(image.getWidth(), image.getHeight(), image.getTransparency());
+		Graphics2D g = compatible.createGraphics();
+		g.drawImage(image, 0, 0, null);
+		g.dispose();
+		return compatible;
+	}
+}
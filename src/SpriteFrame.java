@@ -0,0 +1,46 @@
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+
+/**
+ * One frame of a sprite, shared by everything that draws it
+ * 
+ * The image inside is never handed out, so nobody can draw on it and change it for everyone else.
+ * Which of its pixels are solid is worked out once, here, for pixel collisions (see SpriteMask).
+ */
+public final class SpriteFrame {
+
+	private final BufferedImage image;
+	private final int width;
+	private final int height;
+	private final SpriteMask mask;
+
+	SpriteFrame(BufferedImage image) {
+		this.image = image;
+		this.width = image.getWidth();
+		this.height = image.getHeight();
+		this.mask = new SpriteMask(image);
+	}
+
+	/**
+	 * Draws this frame with its top left corner at x, y
+	 * @param g the paintbrush to use for the drawing
+	 */
+	public void draw(Graphics g, int x, int y) {
+		g.drawImage(this.image, x, y, null);
+	}
+
+	/**
+	 * get methods
+	 */
+	public int getWidth(){
+		return this.width;
+	}
+
+	public int getHeight(){
+		return this.height;
+	}
+
+	public SpriteMask getMask(){
+		return this.mask;
+	}
+}
@@ -0,0 +1,99 @@
+import java.awt.image.BufferedImage;
+
+/**
+ * Which pixels of a sprite frame are solid, one bit each, for telling if two birds really touch
+ *
+ * Each row of the picture is packed into longs, the leftmost pixel in the lowest bit, with the
+ * bits past the right edge left clear. Two masks are checked a row of 64 pixels at a time: the
+ * other mask's row is shifted to line up with this one's and the two are ANDed, so an 80 pixel
+ * bird takes two ANDs a row. Made once per frame when the frames are loaded (see SpriteCache),
+ * and never changed, so every bird and every thread shares them.
+ */
+public final class SpriteMask {
+
+	public static final int SOLID_ALPHA = 128; // pixels at least this opaque are solid
+
+	private final int width;
+	private final int height;
+	private final int words; // longs a row
+	private final long[] bits;
+
+	/**
+	 * @param image the frame, as drawn
+	 */
+	SpriteMask(BufferedImage image) {
+		this.width = image.getWidth();
+		this.height = image.getHeight();
+		this.words = (this.width + 63) >>> 6;
+		this.bits = new long[this.words * this.height];
+		int[] row = new int[this.width];
+		for(int y = 0; y < this.height; y++){
+			image.getRGB(0, y, this.width, 1, row, 0, this.width);
+			for(int x = 0; x < this.width; x++){
+				if((row[x] >>> 24) >= SOLID_ALPHA){
+					this.bits[y * this.words + (x >>> 6)] |= 1L << (x & 63);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return if any solid pixel of a, with its top left corner at ax, ay, is on a solid pixel of b, with its corner at bx, by
+	 */
+	public static boolean overlaps(SpriteMask a, int ax, int ay, SpriteMask b, int bx, int by) {
+		int top = Math.max(ay, by);
+		int bottom = Math.min(ay + a.height, by + b.height);
+		int left = Math.max(ax, bx);
+		int right = Math.min(ax + a.width, bx + b.width);
+		if(top >= bottom || left >= right){
+			return false;
+		}
+		int firstWord = (left - ax) >>> 6;
+		int lastWord = (right - 1 - ax) >>> 6;
+		for(int y = top; y < bottom; y++){
+			int rowA = (y - ay) * a.words;
+			int rowB = (y - by) * b.words;
+			for(int w = firstWord; w <= lastWord; w++){
+				long solidA = a.bits[rowA + w];
+				if(solidA != 0 && (solidA & b.row(rowB, (w << 6) + ax - bx)) != 0){
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param row where the row starts in bits
+	 * @param column the column of the first pixel wanted, which may be off either edge
+	 * @return 64 pixels of a row from column on, clear where they are off the edges
+	 */
+	private long row(int row, int column) {
+		int word = column >> 6; // rounded down, for columns off the left edge too
+		int shift = column & 63;
+		long low = word >= 0 && word < this.words ? this.bits[row + word] : 0;
+		if(shift == 0){
+			return low;
+		}
+		long high = word + 1 >= 0 && word + 1 < this.words ? this.bits[row + word + 1] : 0;
+		return (low >>> shift) | (high << (64 - shift));
+	}
+
+	/**
+	 * @return if the pixel at x, y is solid
+	 */
+	public boolean isSolid(int x, int y) {
+		return x >= 0 && y >= 0 && x < this.width && y < this.height && (this.bits[y * this.words + (x >>> 6)] & (1L << (x & 63))) != 0;
+	}
+
+	/**
+	 * get methods
+	 */
+	public int getWidth(){
+		return this.width;
+	}
+
+	public int getHeight(){
+		return this.height;
+	}
+}
@@ -0,0 +1,101 @@
+/**
+ * How late ticks started and how long they took, for one match
+ *
+ * Times are counted in buckets by powers of two microseconds (bucket b holds times below 2^b us),
+ * so recording a tick is two increments and percentiles are accurate to within a factor of two.
+ * Only one thread records at a time; other threads reading the counts may see them a tick behind.
+ */
+public class TickStats {
+
+	public static final int BUCKETS = 32;
+
+	private final long[] lateness = new long[BUCKETS];
+	private final long[] duration = new long[BUCKETS];
+	private long ticks;
+	private long maxLatenessNanos;
+	private long maxDurationNanos;
+	private long totalDurationNanos;
+
+	/**
+	 * @param latenessNanos how long after it was due the tick started
+	 * @param durationNanos how long the tick took
+	 */
+	public void record(long latenessNanos, long durationNanos) {
+		this.lateness[TickStats.bucket(latenessNanos)]++;
+		this.duration[TickStats.bucket(durationNanos)]++;
+		this.maxLatenessNanos = Math.max(this.maxLatenessNanos, latenessNanos);
+		this.maxDurationNanos = Math.max(this.maxDurationNanos, durationNanos);
+		this.totalDurationNanos += durationNanos;
+		this.ticks++;
+	}
+
+	/**
+	 * Adds another match's counts to these, for totals over many matches
+	 */
+	public void add(TickStats other) {
+		for(int b = 0; b < BUCKETS; b++){
+			this.lateness[b] += other.lateness[b];
+			this.duration[b] += other.duration[b];
+		}
+		this.maxLatenessNanos = Math.max(this.maxLatenessNanos, other.maxLatenessNanos);
+		this.maxDurationNanos = Math.max(this.maxDurationNanos, other.maxDurationNanos);
+		this.totalDurationNanos += other.totalDurationNanos;
+		this.ticks += other.ticks;
+	}
+
+	private static int bucket(long nanos) {
+		long micros = Math.max(0, nanos / 1000);
+		return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+	}
+
+	/**
+	 * @return the time (in microseconds) that the given fraction of ticks were under, rounded up to a power of two
+	 */
+	private long percentile(long[] buckets, double fraction) {
+		long wanted = (long)Math.ceil(this.ticks * fraction);
+		long seen = 0;
+		for(int b = 0; b < BUCKETS; b++){
+			seen += buckets[b];
+			if(seen >= wanted && seen > 0){
+				return 1L << b;
+			}
+		}
+		return 1L << (BUCKETS - 1);
+	}
+
+	/**
+	 * get methods
+	 */
+	public long getTicks(){
+		return this.ticks;
+	}
+
+	public long getLatenessPercentileMicros(double fraction){
+		return this.percentile(this.lateness, fraction);
+	}
+
+	public long getDurationPercentileMicros(double fraction){
+		return this.percentile(this.duration, fraction);
+	}
+
+	public long getMaxLatenessMicros(){
+		return this.maxLatenessNanos / 1000;
+	}
+
+	public long getMaxDurationMicros(){
+		return this.maxDurationNanos / 1000;
+	}
+
+	public double getMeanDurationMicros(){
+		return this.ticks == 0 ? 0 : this.totalDurationNanos / 1000.0 / this.ticks;
+	}
+
+	/**
+	 * One line: ticks, then lateness and duration as p50/p99/max in microseconds
+	 */
+	public String toString() {
+		return String.format("%d ticks, late p50 %d p99 %d max %d us, took p50 %d p99 %d max %d us",
+				this.ticks, this.getLatenessPercentileMicros(.5), this.getLatenessPercentileMicros(.99), this.getMaxLatenessMicros(),
+				this.getDurationPercentileMicros(.5), this.getDurationPercentileMicros(.99), this.getMaxDurationMicros());
+	}
+}
@@ -0,0 +1,362 @@
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * A picture behind a world bigger than the screen, cut into square tiles that are only read from the
+ * file when the camera gets near them, and forgotten again once memory runs short
+ *
+ *  >> the picture is never read whole: its tiles are read with ImageReader source regions, a strip of
+ *     them side by side in one row at a time, only the ones that are wanted and never more than fit
+ *     across the screen and a tile around it, however wide the picture is
+ *  >> each tile is put together with the sky behind it as it is read, as BackgroundLayer does, so
+ *     drawing one is a single opaque copy
+ *  >> reading is done on a thread of its own, so drawing never waits for it. Each frame asks for the
+ *     tiles it is missing, the ones on screen first and then the ones a tile around it, so a tile is
+ *     usually ready before it scrolls onto the screen; until then the sky shows through.
+ *  >> the tiles are kept up to maxBytes of them, forgetting the least recently drawn first, but never
+ *     one on screen or a tile around it. The strip being read counts too: room is made for it, and for
+ *     the tiles cut from it, before it is read.
+ *  >> a world bigger than the picture shows it again and again, like wallpaper
+ * Drawing creates no objects, so frame times and memory stay the same however big the world is.
+ */
+public class TiledBackground implements Runnable {
+
+	public static final int TILE_SIZE = 256;
+
+	private final Color sky;
+	private final int imageWidth;
+	private final int imageHeight;
+	private final int columns;
+	private final int rows;
+	private final int stripColumns;   // the most tiles read at once
+	private final int bytesPerPixel;  // of the picture as it is read, before it is put over the sky
+	private final long maxBytes;
+
+	/**
+	 * Tiles, one entry per tile of the picture, row by row; guarded by this
+	 */
+	private final BufferedImage[] tiles;
+	private final long[] lastUsed;    // the frame each tile was last drawn or wanted in
+	private final long[] wantedAt;    // the frame each tile was last missing in
+	private final int[] wanted;       // tiles to read, the most wanted first
+	private int wantedCount;
+	private long frame;
+	private long bytes;
+	private long readingBytes;        // set aside for the strip being read
+	private int stripsRead;
+	private String problem;           // why the picture couldn't be read, if it couldn't
+	private boolean closed = false;
+
+	/**
+	 * Reading, only ever on the reading thread once it starts
+	 */
+	private final ImageInputStream input;
+	private final ImageReader reader;
+	private final Thread thread;
+	private final int[] strip = new int[2]; // the first tile of the next strip to read, and how many
+
+	/**
+	 * Reads the size of the picture, and starts the thread that reads the tiles
+	 * @param file the picture, a PNG or anything else ImageIO reads
+	 * @param sky the colour behind it, where it is see-through
+	 * @param maxBytes how much memory the tiles, and the strip being read, may take; never less than the tiles
+	 * on screen and around it and one strip need
+	 * @param screenWidth the size of the screen, for that least
+	 * @param screenHeight
+	 */
+	public TiledBackground(File file, Color sky, long maxBytes, int screenWidth, int screenHeight) throws IOException {
+		this.sky = sky;
+		this.input = ImageIO.createImageInputStream(file);
+		if(this.input == null){
+			throw new IOException("could not open " + file);
+		}
+		Iterator<ImageReader> readers = ImageIO.getImageReaders(this.input);
+		if(!readers.hasNext()){
+			this.input.close();
+			throw new IOException(file + " is not a picture");
+		}
+		this.reader = readers.next();
+		this.reader.setInput(this.input, false, true);
+		this.imageWidth = this.reader.getWidth(0);
+		this.imageHeight = this.reader.getHeight(0);
+		this.columns = (this.imageWidth + TILE_SIZE - 1) / TILE_SIZE;
+		this.rows = (this.imageHeight + TILE_SIZE - 1) / TILE_SIZE;
+		this.stripColumns = Math.min(this.columns, screenWidth / TILE_SIZE + 4);
+		ImageTypeSpecifier type = this.reader.getRawImageType(0);
+		this.bytesPerPixel = type != null ? (type.getColorModel().getPixelSize() + 7) / 8 : 8;
+		long around = (long)(screenWidth / TILE_SIZE + 4) * (screenHeight / TILE_SIZE + 4) * TILE_SIZE * TILE_SIZE * 4;
+		this.maxBytes = Math.max(maxBytes, around + this.stripBytes(this.stripColumns));
+		this.tiles = new BufferedImage[this.columns * this.rows];
+		this.lastUsed = new long[this.tiles.length];
+		this.wantedAt = new long[this.tiles.length];
+		this.wanted = new int[this.tiles.length];
+		this.thread = new Thread(this, "Jousty Bird tile reader");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Draws the part of the picture behind part of the world, with its top left corner at the top left
+	 * of the paintbrush, and asks for the tiles that are missing
+	 * @param g the paintbrush to use for the drawing
+	 * @param left the part of the world to draw, such as what the camera shows
+	 * @param top
+	 * @param width
+	 * @param height
+	 */
+	public synchronized void draw(Graphics g, int left, int top, int width, int height) {
+		this.frame++;
+		this.wantedCount = 0;
+		this.visit(g, left, top, left, top, width, height);
+		this.visit(null, left, top, left - TILE_SIZE, top - TILE_SIZE, width + 2 * TILE_SIZE, height + 2 * TILE_SIZE);
+		if(this.wantedCount > 0){
+			this.notifyAll();
+		}
+	}
+
+	/**
+	 * Goes through every tile over part of the world: draws it if it's there (and there is a paintbrush),
+	 * or asks for it if it isn't
+	 * @param originX the part of the world at the top left of the paintbrush
+	 * @param originY
+	 */
+	private void visit(Graphics g, int originX, int originY, int left, int top, int width, int height) {
+		for(int y = top; y < top + height; ){
+			int repeatY = Math.floorDiv(y, this.imageHeight);
+			int row = (y - repeatY * this.imageHeight) / TILE_SIZE;
+			int tileTop = repeatY * this.imageHeight + row * TILE_SIZE;
+			for(int x = left; x < left + width; ){
+				int repeatX = Math.floorDiv(x, this.imageWidth);
+				int column = (x - repeatX * this.imageWidth) / TILE_SIZE;
+				int tileLeft = repeatX * this.imageWidth + column * TILE_SIZE;
+				int tile = row * this.columns + column;
+				if(this.tiles[tile] != null){
+					if(g != null){
+						g.drawImage(this.tiles[tile], tileLeft - originX, tileTop - originY, null);
+					}
+					this.lastUsed[tile] = this.frame;
+				} else if(this.wantedAt[tile] != this.frame){
+					this.wantedAt[tile] = this.frame;
+					this.wanted[this.wantedCount++] = tile;
+				}
+				x = tileLeft + Math.min(TILE_SIZE, this.imageWidth - column * TILE_SIZE);
+			}
+			y = tileTop + Math.min(TILE_SIZE, this.imageHeight - row * TILE_SIZE);
+		}
+	}
+
+	/**
+	 * Reads strips of tiles as they are wanted, until closed
+	 */
+	public void run() {
+		try {
+			while(true){
+				synchronized(this){
+					while(!this.nextStrip() && !this.closed){
+						this.wait();
+					}
+					if(this.closed){
+						return;
+					}
+					this.readingBytes = this.stripBytes(this.strip[1]);
+					this.forget();
+				}
+				BufferedImage[] strip = this.readStrip(this.strip[0], this.strip[1]);
+				synchronized(this){
+					this.store(this.strip[0], strip);
+				}
+			}
+		} catch (IOException | RuntimeException e) { // drawing carries on with the sky where the tiles would be
+			synchronized(this){
+				this.problem = "could not read the background: " + e;
+			}
+			System.err.println(this.problem);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			this.reader.dispose();
+			try {
+				this.input.close();
+			} catch (IOException e) {
+				// it was only being read
+			}
+		}
+	}
+
+	/**
+	 * Picks the next strip to read: the most wanted tile that the last frame is still missing, and the
+	 * tiles either side of it in its row that it is missing too, up to stripColumns of them
+	 * @return false if the last frame isn't missing any
+	 */
+	private boolean nextStrip() {
+		for(int i = 0; i < this.wantedCount; i++){
+			int tile = this.wanted[i];
+			if(this.tiles[tile] == null && this.wantedAt[tile] == this.frame){
+				int rowStart = tile - tile % this.columns;
+				int first = tile;
+				int last = tile;
+				while(last - first + 1 < this.stripColumns && first > rowStart && this.isMissing(first - 1)){
+					first--;
+				}
+				while(last - first + 1 < this.stripColumns && last + 1 < rowStart + this.columns && this.isMissing(last + 1)){
+					last++;
+				}
+				this.strip[0] = first;
+				this.strip[1] = last - first + 1;
+				return true;
+			}
+		}
+		this.wantedCount = 0;
+		return false;
+	}
+
+	private boolean isMissing(int tile) {
+		return this.tiles[tile] == null && this.wantedAt[tile] == this.frame;
+	}
+
+	/**
+	 * @return the most memory reading a strip of this many tiles takes: the part of the picture, as read,
+	 * and the tiles cut from it
+	 */
+	private long stripBytes(int count) {
+		return (long)count * TILE_SIZE * TILE_SIZE * (this.bytesPerPixel + 4);
+	}
+
+	/**
+	 * Reads tiles side by side in one go
+	 * @param first the tile at the left of the strip
+	 * @param count how many tiles
+	 * @return each tile, over the sky, in the pixel format of the screen
+	 */
+	private BufferedImage[] readStrip(int first, int count) throws IOException {
+		int left = (first % this.columns) * TILE_SIZE;
+		int top = (first / this.columns) * TILE_SIZE;
+		int height = Math.min(TILE_SIZE, this.imageHeight - top);
+		ImageReadParam region = this.reader.getDefaultReadParam();
+		region.setSourceRegion(new Rectangle(left, top, Math.min(count * TILE_SIZE, this.imageWidth - left), height));
+		BufferedImage strip = this.reader.read(0, region);
+		BufferedImage[] tiles = new BufferedImage[count];
+		for(int t = 0; t < count; t++){
+			int width = Math.min(TILE_SIZE, this.imageWidth - left - t * TILE_SIZE);
+			tiles[t] = SpriteCache.createCompatibleImage(width, height, Transparency.OPAQUE);
+			Graphics2D g = tiles[t].createGraphics();
+			g.setColor(this.sky);
+			g.fillRect(0, 0, width, height);
+			g.drawImage(strip, -t * TILE_SIZE, 0, null);
+			g.dispose();
+		}
+		return tiles;
+	}
+
+	/**
+	 * Keeps a strip of tiles that was just read, in place of the memory set aside for reading it
+	 */
+	private void store(int first, BufferedImage[] strip) {
+		this.stripsRead++;
+		for(int t = 0; t < strip.length; t++){
+			int tile = first + t;
+			if(this.tiles[tile] == null){
+				this.tiles[tile] = strip[t];
+				this.lastUsed[tile] = this.wantedAt[tile];
+				this.bytes += TiledBackground.bytes(strip[t]);
+			}
+		}
+		this.readingBytes = 0;
+		this.forget();
+	}
+
+	/**
+	 * Forgets the least recently drawn tiles until they fit, with the strip being read
+	 */
+	private void forget() {
+		while(this.bytes + this.readingBytes > this.maxBytes){
+			int oldest = -1;
+			for(int tile = 0; tile < this.tiles.length; tile++){
+				if(this.tiles[tile] != null && (oldest < 0 || this.lastUsed[tile] < this.lastUsed[oldest])){
+					oldest = tile;
+				}
+			}
+			if(oldest < 0 || this.lastUsed[oldest] == this.frame){ // nothing left but on screen or around it
+				break;
+			}
+			this.bytes -= TiledBackground.bytes(this.tiles[oldest]);
+			this.tiles[oldest] = null;
+		}
+	}
+
+	private static long bytes(BufferedImage tile) {
+		return 4L * tile.getWidth() * tile.getHeight();
+	}
+
+	/**
+	 * Stops reading tiles, waiting for a row being read to finish; drawing then only shows the tiles already read
+	 */
+	public void close() {
+		synchronized(this){
+			this.closed = true;
+			this.notifyAll();
+		}
+		try {
+			this.thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * get methods
+	 */
+	public int getImageWidth(){
+		return this.imageWidth;
+	}
+
+	public int getImageHeight(){
+		return this.imageHeight;
+	}
+
+	public long getMaxBytes(){
+		return this.maxBytes;
+	}
+
+	/**
+	 * @return how much memory the tiles being kept take, not counting a strip being read
+	 */
+	public synchronized long getBytes(){
+		return this.bytes;
+	}
+
+	public synchronized int getTileCount(){
+		int count = 0;
+		for(BufferedImage tile : this.tiles){
+			count += tile != null ? 1 : 0;
+		}
+		return count;
+	}
+
+	/**
+	 * @return how many strips of tiles have been read from the file
+	 */
+	public synchronized int getStripsRead(){
+		return this.stripsRead;
+	}
+
+	/**
+	 * @return why the picture couldn't be read, or null if it could
+	 */
+	public synchronized String getProblem(){
+		return this.problem;
+	}
+}
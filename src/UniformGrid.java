@@ -0,0 +1,215 @@
+/**
+ * Broadphase for collisions: the arena cut into square cells
+ *
+ *  >> birds are put in the cell holding the top left corner of their body; as long as a cell is
+ *     at least as big as a body, two birds can only touch if their cells are the same or next to each other
+ *  >> platforms are put in every cell they cover, as one bit per platform
+ *  >> an arena more than MAX_CELLS_ACROSS cells wide (or high) wraps around the grid, like a world map
+ *     drawn on a small sheet over and over, so the grid stays the same size however big the world is.
+ *     Birds and platforms a whole grid apart then share cells, and are told apart by the exact checks
+ *     that come after the broadphase anyway.
+ *
+ * Birds in a cell are kept in the order of their number, so looking through neighbouring cells
+ * finds pairs in the same order as checking every pair would. Building the grid creates no objects.
+ */
+public class UniformGrid {
+
+	public static final int MAX_BOXES = 64; // platforms are bits in a long
+	public static final int MAX_CELLS_ACROSS = 64;
+
+	private int cellSize;
+	private int columns;
+	private int rows;
+	private boolean wrapColumns; // the arena is wider than the grid
+	private boolean wrapRows;
+
+	/**
+	 * Birds: the ones in cell c are items[cellStart[c]] up to (not including) items[cellStart[c+1]]
+	 */
+	private int[] cellStart;
+	private int[] cursor;
+	private int[] items = new int[0];
+	private int[] cellOf = new int[0];
+
+	/**
+	 * Platforms: bit p of boxMask[c] is set if platform p covers any of cell c
+	 */
+	private long[] boxMask;
+
+	/**
+	 * @param width the size of the arena
+	 * @param height
+	 * @param cellSize should be at least as big as whatever is put in with build()
+	 */
+	public UniformGrid(int width, int height, int cellSize) {
+		this.cellSize = cellSize;
+		this.columns = (width + cellSize - 1) / cellSize;
+		this.rows = (height + cellSize - 1) / cellSize;
+		this.wrapColumns = this.columns > MAX_CELLS_ACROSS;
+		this.wrapRows = this.rows > MAX_CELLS_ACROSS;
+		this.columns = Math.min(this.columns, MAX_CELLS_ACROSS);
+		this.rows = Math.min(this.rows, MAX_CELLS_ACROSS);
+		this.cellStart = new int[this.columns * this.rows + 1];
+		this.cursor = new int[this.columns * this.rows];
+		this.boxMask = new long[this.columns * this.rows];
+	}
+
+	/**
+	 * Puts every bird in its cell (a counting sort, so each cell stays in bird order)
+	 * @param x the left edge of each bird's body
+	 * @param y the top edge of each bird's body
+	 * @param count how many birds
+	 */
+	public void build(int[] x, int[] y, int count) {
+		if(this.items.length < count){
+			this.items = new int[count];
+			this.cellOf = new int[count];
+		}
+		int cells = this.columns * this.rows;
+		for(int c = 0; c <= cells; c++){
+			this.cellStart[c] = 0;
+		}
+		for(int i = 0; i < count; i++){
+			int c = this.cell(x[i], y[i]);
+			this.cellOf[i] = c;
+			this.cellStart[c + 1]++;
+		}
+		for(int c = 0; c < cells; c++){
+			this.cellStart[c + 1] += this.cellStart[c];
+		}
+		for(int c = 0; c < cells; c++){
+			this.cursor[c] = this.cellStart[c];
+		}
+		for(int i = 0; i < count; i++){
+			this.items[this.cursor[this.cellOf[i]]++] = i;
+		}
+	}
+
+	/**
+	 * Records which cells each platform covers
+	 * @param boxes x, y, width, height of each platform in a row
+	 * @param count how many platforms, up to MAX_BOXES
+	 */
+	public void setBoxes(int[] boxes, int count) {
+		if(count > MAX_BOXES){
+			throw new IllegalArgumentException("at most " + MAX_BOXES + " platforms: " + count);
+		}
+		for(int c = 0; c < this.boxMask.length; c++){
+			this.boxMask[c] = 0;
+		}
+		for(int p = 0; p < count; p++){
+			int x = boxes[4*p], y = boxes[4*p+1], w = boxes[4*p+2], h = boxes[4*p+3];
+			if(w <= 0 || h <= 0){
+				continue;
+			}
+			int columnSpan = this.columnSpan(x, w), rowSpan = this.rowSpan(y, h);
+			for(int i = 0, r = this.row(y); i < rowSpan; i++, r = this.neighbourRow(r, 1)){
+				for(int j = 0, c = this.column(x); j < columnSpan; j++, c = this.neighbourColumn(c, 1)){
+					this.boxMask[r * this.columns + c] |= 1L << p;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return a bit for every platform in a cell the box covers; the platforms might not touch the box itself
+	 */
+	public long boxesNear(int x, int y, int width, int height) {
+		int columnSpan = this.columnSpan(x, width), rowSpan = this.rowSpan(y, height);
+		long mask = 0;
+		for(int i = 0, r = this.row(y); i < rowSpan; i++, r = this.neighbourRow(r, 1)){
+			for(int j = 0, c = this.column(x); j < columnSpan; j++, c = this.neighbourColumn(c, 1)){
+				mask |= this.boxMask[r * this.columns + c];
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * The cell a point is in; points off the arena go in the nearest cell (or wrap around, if the arena does)
+	 */
+	public int cell(int x, int y) {
+		return this.row(y) * this.columns + this.column(x);
+	}
+
+	private int column(int x) {
+		int column = Math.floorDiv(x, this.cellSize);
+		return this.wrapColumns ? Math.floorMod(column, this.columns) : Math.max(0, Math.min(this.columns - 1, column));
+	}
+
+	private int row(int y) {
+		int row = Math.floorDiv(y, this.cellSize);
+		return this.wrapRows ? Math.floorMod(row, this.rows) : Math.max(0, Math.min(this.rows - 1, row));
+	}
+
+	/**
+	 * @return how many columns from x to x + width - 1 covers, from column(x) on
+	 */
+	private int columnSpan(int x, int width) {
+		if(this.wrapColumns){
+			return Math.min(this.columns, Math.floorDiv(x + width - 1, this.cellSize) - Math.floorDiv(x, this.cellSize) + 1);
+		}
+		return this.column(x + width - 1) - this.column(x) + 1;
+	}
+
+	private int rowSpan(int y, int height) {
+		if(this.wrapRows){
+			return Math.min(this.rows, Math.floorDiv(y + height - 1, this.cellSize) - Math.floorDiv(y, this.cellSize) + 1);
+		}
+		return this.row(y + height - 1) - this.row(y) + 1;
+	}
+
+	/**
+	 * @param step -1 for the column to the left, 1 for the one to the right
+	 * @return that column, wrapping around if the arena does, or -1 if it's off the edge
+	 */
+	public int neighbourColumn(int column, int step) {
+		int next = column + step;
+		if(this.wrapColumns){
+			return Math.floorMod(next, this.columns);
+		}
+		return next >= 0 && next < this.columns ? next : -1;
+	}
+
+	/**
+	 * @param step -1 for the row above, 1 for the one below
+	 * @return that row, wrapping around if the arena does, or -1 if it's off the edge
+	 */
+	public int neighbourRow(int row, int step) {
+		int next = row + step;
+		if(this.wrapRows){
+			return Math.floorMod(next, this.rows);
+		}
+		return next >= 0 && next < this.rows ? next : -1;
+	}
+
+	/**
+	 * get methods
+	 */
+	public int getColumns(){
+		return this.columns;
+	}
+
+	public int getRows(){
+		return this.rows;
+	}
+
+	/**
+	 * @return the cell bird i was put in by the last build()
+	 */
+	public int getCell(int i){
+		return this.cellOf[i];
+	}
+
+	public int getCellStart(int cell){
+		return this.cellStart[cell];
+	}
+
+	public int getCellEnd(int cell){
+		return this.cellStart[cell + 1];
+	}
+
+	public int getItem(int k){
+		return this.items[k];
+	}
+}